@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Класс генератора набора файлов для измерений.
+ * <p>
+ * Набор определяется параметрами и начальным значением генератора случайных чисел,
+ * поэтому повторная генерация создаёт те же файлы с тем же содержимым.
+ * Файлы распределяются по директориям двух уровней, в каждой директории
+ * не более {@link #FILES_PER_DIRECTORY} файлов.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Corpus
+{
+	/**
+	 * Количество файлов в одной директории.
+	 */
+	public static final int FILES_PER_DIRECTORY = 64;
+
+	/**
+	 * Начальное значение генератора случайных чисел.
+	 */
+	private static final long SEED = 0x5EED;
+
+	/**
+	 * Слова, из которых состоит текст файлов.
+	 */
+	@NotNull
+	private static final String @NotNull [] WORDS = {
+		"import", "package", "class", "public", "private", "return", "value", "result",
+		"строка", "значение", "файл", "текст", "{", "}", "(", ")", ";", "=", "+", "0", "1", "42"
+	};
+
+	/**
+	 * Конструктор для {@code Corpus}.
+	 */
+	private Corpus() {}
+
+	/**
+	 * Создаёт набор файлов.
+	 *
+	 * @param root директория набора.
+	 * @param files количество файлов.
+	 * @param fileSize приблизительный размер файла в байтах.
+	 * @param density доля строк, содержащих совпадение, от {@code 0} до {@code 1}.
+	 * @param rules количество правил, совпадения с которыми распределяются по строкам.
+	 * @return созданные файлы.
+	 * @throws NullPointerException если в качестве {@code root} передан {@code null}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@NotNull
+	public static List<@NotNull Path> generate(@NotNull final Path root,
+											   final int files,
+											   final int fileSize,
+											   final double density,
+											   final int rules) throws IOException
+	{
+		Objects.requireNonNull(root);
+
+		SplittableRandom random = new SplittableRandom(SEED);
+		List<Path> paths = new ArrayList<>(files);
+
+		for (int index = 0; index < files; index++)
+		{
+			int directory = index / FILES_PER_DIRECTORY;
+			Path path = root.resolve("d" + directory / FILES_PER_DIRECTORY)
+							.resolve("d" + directory % FILES_PER_DIRECTORY)
+							.resolve("file" + index + ".txt");
+
+			Files.createDirectories(path.getParent());
+			Files.writeString(path, Corpus.text(random, fileSize, density, rules), StandardCharsets.UTF_8);
+
+			paths.add(path);
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Возвращает шаблон регулярного выражения правила с заданным номером.
+	 *
+	 * @param rule номер правила.
+	 * @return шаблон регулярного выражения.
+	 */
+	@NotNull
+	public static String regexp(final int rule)
+	{
+		return "com\\.acme\\.old" + rule + "\\.[A-Z]\\w+";
+	}
+
+	/**
+	 * Возвращает строку замены правила с заданным номером.
+	 *
+	 * @param rule номер правила.
+	 * @return строку замены.
+	 */
+	@NotNull
+	public static String replacement(final int rule)
+	{
+		return "org.acme.new" + rule + ".Name";
+	}
+
+	/**
+	 * Создаёт текст файла.
+	 *
+	 * @param random генератор случайных чисел.
+	 * @param fileSize приблизительный размер текста в байтах.
+	 * @param density доля строк, содержащих совпадение.
+	 * @param rules количество правил.
+	 * @return текст.
+	 */
+	@NotNull
+	private static String text(@NotNull final SplittableRandom random,
+							   final int fileSize,
+							   final double density,
+							   final int rules)
+	{
+		StringBuilder text = new StringBuilder(fileSize + 128);
+
+		while (text.length() < fileSize)
+		{
+			int words = 4 + random.nextInt(8);
+
+			for (int word = 0; word < words; word++) {
+				text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+
+			if (random.nextDouble() < density) {
+				text.append("com.acme.old").append(random.nextInt(rules)).append(".Value").append(random.nextInt(100));
+			}
+
+			text.append('\n');
+		}
+
+		return text.toString();
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.benchmarks;
+
+import dev.kalenchukov.replaceinfiles.modules.FileExpert;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс измерения чтения и записи файлов.
+ *
+ * @author Алексей Каленчуков
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileBenchmark
+{
+	/**
+	 * Размер файла в байтах.
+	 */
+	@Param({"1024", "1048576"})
+	public int fileSize;
+
+	/**
+	 * Атомарная запись файла.
+	 */
+	@Param({"false", "true"})
+	public boolean atomic;
+
+	/**
+	 * Директория набора файлов.
+	 */
+	private Path root;
+
+	/**
+	 * Файл.
+	 */
+	private File file;
+
+	/**
+	 * Содержимое файла.
+	 */
+	private String value;
+
+	/**
+	 * Объект для работы с файлами.
+	 */
+	private FileExpert fileExpert;
+
+	/**
+	 * Создаёт файл.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		this.root = Files.createTempDirectory("replaceinfiles-file");
+		this.file = Corpus.generate(this.root, 1, this.fileSize, 0.1, 1).get(0).toFile();
+		this.fileExpert = new FileExpert();
+		this.fileExpert.setAtomic(this.atomic);
+		this.value = this.fileExpert.readFile(this.file);
+	}
+
+	/**
+	 * Удаляет файл.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		Benchmarks.delete(this.root);
+	}
+
+	/**
+	 * Измеряет чтение файла.
+	 *
+	 * @return содержимое файла.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Benchmark
+	public String readFile() throws IOException
+	{
+		return this.fileExpert.readFile(this.file);
+	}
+
+	/**
+	 * Измеряет запись файла.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Benchmark
+	public void writeFile() throws IOException
+	{
+		this.fileExpert.writeFile(this.file, this.value);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.benchmarks;
+
+import dev.kalenchukov.replaceinfiles.Replaceable;
+import dev.kalenchukov.replaceinfiles.Replacement;
+import dev.kalenchukov.replaceinfiles.Report;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс измерения замены в наборе файлов.
+ * <p>
+ * Замена изменяет файлы, поэтому набор создаётся заново перед каждой итерацией,
+ * а каждая итерация выполняет одну замену.
+ *
+ * @author Алексей Каленчуков
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReplaceBenchmark
+{
+	/**
+	 * Количество файлов.
+	 */
+	@Param({"1000"})
+	public int files;
+
+	/**
+	 * Размер файла в байтах.
+	 */
+	@Param({"4096", "65536"})
+	public int fileSize;
+
+	/**
+	 * Доля строк, содержащих совпадение.
+	 */
+	@Param({"0", "0.01", "0.5"})
+	public double density;
+
+	/**
+	 * Количество правил.
+	 */
+	@Param({"1", "10"})
+	public int rules;
+
+	/**
+	 * Количество потоков замены.
+	 */
+	@Param({"1", "4"})
+	public int parallelism;
+
+	/**
+	 * Директория набора файлов.
+	 */
+	private Path root;
+
+	/**
+	 * Создаёт директорию набора файлов.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Setup(Level.Trial)
+	public void setupTrial() throws IOException
+	{
+		this.root = Files.createTempDirectory("replaceinfiles-replace");
+	}
+
+	/**
+	 * Создаёт набор файлов заново.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Setup(Level.Iteration)
+	public void setupIteration() throws IOException
+	{
+		Corpus.generate(this.root, this.files, this.fileSize, this.density, this.rules);
+	}
+
+	/**
+	 * Удаляет набор файлов.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		Benchmarks.delete(this.root);
+	}
+
+	/**
+	 * Измеряет замену в наборе файлов.
+	 *
+	 * @return отчёт о замене.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Benchmark
+	public Report replace() throws IOException
+	{
+		Replaceable replacement = new Replacement().setParallelism(this.parallelism);
+		replacement.addFile(this.root.toFile());
+
+		for (int rule = 0; rule < this.rules; rule++) {
+			replacement.apply(Corpus.regexp(rule), Corpus.replacement(rule));
+		}
+
+		return replacement.replace();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Класс признака отмены замены.
+ * <p>
+ * Замена проверяет признак между файлами, поэтому отменённая замена завершается
+ * после окончания обработки текущих файлов, не оставляя файлы частично записанными.
+ * Признак может быть установлен из любого потока или по истечении срока.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class CancellationToken
+{
+	/**
+	 * Признак без срока, который никогда не отменяется.
+	 */
+	@NotNull
+	static final CancellationToken NONE = new CancellationToken();
+
+	/**
+	 * Срок в значениях {@link System#nanoTime()}.
+	 */
+	private final long deadline;
+
+	/**
+	 * Наличие срока.
+	 */
+	private final boolean timed;
+
+	/**
+	 * Признак отмены.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Конструктор для {@code CancellationToken} без срока.
+	 */
+	public CancellationToken()
+	{
+		this.deadline = 0;
+		this.timed = false;
+		this.cancelled = false;
+	}
+
+	/**
+	 * Конструктор для {@code CancellationToken} со сроком.
+	 *
+	 * @param timeout время от создания признака, по истечении которого замена отменяется.
+	 * @throws NullPointerException если в качестве {@code timeout} передан {@code null}.
+	 */
+	public CancellationToken(@NotNull final Duration timeout)
+	{
+		Objects.requireNonNull(timeout);
+
+		this.deadline = System.nanoTime() + timeout.toNanos();
+		this.timed = true;
+		this.cancelled = false;
+	}
+
+	/**
+	 * Отменяет замену.
+	 */
+	public void cancel()
+	{
+		this.cancelled = true;
+	}
+
+	/**
+	 * Проверяет, отменена ли замена.
+	 *
+	 * @return {@code true}, если замена отменена или срок истёк, иначе {@code false}.
+	 */
+	public boolean isCancelled()
+	{
+		return this.cancelled || this.timed && System.nanoTime() - this.deadline >= 0;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Класс совпадения правила в файле.
+ * <p>
+ * Смещения указываются в символах от начала файла.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Match
+{
+	/**
+	 * Регулярное выражение правила.
+	 */
+	@NotNull
+	private final String regexp;
+
+	/**
+	 * Смещение начала совпадения.
+	 */
+	private final int start;
+
+	/**
+	 * Смещение окончания совпадения.
+	 */
+	private final int end;
+
+	/**
+	 * Текст совпадения.
+	 */
+	@NotNull
+	private final String value;
+
+	/**
+	 * Конструктор для {@code Match}.
+	 *
+	 * @param regexp регулярное выражение правила.
+	 * @param start смещение начала совпадения.
+	 * @param end смещение окончания совпадения.
+	 * @param value текст совпадения.
+	 */
+	Match(@NotNull final String regexp, final int start, final int end, @NotNull final String value)
+	{
+		this.regexp = regexp;
+		this.start = start;
+		this.end = end;
+		this.value = value;
+	}
+
+	/**
+	 * Возвращает регулярное выражение правила.
+	 *
+	 * @return регулярное выражение.
+	 */
+	@NotNull
+	public String getRegexp()
+	{
+		return this.regexp;
+	}
+
+	/**
+	 * Возвращает смещение начала совпадения.
+	 *
+	 * @return смещение в символах.
+	 */
+	public int getStart()
+	{
+		return this.start;
+	}
+
+	/**
+	 * Возвращает смещение окончания совпадения.
+	 *
+	 * @return смещение в символах, следующее за последним символом совпадения.
+	 */
+	public int getEnd()
+	{
+		return this.end;
+	}
+
+	/**
+	 * Возвращает текст совпадения.
+	 *
+	 * @return текст.
+	 */
+	@NotNull
+	public String getValue()
+	{
+		return this.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param object {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object object)
+	{
+		if (this == object) {
+			return true;
+		}
+
+		if (!(object instanceof Match match)) {
+			return false;
+		}
+
+		return this.start == match.start && this.end == match.end &&
+			this.regexp.equals(match.regexp) && this.value.equals(match.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(this.regexp, this.start, this.end, this.value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public String toString()
+	{
+		return this.start + "-" + this.end + " '" + this.value + "' (" + this.regexp + ")";
+	}
+}
@@ -24,12 +24,19 @@
 
 package dev.kalenchukov.replaceinfiles;
 
+import dev.kalenchukov.replaceinfiles.modules.MemoryBudget;
+import dev.kalenchukov.replaceinfiles.resources.Durability;
 import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Интерфейс для реализации замены символов в файлах.
@@ -56,8 +63,311 @@ public interface Replaceable
 	@NotNull
 	Replacement canHidden(boolean canHidden);
 
+	/**
+	 * Устанавливает количество потоков, в которых выполняется замена.
+	 * <p>
+	 * При значении больше {@code 1} файлы обрабатываются, а директории сканируются
+	 * параллельно в пуле {@link java.util.concurrent.ForkJoinPool} с перехватом задач.
+	 * Результат замены в каждом файле совпадает с последовательным выполнением.
+	 *
+	 * @param parallelism количество потоков.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code parallelism} меньше {@code 1}.
+	 */
+	@NotNull
+	Replacement setParallelism(int parallelism);
+
+	/**
+	 * Устанавливает объединение независимых правил в один проход по тексту.
+	 * <p>
+	 * Правила, идущие подряд, совпадения которых не могут пересекаться в тексте
+	 * и находиться в тексте замены друг друга, объединяются в один шаблон, поэтому
+	 * файл просматривается один раз для всех таких правил. Результат замены
+	 * совпадает с результатом без объединения.
+	 *
+	 * @param fused {@code true}, если правила необходимо объединять, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setFused(boolean fused);
+
+	/**
+	 * Устанавливает размер файла, начиная с которого замена выполняется потоково.
+	 * <p>
+	 * Такие файлы не считываются в память целиком: текст обрабатывается окнами,
+	 * а результат записывается во временный файл, который заменяет исходный.
+	 *
+	 * @param size размер файла в байтах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code size} меньше {@code 0}.
+	 */
+	@NotNull
+	Replacement setStreamingThreshold(long size);
+
+	/**
+	 * Устанавливает размеры окна потоковой замены.
+	 * <p>
+	 * Совпадения, пересекающие границу окон, находятся, если их длина
+	 * не превышает размер перекрытия.
+	 *
+	 * @param window размер окна в символах.
+	 * @param overlap размер перекрытия окон в символах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code window} меньше {@code 1} или {@code overlap} меньше {@code 0}.
+	 */
+	@NotNull
+	Replacement setStreamingWindow(int window, int overlap);
+
+	/**
+	 * Устанавливает размер файла, начиная с которого файл разбивается на части по строкам.
+	 * <p>
+	 * Части заканчиваются переводом строки, обрабатываются параллельно в количестве потоков
+	 * {@link #setParallelism(int)}, а результаты записываются в исходном порядке во временный файл,
+	 * который заменяет исходный. Режим допустим только для правил, совпадения которых
+	 * не выходят за пределы строки, поэтому такие правила отклоняются.
+	 *
+	 * @param size размер файла в байтах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code size} меньше {@code 0}.
+	 * @throws IllegalStateException если применённое правило может найти совпадение за пределами строки.
+	 */
+	@NotNull
+	Replacement setSplitThreshold(long size);
+
+	/**
+	 * Устанавливает размер части файла при разбиении по строкам.
+	 * <p>
+	 * Часть продолжается до ближайшего перевода строки, поэтому может быть длиннее.
+	 *
+	 * @param chunk размер части в символах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code chunk} меньше {@code 1}.
+	 */
+	@NotNull
+	Replacement setSplitChunk(int chunk);
+
+	/**
+	 * Устанавливает проверку наличия совпадений в файле, отображённом в память.
+	 * <p>
+	 * Файл считывается в строку и перезаписывается, только если хотя бы одно правило
+	 * находит совпадение в отображённом содержимом. Это ускоряет замену, когда
+	 * большинство файлов не содержат совпадений.
+	 *
+	 * @param mapped {@code true}, если проверку необходимо выполнять, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setMapped(boolean mapped);
+
+	/**
+	 * Устанавливает обработку файлов одновременно со сканированием директорий.
+	 * <p>
+	 * Найденные файлы передаются в ограниченную очередь, из которой их сразу забирают
+	 * потоки замены. Замена начинается до окончания сканирования, а объём памяти
+	 * не зависит от количества файлов. Изменённые файлы возвращаются в порядке окончания замены.
+	 *
+	 * @param pipelined {@code true}, если файлы необходимо обрабатывать во время сканирования, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setPipelined(boolean pipelined);
+
+	/**
+	 * Устанавливает ёмкость очереди найденных файлов.
+	 *
+	 * @param capacity ёмкость очереди.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code capacity} меньше {@code 1}.
+	 */
+	@NotNull
+	Replacement setPipelineCapacity(int capacity);
+
+	/**
+	 * Устанавливает бюджет памяти для содержимого обрабатываемых файлов.
+	 * <p>
+	 * Перед чтением файла резервируется оценка необходимой памяти. Если бюджета недостаточно,
+	 * поток замены ожидает, пока другие потоки освободят память. Файл, для замены в котором
+	 * в памяти бюджета недостаточно, обрабатывается потоково, а при поиске — отображается в память.
+	 * Бюджет должен вмещать окна потоковой замены {@link #setStreamingWindow(int, int)} и части файла
+	 * при разбиении по строкам {@link #setSplitChunk(int)}, иначе замена и поиск завершаются исключением.
+	 *
+	 * @param capacity объём бюджета в байтах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code capacity} меньше {@code 1}.
+	 */
+	@NotNull
+	Replacement setMemoryBudget(long capacity);
+
+	/**
+	 * Возвращает бюджет памяти для наблюдения за его использованием.
+	 *
+	 * @return бюджет памяти или {@code null}, если бюджет не установлен.
+	 */
+	@Nullable
+	MemoryBudget getMemoryBudget();
+
+	/**
+	 * Устанавливает журнал обработанных файлов.
+	 * <p>
+	 * Файлы, не изменявшиеся с предыдущей замены теми же правилами, пропускаются.
+	 * Журнал сохраняется по окончании замены. При изменении правил журнал не учитывается.
+	 *
+	 * @param manifest файл журнала или {@code null}, если журнал не используется.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setManifest(@Nullable File manifest);
+
+	/**
+	 * Устанавливает атомарную запись файлов.
+	 * <p>
+	 * Содержимое записывается во временный файл в той же директории, который затем
+	 * атомарно заменяет исходный файл.
+	 *
+	 * @param atomic {@code true}, если запись должна быть атомарной, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setAtomic(boolean atomic);
+
+	/**
+	 * Устанавливает режим надёжности записи файлов.
+	 *
+	 * @param durability режим надёжности.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setDurability(@NotNull Durability durability);
+
+	/**
+	 * Устанавливает размер группы для режима надёжности {@link Durability#BATCH}.
+	 * <p>
+	 * Данные сбрасываются на диск, когда в группе накопилось {@code files} файлов,
+	 * когда с записи первого файла группы прошло {@code millis} миллисекунд,
+	 * а также по окончании замены.
+	 *
+	 * @param files количество файлов.
+	 * @param millis время в миллисекундах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code files} меньше {@code 1} или {@code millis} меньше {@code 0}.
+	 */
+	@NotNull
+	Replacement setDurabilityBatch(int files, long millis);
+
+	/**
+	 * Добавляет шаблон файлов, которые необходимо добавлять при сканировании директорий.
+	 * <p>
+	 * Шаблон в синтаксисе {@code glob} без символа {@code /} сравнивается с именем файла,
+	 * иначе — с путём относительно сканируемой директории. Если шаблоны не добавлены,
+	 * добавляются все файлы.
+	 *
+	 * @param glob шаблон, например {@code "*.java"}.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+	 */
+	@NotNull
+	Replacement addInclude(@NotNull String glob);
+
+	/**
+	 * Добавляет шаблон файлов и директорий, которые необходимо пропускать при сканировании директорий.
+	 * <p>
+	 * Содержимое исключённой директории не просматривается.
+	 *
+	 * @param glob шаблон, например {@code "node_modules"}.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+	 */
+	@NotNull
+	Replacement addExclude(@NotNull String glob);
+
+	/**
+	 * Устанавливает ограничения размера файлов при сканировании директорий.
+	 *
+	 * @param min минимальный размер файла в байтах.
+	 * @param max максимальный размер файла в байтах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code min} меньше {@code 0} или {@code max} меньше {@code min}.
+	 */
+	@NotNull
+	Replacement setFileSize(long min, long max);
+
+	/**
+	 * Устанавливает максимальную глубину сканирования директорий.
+	 * <p>
+	 * При глубине {@code 1} обрабатываются только файлы добавленной директории без поддиректорий.
+	 *
+	 * @param depth глубина.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code depth} меньше {@code 1}.
+	 */
+	@NotNull
+	Replacement setMaxDepth(int depth);
+
+	/**
+	 * Устанавливает определение двоичных файлов.
+	 * <p>
+	 * Двоичные файлы определяются по первым байтам, декодированным в кодировке по умолчанию,
+	 * и пропускаются без чтения всего файла. По умолчанию определение выключено.
+	 *
+	 * @param binaryDetection {@code true}, если двоичные файлы необходимо пропускать, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setBinaryDetection(boolean binaryDetection);
+
+	/**
+	 * Устанавливает расширения файлов, которые всегда считаются текстовыми.
+	 *
+	 * @param extensions расширения файлов, например {@code "txt"}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setTextExtensions(@NotNull Set<@NotNull String> extensions);
+
+	/**
+	 * Устанавливает расширения файлов, которые всегда считаются двоичными.
+	 *
+	 * @param extensions расширения файлов, например {@code "jar"}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setBinaryExtensions(@NotNull Set<@NotNull String> extensions);
+
+	/**
+	 * Устанавливает обработку архивов ZIP и JAR как контейнеров текстовых файлов.
+	 * <p>
+	 * Архивы с расширениями {@code zip}, {@code jar}, {@code war} и {@code ear}, добавленные
+	 * в {@link #addFile(File)} или найденные в директориях, не пропускаются как двоичные:
+	 * правила потоково применяются к текстовым файлам внутри архива, а изменённый архив
+	 * записывается заново за один проход без повторного сжатия неизменённых файлов.
+	 * Специальные правила получают путь файла в виде пути архива и имени файла в архиве.
+	 * <p>
+	 * Файлы внутри архива всегда обрабатываются потоково независимо от размера,
+	 * поэтому для них действует ограничение {@link #setStreamingWindow(int, int)}:
+	 * совпадения длиннее перекрытия окон могут быть не найдены. Комментарий
+	 * изменённого архива сохраняется.
+	 *
+	 * @param archives {@code true}, если архивы необходимо обрабатывать как контейнеры, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setArchives(boolean archives);
+
+	/**
+	 * Устанавливает получателя событий замены.
+	 * <p>
+	 * Получатель уведомляется об обнаружении файла, начале и окончании его обработки и об ошибках.
+	 *
+	 * @param listener получатель событий или {@code null}, если события не нужны.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	Replacement setListener(@Nullable ReplacementListener listener);
+
 	/**
 	 * Добавляет файл в котором будет производиться замена.
+	 * <p>
+	 * Если {@code file} является директорией, она сканируется при выполнении замены.
 	 *
 	 * @param file файл.
 	 * @return ссылку на данный объект.
@@ -68,10 +378,20 @@ public interface Replaceable
 
 	/**
 	 * Применяет правило для замены с указанием строки замены.
+	 * <p>
+	 * Строка замены может содержать ссылки на группы и специальные знаки {@link SpecialRule}
+	 * в любом месте, например {@code "$1.\\SCFileExtension"}. Строка замены компилируется
+	 * один раз, а специальные знаки заменяются значениями для каждого файла.
 	 *
 	 * @param regexp шаблон регулярного выражения.
 	 * @param replacement строка замены.
 	 * @return ссылку на данный объект.
+	 * @throws PatternSyntaxException если синтаксис {@code regexp} некорректен.
+	 * @throws IllegalArgumentException если {@code replacement} содержит некорректную ссылку на группу
+	 * или ссылается на несуществующую именованную группу.
+	 * @throws IndexOutOfBoundsException если {@code replacement} ссылается на несуществующую группу.
+	 * @throws IllegalArgumentException если установлено разбиение файлов по строкам,
+	 * а {@code regexp} может найти совпадение за пределами строки.
 	 */
 	@NotNull
 	Replaceable apply(@NotNull String regexp, @NotNull String replacement);
@@ -82,12 +402,61 @@ public interface Replaceable
 	 * @param regexp шаблон регулярного выражения.
 	 * @param specialRule специальное правило.
 	 * @return ссылку на данный объект.
+	 * @throws PatternSyntaxException если синтаксис {@code regexp} некорректен.
 	 */
 	@NotNull
 	Replaceable apply(@NotNull String regexp, @NotNull SpecialRule specialRule);
 
 	/**
 	 * Выполняет все применённые правила для замены.
+	 * <p>
+	 * Файлы, в которых содержимое не изменилось, не перезаписываются.
+	 * Ошибка обработки отдельного файла не прерывает замену, а учитывается в отчёте.
+	 *
+	 * @return отчёт о замене.
+	 * @throws IllegalStateException если бюджет памяти меньше памяти, необходимой для потоковой замены.
+	 */
+	@NotNull
+	Report replace();
+
+	/**
+	 * Выполняет все применённые правила для замены с возможностью отмены.
+	 * <p>
+	 * Признак отмены проверяется между файлами: после отмены сканирование прекращается,
+	 * файлы, обработка которых уже началась, обрабатываются до конца, а остальные пропускаются.
+	 *
+	 * @param token признак отмены замены.
+	 * @return отчёт о замене.
+	 * @throws IllegalStateException если бюджет памяти меньше памяти, необходимой для потоковой замены.
 	 */
-	void replace();
+	@NotNull
+	Report replace(@NotNull CancellationToken token);
+
+	/**
+	 * Ищет файлы, в которых находит совпадение хотя бы одно применённое правило.
+	 * <p>
+	 * Файлы не изменяются. Каждый файл читается только до первого совпадения,
+	 * а правила ищутся в исходном тексте файла, поэтому поиск можно использовать
+	 * как быструю предварительную проверку перед заменой. Учитываются все параметры
+	 * сканирования директорий.
+	 *
+	 * @return коллекцию файлов с совпадениями.
+	 * @throws IllegalStateException если бюджет памяти меньше памяти, необходимой для потоковой замены.
+	 */
+	@NotNull
+	List<@NotNull File> search();
+
+	/**
+	 * Ищет первые совпадения применённых правил в файлах.
+	 * <p>
+	 * Файлы не изменяются. Правила ищутся в исходном тексте файла.
+	 *
+	 * @param limit наибольшее количество совпадений, возвращаемых для каждого файла.
+	 * @return неизменяемое отображение файлов с совпадениями в их совпадения,
+	 * упорядоченные по расположению в файле.
+	 * @throws IllegalArgumentException если {@code limit} меньше {@code 1}.
+	 * @throws IllegalStateException если бюджет памяти меньше памяти, необходимой для потоковой замены.
+	 */
+	@NotNull
+	Map<@NotNull File, @NotNull List<@NotNull Match>> search(int limit);
 }
@@ -25,16 +25,23 @@
 package dev.kalenchukov.replaceinfiles;
 
 import dev.kalenchukov.replaceinfiles.modules.FileExpert;
+import dev.kalenchukov.replaceinfiles.modules.MemoryBudget;
+import dev.kalenchukov.replaceinfiles.resources.Durability;
 import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.util.*;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Класс замены символов в файлах.
+ * <p>
+ * Параметры и правила собираются в {@link ReplacementPlan}, который строится
+ * при первой замене после их изменения и выполняется для добавленных файлов.
  *
  * @author Алексей Каленчуков
  */
@@ -47,22 +54,22 @@ public class Replacement implements Replaceable
 	private Locale locale;
 
 	/**
-	 * Объект для работы с файлами.
+	 * Построитель плана замены.
 	 */
 	@NotNull
-	private final FileExpert fileExpert;
+	private final ReplacementPlan.Builder builder;
 
 	/**
-	 * Коллекция файлов для замены.
+	 * Построенный план замены или {@code null}, если параметры изменились после его построения.
 	 */
-	@NotNull
-	private final List<@NotNull File> files;
+	@Nullable
+	private ReplacementPlan plan;
 
 	/**
-	 * Коллекция правил замены.
+	 * Коллекция файлов и директорий для замены по ключам файловой системы.
 	 */
 	@NotNull
-	private final Map<@NotNull String, @NotNull String> replacing;
+	private final Map<@NotNull Object, @NotNull File> files;
 
 	/**
 	 * Локализованные тексты логирования.
@@ -88,9 +95,9 @@ public class Replacement implements Replaceable
 	public Replacement()
 	{
 		this.locale = new Locale("ru", "RU");
-		this.fileExpert = new FileExpert().setLocale(this.locale);
-		this.files = new ArrayList<>();
-		this.replacing = new LinkedHashMap<>();
+		this.builder = ReplacementPlan.builder().setLocale(this.locale);
+		this.plan = null;
+		this.files = new LinkedHashMap<>();
 		this.localeLogs = ResourceBundle.getBundle(
 			"replaceinfiles/localizations/logs",
 			this.locale
@@ -129,7 +136,8 @@ public class Replacement implements Replaceable
 			);
 		}
 
-		this.fileExpert.setLocale(this.locale);
+		this.builder.setLocale(this.locale);
+		this.plan = null;
 
 		return this;
 	}
@@ -144,7 +152,419 @@ public class Replacement implements Replaceable
 	@Override
 	public Replacement canHidden(final boolean canHidden)
 	{
-		this.fileExpert.canHidden(canHidden);
+		this.builder.canHidden(canHidden);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param parallelism {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setParallelism(final int parallelism)
+	{
+		this.builder.setParallelism(parallelism);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param fused {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setFused(final boolean fused)
+	{
+		this.builder.setFused(fused);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param size {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setStreamingThreshold(final long size)
+	{
+		this.builder.setStreamingThreshold(size);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param window {@inheritDoc}
+	 * @param overlap {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setStreamingWindow(final int window, final int overlap)
+	{
+		this.builder.setStreamingWindow(window, overlap);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param size {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 * @throws IllegalStateException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setSplitThreshold(final long size)
+	{
+		this.builder.setSplitThreshold(size);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param chunk {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setSplitChunk(final int chunk)
+	{
+		this.builder.setSplitChunk(chunk);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param mapped {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setMapped(final boolean mapped)
+	{
+		this.builder.setMapped(mapped);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param pipelined {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setPipelined(final boolean pipelined)
+	{
+		this.builder.setPipelined(pipelined);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param capacity {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setPipelineCapacity(final int capacity)
+	{
+		this.builder.setPipelineCapacity(capacity);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param capacity {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setMemoryBudget(final long capacity)
+	{
+		this.builder.setMemoryBudget(capacity);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 */
+	@Nullable
+	@Override
+	public MemoryBudget getMemoryBudget()
+	{
+		return this.builder.getMemoryBudget();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param manifest {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setManifest(@Nullable final File manifest)
+	{
+		this.builder.setManifest(manifest);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param atomic {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setAtomic(final boolean atomic)
+	{
+		this.builder.setAtomic(atomic);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param durability {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code durability} передан {@code null}.
+	 */
+	@NotNull
+	@Override
+	public Replacement setDurability(@NotNull final Durability durability)
+	{
+		Objects.requireNonNull(durability);
+
+		this.builder.setDurability(durability);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param files {@inheritDoc}
+	 * @param millis {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setDurabilityBatch(final int files, final long millis)
+	{
+		this.builder.setDurabilityBatch(files, millis);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param glob {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code glob} передан {@code null}.
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement addInclude(@NotNull final String glob)
+	{
+		Objects.requireNonNull(glob);
+
+		this.builder.addInclude(glob);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param glob {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code glob} передан {@code null}.
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement addExclude(@NotNull final String glob)
+	{
+		Objects.requireNonNull(glob);
+
+		this.builder.addExclude(glob);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param min {@inheritDoc}
+	 * @param max {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setFileSize(final long min, final long max)
+	{
+		this.builder.setFileSize(min, max);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param depth {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setMaxDepth(final int depth)
+	{
+		this.builder.setMaxDepth(depth);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param binaryDetection {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setBinaryDetection(final boolean binaryDetection)
+	{
+		this.builder.setBinaryDetection(binaryDetection);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param extensions {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code extensions} передан {@code null}.
+	 */
+	@NotNull
+	@Override
+	public Replacement setTextExtensions(@NotNull final Set<@NotNull String> extensions)
+	{
+		Objects.requireNonNull(extensions);
+
+		this.builder.setTextExtensions(extensions);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param extensions {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code extensions} передан {@code null}.
+	 */
+	@NotNull
+	@Override
+	public Replacement setBinaryExtensions(@NotNull final Set<@NotNull String> extensions)
+	{
+		Objects.requireNonNull(extensions);
+
+		this.builder.setBinaryExtensions(extensions);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param archives {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setArchives(final boolean archives)
+	{
+		this.builder.setArchives(archives);
+		this.plan = null;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param listener {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Replacement setListener(@Nullable final ReplacementListener listener)
+	{
+		this.builder.setListener(listener);
+		this.plan = null;
 
 		return this;
 	}
@@ -170,17 +590,20 @@ public class Replacement implements Replaceable
 			));
 		}
 
-		if (file.isFile()) {
-			this.files.add(file);
+		Object key;
+
+		try
+		{
+			key = FileExpert.fileKey(file.toPath(), null);
 		}
-		else {
-			this.files.addAll(this.fileExpert.scanDirectory(file));
+		catch (IOException exception)
+		{
+			key = file.getAbsoluteFile().toPath().normalize();
 		}
 
-		LOG.debug(String.format(
-			this.localeLogs.getString("00001"),
-			file.getPath()
-		));
+		if (this.files.putIfAbsent(key, file) == null) {
+			this.debug("00001", file.getPath());
+		}
 
 		return this;
 	}
@@ -193,6 +616,9 @@ public class Replacement implements Replaceable
 	 * @return {@inheritDoc}
 	 * @throws NullPointerException если в качестве {@code regexp} передан {@code null}.
 	 * @throws NullPointerException если в качестве {@code replacement} передан {@code null}.
+	 * @throws PatternSyntaxException {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 * @throws IndexOutOfBoundsException {@inheritDoc}
 	 */
 	@NotNull
 	@Override
@@ -201,13 +627,8 @@ public class Replacement implements Replaceable
 		Objects.requireNonNull(regexp);
 		Objects.requireNonNull(replacement);
 
-		this.replacing.put(regexp, replacement);
-
-		LOG.debug(String.format(
-			this.localeLogs.getString("00010"),
-			regexp,
-			replacement
-		));
+		this.builder.apply(regexp, replacement);
+		this.plan = null;
 
 		return this;
 	}
@@ -220,6 +641,7 @@ public class Replacement implements Replaceable
 	 * @return {@inheritDoc}
 	 * @throws NullPointerException если в качестве {@code regexp} передан {@code null}.
 	 * @throws NullPointerException если в качестве {@code specialRule} передан {@code null}.
+	 * @throws PatternSyntaxException {@inheritDoc}
 	 */
 	@NotNull
 	@Override
@@ -233,37 +655,95 @@ public class Replacement implements Replaceable
 
 	/**
 	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 * @throws IllegalStateException {@inheritDoc}
 	 */
+	@NotNull
 	@Override
-	public void replace()
+	public Report replace()
 	{
-		FileExpert fileText = new FileExpert().setLocale(this.locale);
+		return this.replace(CancellationToken.NONE);
+	}
 
-		for (File file : this.files)
-		{
-			String value = this.fileExpert.readFile(file);
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param token {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code token} передан {@code null}.
+	 * @throws IllegalStateException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Report replace(@NotNull final CancellationToken token)
+	{
+		Objects.requireNonNull(token);
 
-			for (Map.Entry<String, String> replace : this.replacing.entrySet())
-			{
-				String replacement = replace.getValue();
+		return this.getPlan().replace(this.files.values(), token);
+	}
 
-				if (replace.getValue().equals(SpecialRule.FILE_NAME.getSpecialSign())) {
-					replacement = file.getName();
-				}
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 * @throws IllegalStateException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public List<@NotNull File> search()
+	{
+		return this.getPlan().search(this.files.values());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param limit {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException если {@code limit} меньше {@code 1}.
+	 * @throws IllegalStateException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public Map<@NotNull File, @NotNull List<@NotNull Match>> search(final int limit)
+	{
+		return this.getPlan().search(this.files.values(), limit);
+	}
 
-				if (replace.getValue().equals(SpecialRule.PATH.getSpecialSign())) {
-					replacement = file.getPath();
-				}
+	/**
+	 * Возвращает план замены, строя его при первом выполнении после изменения параметров.
+	 * <p>
+	 * Повторные замены без изменения параметров выполняются без компиляции правил.
+	 *
+	 * @return план замены.
+	 */
+	@NotNull
+	private ReplacementPlan getPlan()
+	{
+		if (this.plan == null) {
+			this.plan = this.builder.build();
+		}
 
-				value = value.replaceAll(replace.getKey(), replacement);
-			}
+		return this.plan;
+	}
 
+	/**
+	 * Логирует отладочное сообщение.
+	 * <p>
+	 * Сообщение форматируется, только если отладочный уровень логирования включён.
+	 *
+	 * @param message ключ сообщения журнала.
+	 * @param argument аргумент сообщения.
+	 */
+	private void debug(@NotNull final String message, @NotNull final Object argument)
+	{
+		if (LOG.isDebugEnabled())
+		{
 			LOG.debug(String.format(
-				this.localeLogs.getString("00003"),
-				file.getPath()
+				this.localeLogs.getString(message),
+				argument
 			));
-
-			this.fileExpert.writeFile(file, value);
 		}
 	}
 }
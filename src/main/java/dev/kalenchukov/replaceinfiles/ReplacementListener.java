@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Интерфейс для реализации получателя событий замены.
+ * <p>
+ * События передают только уже существующие объекты и примитивные значения,
+ * поэтому не форматируют сообщений и не создают объектов, если получатель их не использует.
+ * При параллельной замене методы вызываются из нескольких потоков одновременно,
+ * поэтому реализация должна быть потокобезопасной. Исключение, выброшенное
+ * получателем, прерывает замену.
+ *
+ * @author Алексей Каленчуков
+ */
+public interface ReplacementListener
+{
+	/**
+	 * Вызывается при обнаружении файла для замены.
+	 *
+	 * @param file файл.
+	 */
+	default void onFileDiscovered(@NotNull final File file) {}
+
+	/**
+	 * Вызывается перед обработкой файла.
+	 *
+	 * @param file файл.
+	 */
+	default void onFileStarted(@NotNull final File file) {}
+
+	/**
+	 * Вызывается после успешной обработки файла, в том числе пропущенного.
+	 *
+	 * @param file файл.
+	 * @param changed {@code true}, если файл изменён, иначе {@code false}.
+	 * @param bytesRead количество прочитанных байтов.
+	 * @param bytesWritten количество записанных байтов.
+	 * @param time время обработки в наносекундах.
+	 */
+	default void onFileFinished(@NotNull final File file,
+								final boolean changed,
+								final long bytesRead,
+								final long bytesWritten,
+								final long time) {}
+
+	/**
+	 * Вызывается, если при обработке файла произошла ошибка.
+	 *
+	 * @param file файл.
+	 * @param exception исключение.
+	 */
+	default void onFileFailed(@NotNull final File file, @NotNull final Exception exception) {}
+}
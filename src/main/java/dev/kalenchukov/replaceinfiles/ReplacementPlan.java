@@ -0,0 +1,2652 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import dev.kalenchukov.replaceinfiles.modules.ByteChain;
+import dev.kalenchukov.replaceinfiles.modules.FileExpert;
+import dev.kalenchukov.replaceinfiles.modules.IoTimer;
+import dev.kalenchukov.replaceinfiles.modules.Manifest;
+import dev.kalenchukov.replaceinfiles.modules.MappedText;
+import dev.kalenchukov.replaceinfiles.modules.MemoryBudget;
+import dev.kalenchukov.replaceinfiles.modules.Prefilter;
+import dev.kalenchukov.replaceinfiles.modules.Rule;
+import dev.kalenchukov.replaceinfiles.modules.RuleChain;
+import dev.kalenchukov.replaceinfiles.modules.Statistics;
+import dev.kalenchukov.replaceinfiles.resources.Durability;
+import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Класс скомпилированного плана замены.
+ * <p>
+ * План содержит скомпилированные правила, параметры сканирования и записи файлов
+ * и локализованные тексты. План неизменяем и может одновременно выполняться
+ * из нескольких потоков для разных файлов и директорий без повторной подготовки.
+ * Создаётся с помощью {@link Builder}.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class ReplacementPlan
+{
+	/**
+	 * Локализация.
+	 */
+	@NotNull
+	private final Locale locale;
+
+	/**
+	 * Объект для работы с файлами.
+	 */
+	@NotNull
+	private final FileExpert fileExpert;
+
+	/**
+	 * Правила замены в порядке выполнения.
+	 */
+	@NotNull
+	private final List<@NotNull Rule> ruleList;
+
+	/**
+	 * Цепочка правил замены.
+	 */
+	@NotNull
+	private final RuleChain rules;
+
+	/**
+	 * Предварительная проверка файлов.
+	 */
+	@NotNull
+	private final Prefilter prefilter;
+
+	/**
+	 * Количество потоков замены.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Размер файла в байтах, начиная с которого замена выполняется потоково.
+	 */
+	private final long streamingThreshold;
+
+	/**
+	 * Размер окна потоковой замены в символах.
+	 */
+	private final int streamingWindow;
+
+	/**
+	 * Размер перекрытия окон потоковой замены в символах.
+	 */
+	private final int streamingOverlap;
+
+	/**
+	 * Размер файла в байтах, начиная с которого файл разбивается на части по строкам.
+	 */
+	private final long splitThreshold;
+
+	/**
+	 * Размер части файла в символах при разбиении по строкам.
+	 */
+	private final int splitChunk;
+
+	/**
+	 * Проверка наличия совпадений в файле, отображённом в память.
+	 */
+	private final boolean mapped;
+
+	/**
+	 * Обработка файлов одновременно со сканированием директорий.
+	 */
+	private final boolean pipelined;
+
+	/**
+	 * Ёмкость очереди найденных файлов.
+	 */
+	private final int pipelineCapacity;
+
+	/**
+	 * Файл журнала обработанных файлов.
+	 */
+	@Nullable
+	private final File manifest;
+
+	/**
+	 * Получатель событий замены.
+	 */
+	@Nullable
+	private final ReplacementListener listener;
+
+	/**
+	 * Бюджет памяти для содержимого обрабатываемых файлов.
+	 */
+	@Nullable
+	private final MemoryBudget memoryBudget;
+
+	/**
+	 * Признак окончания очереди найденных файлов.
+	 */
+	@NotNull
+	private static final File END_OF_QUEUE = new File("");
+
+	/**
+	 * Оценка объёма памяти на байт файла при замене в памяти.
+	 * <p>
+	 * Учитываются байты файла, исходная строка, результат замены и его байты.
+	 */
+	private static final int MEMORY_FACTOR = 6;
+
+	/**
+	 * Оценка объёма памяти на байт файла при поиске в памяти.
+	 * <p>
+	 * Учитываются байты файла и исходная строка.
+	 */
+	private static final int SEARCH_MEMORY_FACTOR = 3;
+
+	/**
+	 * Локализованные тексты логирования.
+	 */
+	@NotNull
+	private final ResourceBundle localeLogs;
+
+	/**
+	 * Локализованные тексты исключений.
+	 */
+	@NotNull
+	private final ResourceBundle localeExceptions;
+
+	/**
+	 * Логгер для данного класса.
+	 */
+	@NotNull
+	private static final Logger LOG = LogManager.getLogger(ReplacementPlan.class);
+
+	/**
+	 * Конструктор для {@code ReplacementPlan}.
+	 *
+	 * @param builder построитель плана.
+	 * @throws IllegalStateException если бюджет памяти меньше памяти, необходимой для потоковой замены.
+	 */
+	private ReplacementPlan(@NotNull final Builder builder)
+	{
+		this.locale = builder.locale;
+		this.fileExpert = new FileExpert(builder.fileExpert);
+		this.ruleList = List.copyOf(builder.replacing.values());
+		this.rules = new RuleChain(this.ruleList, builder.fused);
+		this.prefilter = new Prefilter(this.ruleList, Charset.defaultCharset());
+		this.parallelism = builder.parallelism;
+		this.streamingThreshold = builder.streamingThreshold;
+		this.streamingWindow = builder.streamingWindow;
+		this.streamingOverlap = builder.streamingOverlap;
+		this.splitThreshold = builder.splitThreshold;
+		this.splitChunk = builder.splitChunk;
+		this.mapped = builder.mapped;
+		this.pipelined = builder.pipelined;
+		this.pipelineCapacity = builder.pipelineCapacity;
+		this.manifest = builder.manifest;
+		this.listener = builder.listener;
+		this.memoryBudget = builder.memoryBudget;
+		this.localeLogs = builder.localeLogs;
+		this.localeExceptions = builder.localeExceptions;
+
+		if (this.memoryBudget != null)
+		{
+			long footprint = this.getStreamingFootprint(this.rules);
+
+			if (this.splitThreshold != Long.MAX_VALUE) {
+				footprint = Math.max(footprint, this.getSplitFootprint());
+			}
+
+			if (footprint > this.memoryBudget.getCapacity()) {
+				throw new IllegalStateException(String.format(
+					this.localeExceptions.getString("40014"),
+					this.memoryBudget.getCapacity(),
+					footprint
+				));
+			}
+		}
+	}
+
+	/**
+	 * Возвращает построитель плана замены.
+	 *
+	 * @return построитель плана с параметрами по умолчанию.
+	 */
+	@NotNull
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	/**
+	 * Возвращает локализацию.
+	 *
+	 * @return локализацию.
+	 */
+	@NotNull
+	public Locale getLocale()
+	{
+		return this.locale;
+	}
+
+	/**
+	 * Возвращает правила замены в порядке выполнения.
+	 *
+	 * @return неизменяемую коллекцию правил.
+	 */
+	@NotNull
+	public List<@NotNull Rule> getRules()
+	{
+		return this.ruleList;
+	}
+
+	/**
+	 * Возвращает бюджет памяти для наблюдения за его использованием.
+	 * <p>
+	 * Бюджет общий для всех одновременных выполнений плана.
+	 *
+	 * @return бюджет памяти или {@code null}, если бюджет не установлен.
+	 */
+	@Nullable
+	public MemoryBudget getMemoryBudget()
+	{
+		return this.memoryBudget;
+	}
+
+	/**
+	 * Проверяет, просматривается ли файл или директория при сканировании корневой директории.
+	 *
+	 * @param root корневая директория.
+	 * @param file файл или директория внутри {@code root}.
+	 * @return {@code true}, если файл добавляется или директория просматривается при сканировании, иначе {@code false}.
+	 * @throws IOException если атрибуты {@code file} не удалось прочитать.
+	 */
+	boolean canScan(@NotNull final File root, @NotNull final File file) throws IOException
+	{
+		return this.fileExpert.canScan(root, file);
+	}
+
+	/**
+	 * Выполняет замену в файлах и директориях.
+	 * <p>
+	 * Директории сканируются при выполнении замены.
+	 * Файлы, в которых содержимое не изменилось, не перезаписываются.
+	 * Ошибка обработки отдельного файла, в том числе отсутствующего, не прерывает замену,
+	 * а учитывается в отчёте.
+	 *
+	 * @param files файлы и директории.
+	 * @return отчёт о замене.
+	 * @throws NullPointerException если в качестве {@code files} передан {@code null}.
+	 */
+	@NotNull
+	public Report replace(@NotNull final Collection<@NotNull File> files)
+	{
+		return this.replace(files, CancellationToken.NONE);
+	}
+
+	/**
+	 * Выполняет замену в файлах и директориях с возможностью отмены.
+	 * <p>
+	 * Одновременные выполнения плана сбрасывают на диск только свои записанные файлы,
+	 * а записи журнала обработанных файлов объединяются с записями других выполнений.
+	 *
+	 * @param files файлы и директории.
+	 * @param token признак отмены замены.
+	 * @return отчёт о замене.
+	 * @throws NullPointerException если в качестве {@code files} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code token} передан {@code null}.
+	 * @see Replaceable#replace(CancellationToken)
+	 */
+	@NotNull
+	public Report replace(@NotNull final Collection<@NotNull File> files, @NotNull final CancellationToken token)
+	{
+		Objects.requireNonNull(files);
+		Objects.requireNonNull(token);
+
+		File manifestFile = this.manifest;
+		Run run = this.createRun(files, token, manifestFile, -1);
+		List<File> changedFiles;
+		Map<File, IOException> failedFiles;
+
+		try
+		{
+			changedFiles = this.processFiles(run);
+		}
+		finally
+		{
+			failedFiles = this.flush(run);
+
+			if (run.manifest != null) {
+				this.saveManifest(run.manifest, manifestFile);
+			}
+
+			this.logSkipped(run);
+		}
+
+		if (!failedFiles.isEmpty())
+		{
+			changedFiles = changedFiles.stream()
+									   .filter(file -> !failedFiles.containsKey(file))
+									   .toList();
+		}
+
+		return new Report(changedFiles, run.statistics, run.ruleList, token.isCancelled());
+	}
+
+	/**
+	 * Ищет файлы, в которых находит совпадение хотя бы одно правило.
+	 *
+	 * @param files файлы и директории.
+	 * @return коллекцию файлов с совпадениями.
+	 * @throws NullPointerException если в качестве {@code files} передан {@code null}.
+	 * @see Replaceable#search()
+	 */
+	@NotNull
+	public List<@NotNull File> search(@NotNull final Collection<@NotNull File> files)
+	{
+		Objects.requireNonNull(files);
+
+		return List.copyOf(this.processFiles(this.createRun(files, CancellationToken.NONE, null, 0)));
+	}
+
+	/**
+	 * Ищет первые совпадения правил в файлах.
+	 *
+	 * @param files файлы и директории.
+	 * @param limit наибольшее количество совпадений, возвращаемых для каждого файла.
+	 * @return неизменяемое отображение файлов с совпадениями в их совпадения,
+	 * упорядоченные по расположению в файле.
+	 * @throws NullPointerException если в качестве {@code files} передан {@code null}.
+	 * @throws IllegalArgumentException если {@code limit} меньше {@code 1}.
+	 * @see Replaceable#search(int)
+	 */
+	@NotNull
+	public Map<@NotNull File, @NotNull List<@NotNull Match>> search(@NotNull final Collection<@NotNull File> files,
+																	 final int limit)
+	{
+		Objects.requireNonNull(files);
+
+		if (limit < 1) {
+			throw new IllegalArgumentException(String.format(
+				this.localeExceptions.getString("40010"),
+				limit
+			));
+		}
+
+		Run run = this.createRun(files, CancellationToken.NONE, null, limit);
+		Map<File, List<Match>> foundFiles = new LinkedHashMap<>();
+
+		for (File file : this.processFiles(run)) {
+			foundFiles.put(file, run.matches.get(file));
+		}
+
+		return Collections.unmodifiableMap(foundFiles);
+	}
+
+	/**
+	 * Создаёт состояние выполнения правил.
+	 *
+	 * @param files файлы и директории.
+	 * @param token признак отмены.
+	 * @param manifestFile файл журнала обработанных файлов или {@code null}, если журнал не используется.
+	 * @param limit {@code -1} для замены, {@code 0} для поиска файлов с совпадениями
+	 * или наибольшее количество совпадений, возвращаемых для каждого файла.
+	 * @return состояние выполнения.
+	 */
+	@NotNull
+	private Run createRun(@NotNull final Collection<@NotNull File> files,
+						  @NotNull final CancellationToken token,
+						  @Nullable final File manifestFile,
+						  final int limit)
+	{
+		return new Run(
+			List.copyOf(files),
+			new FileExpert(this.fileExpert),
+			this.ruleList,
+			this.rules,
+			this.prefilter,
+			manifestFile == null ? null : Manifest.load(manifestFile, this.rules.getHash()),
+			new Statistics(this.ruleList.size()),
+			this.listener,
+			token,
+			limit
+		);
+	}
+
+	/**
+	 * Обрабатывает все файлы.
+	 *
+	 * @param run состояние выполнения.
+	 * @return коллекцию изменённых файлов или файлов с совпадениями при поиске.
+	 */
+	@NotNull
+	private List<@NotNull File> processFiles(@NotNull final Run run)
+	{
+		return this.pipelined ? this.processPipelined(run) : this.processScanned(run);
+	}
+
+	/**
+	 * Обрабатывает файлы после сканирования всех директорий.
+	 * <p>
+	 * Отменённая замена прекращает сканирование и пропускает оставшиеся файлы.
+	 *
+	 * @param run состояние выполнения.
+	 * @return коллекцию изменённых файлов или файлов с совпадениями при поиске.
+	 */
+	@NotNull
+	private List<@NotNull File> processScanned(@NotNull final Run run)
+	{
+		List<File> files = this.findFiles(run);
+
+		if (this.parallelism == 1)
+		{
+			List<File> changedFiles = new ArrayList<>();
+
+			for (File file : files)
+			{
+				if (this.replaceFile(file, run)) {
+					changedFiles.add(file);
+				}
+			}
+
+			return Collections.unmodifiableList(changedFiles);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+		try
+		{
+			return pool.submit(
+				() -> files.parallelStream()
+						   .filter(file -> this.replaceFile(file, run))
+						   .toList()
+			).join();
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Возвращает все файлы для замены, сканируя добавленные директории.
+	 *
+	 * @param run состояние замены.
+	 * @return коллекцию файлов.
+	 */
+	@NotNull
+	private List<@NotNull File> findFiles(@NotNull final Run run)
+	{
+		Queue<File> foundFiles = new ConcurrentLinkedQueue<>();
+		long start = System.nanoTime();
+
+		try
+		{
+			for (File file : run.targets)
+			{
+				if (file.isDirectory())
+				{
+					run.fileExpert.scanDirectory(file, foundFile -> {
+						ReplacementPlan.discover(run, foundFile);
+						foundFiles.add(foundFile);
+					});
+				}
+				else
+				{
+					ReplacementPlan.discover(run, file);
+					foundFiles.add(file);
+				}
+			}
+		}
+		catch (CancellationException exception)
+		{
+			foundFiles.clear();
+		}
+
+		run.statistics.addScanTime(System.nanoTime() - start);
+
+		return new ArrayList<>(foundFiles);
+	}
+
+	/**
+	 * Уведомляет получателя событий об обнаружении файла.
+	 *
+	 * @param run состояние замены.
+	 * @param file файл.
+	 * @throws CancellationException если замена отменена.
+	 */
+	private static void discover(@NotNull final Run run, @NotNull final File file)
+	{
+		if (run.token.isCancelled()) {
+			throw new CancellationException();
+		}
+
+		if (run.listener != null) {
+			run.listener.onFileDiscovered(file);
+		}
+	}
+
+	/**
+	 * Обрабатывает файлы одновременно со сканированием директорий.
+	 * <p>
+	 * Отдельный поток сканирует директории и помещает найденные файлы в ограниченную очередь,
+	 * из которой их забирают потоки замены. Если очередь заполнена, сканирование
+	 * приостанавливается, поэтому объём памяти не зависит от количества файлов.
+	 *
+	 * @param run состояние выполнения.
+	 * @return коллекцию изменённых файлов или файлов с совпадениями в порядке окончания обработки.
+	 */
+	@NotNull
+	private List<@NotNull File> processPipelined(@NotNull final Run run)
+	{
+		List<File> targets = run.targets;
+		BlockingQueue<File> queue = new ArrayBlockingQueue<>(this.pipelineCapacity);
+		Queue<File> changedFiles = new ConcurrentLinkedQueue<>();
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		int workers = this.parallelism;
+
+		Thread scanner = new Thread(() -> {
+			long start = System.nanoTime();
+
+			try
+			{
+				for (File target : targets)
+				{
+					if (target.isDirectory())
+					{
+						run.fileExpert.scanDirectory(target, file -> {
+							ReplacementPlan.discover(run, file);
+							ReplacementPlan.put(queue, file);
+						});
+					}
+					else
+					{
+						ReplacementPlan.discover(run, target);
+						ReplacementPlan.put(queue, target);
+					}
+				}
+			}
+			catch (CancellationException exception)
+			{
+				// Сканирование прекращено, файлы из очереди пропускаются потоками замены.
+			}
+			catch (RuntimeException exception)
+			{
+				failure.compareAndSet(null, exception);
+			}
+			finally
+			{
+				run.statistics.addScanTime(System.nanoTime() - start);
+
+				for (int worker = 0; worker < workers; worker++) {
+					ReplacementPlan.put(queue, END_OF_QUEUE);
+				}
+			}
+		}, "replaceinfiles-scanner");
+
+		Runnable worker = () -> {
+			File file;
+
+			while ((file = ReplacementPlan.take(queue)) != END_OF_QUEUE)
+			{
+				if (failure.get() != null) {
+					continue;
+				}
+
+				try
+				{
+					if (this.replaceFile(file, run)) {
+						changedFiles.add(file);
+					}
+				}
+				catch (RuntimeException exception)
+				{
+					failure.compareAndSet(null, exception);
+				}
+			}
+		};
+
+		scanner.setDaemon(true);
+		scanner.start();
+
+		if (workers == 1)
+		{
+			worker.run();
+		}
+		else
+		{
+			ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+			for (int index = 0; index < workers; index++) {
+				executor.execute(worker);
+			}
+
+			executor.shutdown();
+
+			ReplacementPlan.await(() -> executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS));
+		}
+
+		ReplacementPlan.await(() -> {
+			scanner.join();
+
+			return true;
+		});
+
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+
+		return List.copyOf(changedFiles);
+	}
+
+	/**
+	 * Помещает файл в очередь, ожидая освобождения места.
+	 * <p>
+	 * Прерывание ожидания не отменяет помещение, а восстанавливает признак прерывания потока,
+	 * чтобы очередь всегда была завершена.
+	 *
+	 * @param queue очередь.
+	 * @param file файл.
+	 */
+	private static void put(@NotNull final BlockingQueue<@NotNull File> queue, @NotNull final File file)
+	{
+		ReplacementPlan.await(() -> {
+			queue.put(file);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Забирает файл из очереди, ожидая его появления.
+	 *
+	 * @param queue очередь.
+	 * @return файл.
+	 */
+	@NotNull
+	private static File take(@NotNull final BlockingQueue<@NotNull File> queue)
+	{
+		File[] file = new File[1];
+
+		ReplacementPlan.await(() -> {
+			file[0] = queue.take();
+
+			return true;
+		});
+
+		return file[0];
+	}
+
+	/**
+	 * Выполняет ожидание, повторяя его при прерывании.
+	 * <p>
+	 * Признак прерывания потока восстанавливается по окончании ожидания.
+	 *
+	 * @param action ожидание.
+	 */
+	private static void await(@NotNull final Callable<@NotNull Boolean> action)
+	{
+		boolean interrupted = false;
+
+		try
+		{
+			while (true)
+			{
+				try
+				{
+					action.call();
+
+					return;
+				}
+				catch (InterruptedException exception)
+				{
+					interrupted = true;
+				}
+				catch (RuntimeException exception)
+				{
+					throw exception;
+				}
+				catch (Exception exception)
+				{
+					throw new IllegalStateException(exception);
+				}
+			}
+		}
+		finally
+		{
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Сбрасывает на диск данные записанных файлов.
+	 * <p>
+	 * Файлы, которые не удалось сохранить, учитываются в отчёте как файлы с ошибками.
+	 *
+	 * @param run состояние замены.
+	 * @return файлы, которые не удалось сохранить, и ошибки.
+	 */
+	@NotNull
+	private Map<@NotNull File, @NotNull IOException> flush(@NotNull final Run run)
+	{
+		Map<File, IOException> failedFiles = run.fileExpert.flush();
+
+		failedFiles.forEach((file, exception) -> {
+			LOG.error(String.format(
+				this.localeLogs.getString("00012"),
+				file.getPath()
+			), exception);
+
+			run.statistics.addFailure(file, exception);
+
+			if (run.listener != null) {
+				run.listener.onFileFailed(file, exception);
+			}
+		});
+
+		return failedFiles;
+	}
+
+	/**
+	 * Сохраняет журнал обработанных файлов, объединяя его с журналом в файле.
+	 *
+	 * @param manifest журнал.
+	 * @param file файл журнала.
+	 */
+	private void saveManifest(@NotNull final Manifest manifest, @NotNull final File file)
+	{
+		try
+		{
+			manifest.merge(file);
+		}
+		catch (IOException exception)
+		{
+			LOG.error(String.format(
+				this.localeLogs.getString("00014"),
+				file.getPath()
+			), exception);
+		}
+	}
+
+	/**
+	 * Выполняет замену в файле и уведомляет получателя событий.
+	 * <p>
+	 * Если замена отменена, файл не обрабатывается.
+	 *
+	 * @param file файл.
+	 * @param run состояние замены.
+	 * @return {@code true}, если файл изменён, иначе {@code false}.
+	 */
+	private boolean replaceFile(@NotNull final File file, @NotNull final Run run)
+	{
+		if (run.token.isCancelled()) {
+			return false;
+		}
+
+		ReplacementListener listener = run.listener;
+		Progress progress = run.progress.get();
+		long start = System.nanoTime();
+
+		progress.reset();
+
+		if (listener != null) {
+			listener.onFileStarted(file);
+		}
+
+		boolean changed = run.limit < 0 ? this.processFile(file, run, progress) : this.searchFile(file, run, progress);
+
+		if (listener != null && !progress.failed)
+		{
+			listener.onFileFinished(
+				file, changed, progress.bytesRead, progress.bytesWritten, System.nanoTime() - start
+			);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Выполняет замену в файле.
+	 * <p>
+	 * Файл перезаписывается, только если его содержимое изменилось.
+	 * Файл, который по журналу не изменялся с предыдущей замены, и двоичный файл пропускаются.
+	 * Файл, не содержащий обязательных литералов правил, пропускается без декодирования текста.
+	 * Если все правила выполняются над байтами UTF-8, текст не декодируется в строку.
+	 * Если установлен бюджет памяти, перед чтением файла резервируется оценка необходимой памяти,
+	 * а файл, для которого бюджета недостаточно, обрабатывается потоково.
+	 * Ошибка обработки файла не прерывает замену, а учитывается в отчёте.
+	 * Метод не изменяет состояние объекта и может вызываться из нескольких потоков.
+	 *
+	 * @param file файл.
+	 * @param run состояние замены.
+	 * @param progress счётчики обработки файла.
+	 * @return {@code true}, если файл изменён, иначе {@code false}.
+	 */
+	private boolean processFile(@NotNull final File file, @NotNull final Run run, @NotNull final Progress progress)
+	{
+		RuleChain rules = run.rules;
+		Manifest manifest = run.manifest;
+		Statistics statistics = run.statistics;
+		BasicFileAttributes attributes;
+
+		statistics.addScanned();
+
+		try
+		{
+			attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00004", exception);
+
+			return false;
+		}
+
+		if (this.isProcessed(file, run, attributes)) {
+			return false;
+		}
+
+		if (manifest != null && manifest.isUnchanged(file, attributes))
+		{
+			this.debug("00015", file.getPath());
+
+			statistics.addSkipped();
+
+			return false;
+		}
+
+		if (run.fileExpert.isArchive(file)) {
+			return this.replaceArchive(file, run, progress, attributes);
+		}
+
+		try
+		{
+			if (run.fileExpert.isBinary(file))
+			{
+				statistics.addBinary();
+
+				if (manifest != null) {
+					manifest.put(file, attributes, 0);
+				}
+
+				return false;
+			}
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00004", exception);
+
+			return false;
+		}
+
+		if (run.prefilter.isEnabled())
+		{
+			try
+			{
+				if (!run.prefilter.mayMatch(file.toPath()))
+				{
+					this.logReplaced(file, false);
+					statistics.addSkipped();
+
+					if (manifest != null) {
+						manifest.put(file, attributes, 0);
+					}
+
+					return false;
+				}
+			}
+			catch (IOException exception)
+			{
+				this.fail(run, progress, file, "00004", exception);
+
+				return false;
+			}
+		}
+
+		MemoryBudget budget = this.memoryBudget;
+		boolean split = attributes.size() >= this.splitThreshold;
+		boolean streaming = split || attributes.size() >= this.streamingThreshold;
+		long reserved = 0;
+
+		if (budget != null)
+		{
+			if (!streaming && attributes.size() > budget.getCapacity() / MEMORY_FACTOR)
+			{
+				this.debug("00021", file.getPath());
+
+				streaming = true;
+			}
+
+			reserved = streaming
+				? (split ? this.getSplitFootprint() : this.getStreamingFootprint(rules))
+				: attributes.size() * MEMORY_FACTOR;
+
+			ReplacementPlan.acquire(budget, reserved);
+		}
+
+		try
+		{
+			return this.replaceContent(file, run, progress, attributes, streaming, split);
+		}
+		finally
+		{
+			if (budget != null) {
+				budget.release(reserved);
+			}
+		}
+	}
+
+	/**
+	 * Выполняет замену в текстовых файлах архива.
+	 * <p>
+	 * Файлы архива обрабатываются потоково по одному, а при установленном бюджете памяти
+	 * резервируется оценка памяти для потоковой обработки.
+	 *
+	 * @param file архив.
+	 * @param run состояние замены.
+	 * @param progress счётчики обработки файла.
+	 * @param attributes атрибуты архива.
+	 * @return {@code true}, если архив изменён, иначе {@code false}.
+	 */
+	private boolean replaceArchive(@NotNull final File file,
+								   @NotNull final Run run,
+								   @NotNull final Progress progress,
+								   @NotNull final BasicFileAttributes attributes)
+	{
+		RuleChain rules = run.rules;
+		Manifest manifest = run.manifest;
+		Statistics statistics = run.statistics;
+		MemoryBudget budget = this.memoryBudget;
+		long reserved = 0;
+
+		if (budget != null)
+		{
+			reserved = this.getStreamingFootprint(rules);
+
+			ReplacementPlan.acquire(budget, reserved);
+		}
+
+		try
+		{
+			IoTimer timer = new IoTimer();
+			long start = System.nanoTime();
+			boolean changed = run.fileExpert.rewriteArchive(
+				file,
+				entry -> timer.wrap((reader, writer) -> rules.apply(
+					reader, writer, entry, this.streamingWindow, this.streamingOverlap, statistics
+				))
+			);
+
+			long time = System.nanoTime() - start;
+
+			statistics.addMatchTime(time - timer.getReadTime() - timer.getWriteTime());
+			progress.read(timer.getReadTime(), attributes.size());
+			progress.write(timer.getWriteTime(), changed ? file.length() : 0);
+
+			this.logReplaced(file, changed);
+
+			if (manifest != null) {
+				manifest.put(file, changed ? null : attributes, 0);
+			}
+
+			return changed;
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00012", exception);
+
+			return false;
+		}
+		finally
+		{
+			if (budget != null) {
+				budget.release(reserved);
+			}
+		}
+	}
+
+	/**
+	 * Выполняет замену в содержимом файла.
+	 *
+	 * @param file файл.
+	 * @param run состояние замены.
+	 * @param progress счётчики обработки файла.
+	 * @param attributes атрибуты файла.
+	 * @param streaming {@code true}, если файл необходимо обработать потоково, иначе {@code false}.
+	 * @param split {@code true}, если файл необходимо обработать частями по строкам, иначе {@code false}.
+	 * @return {@code true}, если файл изменён, иначе {@code false}.
+	 */
+	private boolean replaceContent(@NotNull final File file,
+								   @NotNull final Run run,
+								   @NotNull final Progress progress,
+								   @NotNull final BasicFileAttributes attributes,
+								   final boolean streaming,
+								   final boolean split)
+	{
+		RuleChain rules = run.rules;
+		Manifest manifest = run.manifest;
+		Statistics statistics = run.statistics;
+
+		if (streaming)
+		{
+			try
+			{
+				IoTimer timer = new IoTimer();
+				long start = System.nanoTime();
+				boolean changed = run.fileExpert.rewriteFile(
+					file,
+					timer.wrap(
+						split
+							? (reader, writer) -> this.applySplit(reader, writer, file, rules, statistics)
+							: (reader, writer) -> rules.apply(
+								reader, writer, file, this.streamingWindow, this.streamingOverlap, statistics
+							)
+					)
+				);
+
+				long time = System.nanoTime() - start;
+
+				statistics.addMatchTime(time - timer.getReadTime() - timer.getWriteTime());
+				progress.read(timer.getReadTime(), attributes.size());
+				progress.write(timer.getWriteTime(), changed ? file.length() : 0);
+
+				this.logReplaced(file, changed);
+
+				if (manifest != null) {
+					manifest.put(file, changed ? null : attributes, 0);
+				}
+
+				return changed;
+			}
+			catch (IOException exception)
+			{
+				this.fail(run, progress, file, "00012", exception);
+
+				return false;
+			}
+		}
+
+		ByteChain byteChain = rules.getByteChain();
+
+		if (byteChain != null && StandardCharsets.UTF_8.equals(Charset.defaultCharset())) {
+			return this.replaceBytes(file, byteChain, run, progress, attributes);
+		}
+
+		if (this.mapped)
+		{
+			long start = System.nanoTime();
+
+			try (MappedText text = run.fileExpert.mapFile(file))
+			{
+				long mapped = System.nanoTime();
+
+				progress.read(mapped - start, attributes.size());
+
+				boolean found = rules.find(text);
+
+				statistics.addMatchTime(System.nanoTime() - mapped);
+
+				if (!found)
+				{
+					this.logReplaced(file, false);
+
+					if (manifest != null) {
+						manifest.put(file, attributes, Manifest.hash(text));
+					}
+
+					return false;
+				}
+			}
+			catch (IOException exception)
+			{
+				this.fail(run, progress, file, "00004", exception);
+
+				return false;
+			}
+		}
+
+		String value;
+		long start = System.nanoTime();
+
+		try
+		{
+			value = run.fileExpert.readFile(file);
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00004", exception);
+
+			return false;
+		}
+
+		progress.read(System.nanoTime() - start, attributes.size());
+
+		if (manifest != null)
+		{
+			long hash = Manifest.hash(value);
+
+			if (manifest.isSameContent(file, hash))
+			{
+				this.logReplaced(file, false);
+				manifest.put(file, attributes, hash);
+
+				return false;
+			}
+		}
+
+		start = System.nanoTime();
+
+		String result = rules.apply(value, file, statistics);
+		boolean changed = !result.equals(value);
+
+		statistics.addMatchTime(System.nanoTime() - start);
+
+		this.logReplaced(file, changed);
+
+		if (changed)
+		{
+			try
+			{
+				byte[] bytes = result.getBytes();
+
+				start = System.nanoTime();
+
+				run.fileExpert.writeFile(file, bytes);
+
+				progress.write(System.nanoTime() - start, bytes.length);
+			}
+			catch (IOException exception)
+			{
+				this.fail(run, progress, file, "00012", exception);
+
+				return false;
+			}
+		}
+
+		if (manifest != null) {
+			manifest.put(file, changed ? null : attributes, Manifest.hash(result));
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Выполняет замену в частях текста, разделённых по строкам, в нескольких потоках.
+	 * <p>
+	 * Текст читается частями не короче {@link #splitChunk} символов, каждая из которых
+	 * заканчивается символом {@code \n} или концом текста. Части обрабатываются параллельно,
+	 * а результаты записываются в исходном порядке. Одновременно обрабатывается не больше
+	 * двух частей на поток, поэтому объём памяти не зависит от размера файла.
+	 * Все правила ограничены одной строкой, поэтому результат совпадает с заменой во всём тексте.
+	 *
+	 * @param reader источник текста.
+	 * @param writer приёмник текста после замены.
+	 * @param file файл.
+	 * @param rules цепочка правил замены.
+	 * @param statistics счётчики замены.
+	 * @return {@code true}, если текст изменён, иначе {@code false}.
+	 * @throws IOException если произошла ошибка ввода-вывода или ожидание прервано.
+	 */
+	private boolean applySplit(@NotNull final Reader reader,
+							   @NotNull final Writer writer,
+							   @NotNull final File file,
+							   @NotNull final RuleChain rules,
+							   @NotNull final Statistics statistics)
+		throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+		Deque<String> chunks = new ArrayDeque<>();
+		Deque<Future<String>> results = new ArrayDeque<>();
+		StringBuilder pending = new StringBuilder();
+		char[] buffer = new char[64 * 1024];
+		boolean changed = false;
+		int end = 0;
+		int count;
+
+		try
+		{
+			while ((count = reader.read(buffer)) != -1)
+			{
+				pending.append(buffer, 0, count);
+
+				for (int index = count - 1; index >= 0; index--)
+				{
+					if (buffer[index] == '\n')
+					{
+						end = pending.length() - count + index + 1;
+
+						break;
+					}
+				}
+
+				if (pending.length() < this.splitChunk || end == 0) {
+					continue;
+				}
+
+				String chunk = pending.substring(0, end);
+
+				pending.delete(0, end);
+				end = 0;
+
+				if (results.size() == 2 * this.parallelism) {
+					changed |= ReplacementPlan.writeChunk(writer, chunks.poll(), results.poll());
+				}
+
+				chunks.add(chunk);
+				results.add(executor.submit(() -> rules.apply(chunk, file, statistics)));
+			}
+
+			if (pending.length() > 0)
+			{
+				String chunk = pending.toString();
+
+				chunks.add(chunk);
+				results.add(executor.submit(() -> rules.apply(chunk, file, statistics)));
+			}
+
+			while (!results.isEmpty()) {
+				changed |= ReplacementPlan.writeChunk(writer, chunks.poll(), results.poll());
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Записывает результат замены в части текста, ожидая окончания замены.
+	 *
+	 * @param writer приёмник текста.
+	 * @param chunk исходная часть текста.
+	 * @param result результат замены в части текста.
+	 * @return {@code true}, если часть текста изменена, иначе {@code false}.
+	 * @throws IOException если произошла ошибка записи или ожидание прервано.
+	 */
+	private static boolean writeChunk(@NotNull final Writer writer,
+									  @NotNull final String chunk,
+									  @NotNull final Future<@NotNull String> result)
+		throws IOException
+	{
+		String value;
+
+		try
+		{
+			value = result.get();
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException exception)
+		{
+			if (exception.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+
+			throw new IllegalStateException(exception.getCause());
+		}
+
+		writer.write(value);
+
+		return !value.equals(chunk);
+	}
+
+	/**
+	 * Возвращает оценку памяти, необходимой для замены частями по строкам.
+	 * <p>
+	 * Одновременно хранятся до двух частей на поток, их результаты и читаемая часть.
+	 *
+	 * @return объём памяти в байтах.
+	 */
+	private long getSplitFootprint()
+	{
+		return 8L * this.splitChunk * (2L * this.parallelism + 1);
+	}
+
+	/**
+	 * Возвращает оценку памяти, необходимой для потоковой замены.
+	 * <p>
+	 * Каждый проход хранит до двух окон с перекрытием и результат их обработки.
+	 *
+	 * @param rules цепочка правил замены.
+	 * @return объём памяти в байтах.
+	 */
+	private long getStreamingFootprint(@NotNull final RuleChain rules)
+	{
+		long window = (long) this.streamingWindow + this.streamingOverlap;
+
+		return 2 * this.streamingWindow + 8 * window * Math.max(1, rules.getPassCount());
+	}
+
+	/**
+	 * Резервирует память в бюджете, ожидая её освобождения.
+	 *
+	 * @param budget бюджет памяти.
+	 * @param bytes объём памяти в байтах.
+	 */
+	private static void acquire(@NotNull final MemoryBudget budget, final long bytes)
+	{
+		ReplacementPlan.await(() -> {
+			budget.acquire(bytes);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Ищет совпадения правил в файле без его изменения.
+	 * <p>
+	 * Двоичный файл и файл, не содержащий обязательных литералов правил, пропускаются.
+	 * При поиске файлов с совпадениями файл читается окнами до первого совпадения.
+	 * При поиске совпадений со смещениями возвращаются первые совпадения всех правил
+	 * в порядке их расположения в исходном тексте файла.
+	 *
+	 * @param file файл.
+	 * @param run состояние выполнения.
+	 * @param progress счётчики обработки файла.
+	 * @return {@code true}, если найдено хотя бы одно совпадение, иначе {@code false}.
+	 */
+	private boolean searchFile(@NotNull final File file, @NotNull final Run run, @NotNull final Progress progress)
+	{
+		Statistics statistics = run.statistics;
+		BasicFileAttributes attributes;
+
+		statistics.addScanned();
+
+		try
+		{
+			attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+
+			if (this.isProcessed(file, run, attributes)) {
+				return false;
+			}
+
+			if (run.fileExpert.isBinary(file))
+			{
+				statistics.addBinary();
+
+				return false;
+			}
+
+			if (run.prefilter.isEnabled() && !run.prefilter.mayMatch(file.toPath()))
+			{
+				this.debug("00011", file.getPath());
+				statistics.addSkipped();
+
+				return false;
+			}
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00004", exception);
+
+			return false;
+		}
+
+		try
+		{
+			IoTimer timer = new IoTimer();
+			long start = System.nanoTime();
+			long readTime;
+			boolean found;
+
+			if (run.limit == 0)
+			{
+				int window = (int) Math.min(this.streamingWindow, Math.max(1, attributes.size()));
+
+				try (Reader reader = timer.wrap(run.fileExpert.openFile(file))) {
+					found = run.rules.find(reader, window, this.streamingOverlap);
+				}
+
+				readTime = timer.getReadTime();
+			}
+			else
+			{
+				List<Match> matches;
+				MemoryBudget budget = this.memoryBudget;
+				long reserved = attributes.size() * SEARCH_MEMORY_FACTOR;
+
+				if (this.mapped || budget != null && reserved > budget.getCapacity())
+				{
+					long read = System.nanoTime();
+
+					try (MappedText text = run.fileExpert.mapFile(file))
+					{
+						readTime = System.nanoTime() - read;
+						matches = ReplacementPlan.findMatches(text, run.ruleList, run.limit);
+					}
+				}
+				else if (budget != null)
+				{
+					ReplacementPlan.acquire(budget, reserved);
+
+					try
+					{
+						long read = System.nanoTime();
+						String value = run.fileExpert.readFile(file);
+
+						readTime = System.nanoTime() - read;
+						matches = ReplacementPlan.findMatches(value, run.ruleList, run.limit);
+					}
+					finally
+					{
+						budget.release(reserved);
+					}
+				}
+				else
+				{
+					long read = System.nanoTime();
+					String value = run.fileExpert.readFile(file);
+
+					readTime = System.nanoTime() - read;
+					matches = ReplacementPlan.findMatches(value, run.ruleList, run.limit);
+				}
+
+				found = !matches.isEmpty();
+
+				if (found) {
+					run.matches.put(file, matches);
+				}
+			}
+
+			statistics.addMatchTime(System.nanoTime() - start - readTime);
+			progress.read(readTime, attributes.size());
+
+			this.debug(found ? "00020" : "00011", file.getPath());
+
+			return found;
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00004", exception);
+
+			return false;
+		}
+	}
+
+	/**
+	 * Проверяет, обработан ли уже файл по другому пути.
+	 * <p>
+	 * Файл определяется ключом файловой системы, поэтому жёсткие ссылки, символьные ссылки
+	 * и пересекающиеся директории не приводят к повторной обработке одного файла.
+	 *
+	 * @param file файл.
+	 * @param run состояние выполнения.
+	 * @param attributes атрибуты файла.
+	 * @return {@code true}, если файл уже обработан, иначе {@code false}.
+	 */
+	private boolean isProcessed(@NotNull final File file,
+								@NotNull final Run run,
+								@NotNull final BasicFileAttributes attributes)
+	{
+		Object key = attributes.fileKey();
+
+		if (key == null) {
+			key = file.getAbsoluteFile().toPath().normalize();
+		}
+
+		if (run.processed.add(key)) {
+			return false;
+		}
+
+		this.debug("00023", file.getPath());
+		run.statistics.addSkipped();
+
+		return true;
+	}
+
+	/**
+	 * Возвращает первые совпадения правил в тексте.
+	 *
+	 * @param text текст.
+	 * @param rules правила.
+	 * @param limit наибольшее количество совпадений.
+	 * @return неизменяемую коллекцию совпадений в порядке их расположения в тексте.
+	 */
+	@NotNull
+	private static List<@NotNull Match> findMatches(@NotNull final CharSequence text,
+													@NotNull final List<@NotNull Rule> rules,
+													final int limit)
+	{
+		List<Match> matches = new ArrayList<>();
+
+		for (Rule rule : rules)
+		{
+			Matcher matcher = rule.getPattern().matcher(text);
+
+			for (int count = 0; count < limit && matcher.find(); count++) {
+				matches.add(new Match(rule.getRegexp(), matcher.start(), matcher.end(), matcher.group()));
+			}
+		}
+
+		matches.sort(Comparator.comparingInt(Match::getStart));
+
+		return List.copyOf(matches.size() > limit ? matches.subList(0, limit) : matches);
+	}
+
+	/**
+	 * Выполняет замену в байтах файла без декодирования текста.
+	 *
+	 * @param file файл.
+	 * @param byteChain цепочка правил замены над байтами.
+	 * @param run состояние замены.
+	 * @param progress счётчики обработки файла.
+	 * @param attributes атрибуты файла.
+	 * @return {@code true}, если файл изменён, иначе {@code false}.
+	 */
+	private boolean replaceBytes(@NotNull final File file,
+								 @NotNull final ByteChain byteChain,
+								 @NotNull final Run run,
+								 @NotNull final Progress progress,
+								 @NotNull final BasicFileAttributes attributes)
+	{
+		Manifest manifest = run.manifest;
+		Statistics statistics = run.statistics;
+		byte[] value;
+		long start = System.nanoTime();
+
+		try
+		{
+			value = run.fileExpert.readBytes(file);
+		}
+		catch (IOException exception)
+		{
+			this.fail(run, progress, file, "00004", exception);
+
+			return false;
+		}
+
+		progress.read(System.nanoTime() - start, value.length);
+
+		if (manifest != null)
+		{
+			long hash = Manifest.hash(value);
+
+			if (manifest.isSameContent(file, hash))
+			{
+				this.logReplaced(file, false);
+				manifest.put(file, attributes, hash);
+
+				return false;
+			}
+		}
+
+		start = System.nanoTime();
+
+		byte[] result = byteChain.apply(value, statistics);
+		boolean changed = result != value;
+
+		statistics.addMatchTime(System.nanoTime() - start);
+
+		this.logReplaced(file, changed);
+
+		if (changed)
+		{
+			try
+			{
+				start = System.nanoTime();
+
+				run.fileExpert.writeFile(file, result);
+
+				progress.write(System.nanoTime() - start, result.length);
+			}
+			catch (IOException exception)
+			{
+				this.fail(run, progress, file, "00012", exception);
+
+				return false;
+			}
+		}
+
+		if (manifest != null) {
+			manifest.put(file, changed ? null : attributes, Manifest.hash(result));
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Логирует количество пропущенных файлов.
+	 *
+	 * @param run состояние замены.
+	 */
+	private void logSkipped(@NotNull final Run run)
+	{
+		long binaryFiles = run.statistics.getBinaryFiles();
+
+		if (binaryFiles > 0)
+		{
+			LOG.info(String.format(
+				this.localeLogs.getString("00017"),
+				binaryFiles
+			));
+		}
+	}
+
+	/**
+	 * Логирует результат замены в файле.
+	 *
+	 * @param file файл.
+	 * @param changed {@code true}, если файл изменён, иначе {@code false}.
+	 */
+	private void logReplaced(@NotNull final File file, final boolean changed)
+	{
+		this.debug(changed ? "00003" : "00011", file.getPath());
+	}
+
+	/**
+	 * Логирует отладочное сообщение.
+	 * <p>
+	 * Сообщение форматируется, только если отладочный уровень логирования включён.
+	 *
+	 * @param message ключ сообщения журнала.
+	 * @param argument аргумент сообщения.
+	 */
+	private void debug(@NotNull final String message, @NotNull final Object argument)
+	{
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(String.format(
+				this.localeLogs.getString(message),
+				argument
+			));
+		}
+	}
+
+	/**
+	 * Логирует ошибку обработки файла и учитывает её в отчёте.
+	 *
+	 * @param run состояние замены.
+	 * @param progress счётчики обработки файла.
+	 * @param file файл.
+	 * @param message ключ сообщения журнала.
+	 * @param exception исключение.
+	 */
+	private void fail(@NotNull final Run run,
+					  @NotNull final Progress progress,
+					  @NotNull final File file,
+					  @NotNull final String message,
+					  @NotNull final IOException exception)
+	{
+		LOG.error(String.format(
+			this.localeLogs.getString(message),
+			file.getPath()
+		), exception);
+
+		run.statistics.addFailure(file, exception);
+		progress.failed = true;
+
+		if (run.listener != null) {
+			run.listener.onFileFailed(file, exception);
+		}
+	}
+
+	/**
+	 * Класс состояния одного выполнения замены.
+	 */
+	private static final class Run
+	{
+		/**
+		 * Файлы и директории для замены.
+		 */
+		@NotNull
+		private final List<@NotNull File> targets;
+
+		/**
+		 * Работа с файлами, накапливающая записанные файлы этого выполнения.
+		 */
+		@NotNull
+		private final FileExpert fileExpert;
+
+		/**
+		 * Правила замены в порядке выполнения.
+		 */
+		@NotNull
+		private final List<@NotNull Rule> ruleList;
+
+		/**
+		 * Цепочка правил замены.
+		 */
+		@NotNull
+		private final RuleChain rules;
+
+		/**
+		 * Предварительная проверка файлов.
+		 */
+		@NotNull
+		private final Prefilter prefilter;
+
+		/**
+		 * Журнал обработанных файлов.
+		 */
+		@Nullable
+		private final Manifest manifest;
+
+		/**
+		 * Счётчики замены.
+		 */
+		@NotNull
+		private final Statistics statistics;
+
+		/**
+		 * Получатель событий замены.
+		 */
+		@Nullable
+		private final ReplacementListener listener;
+
+		/**
+		 * Признак отмены замены.
+		 */
+		@NotNull
+		private final CancellationToken token;
+
+		/**
+		 * Счётчики обработки файла для потоков.
+		 */
+		@NotNull
+		private final ThreadLocal<@NotNull Progress> progress;
+
+		/**
+		 * Режим выполнения: {@code -1} для замены, {@code 0} для поиска файлов с совпадениями
+		 * или наибольшее количество совпадений, возвращаемых для каждого файла.
+		 */
+		private final int limit;
+
+		/**
+		 * Найденные совпадения файлов.
+		 */
+		@NotNull
+		private final Map<@NotNull File, @NotNull List<@NotNull Match>> matches;
+
+		/**
+		 * Ключи обработанных файлов.
+		 */
+		@NotNull
+		private final Set<@NotNull Object> processed;
+
+		/**
+		 * Конструктор для {@code Run}.
+		 *
+		 * @param targets файлы и директории для замены.
+		 * @param fileExpert работа с файлами этого выполнения.
+		 * @param ruleList правила замены в порядке выполнения.
+		 * @param rules цепочка правил замены.
+		 * @param prefilter предварительная проверка файлов.
+		 * @param manifest журнал обработанных файлов или {@code null}, если журнал не используется.
+		 * @param statistics счётчики замены.
+		 * @param listener получатель событий замены или {@code null}, если события не передаются.
+		 * @param token признак отмены замены.
+		 * @param limit режим выполнения.
+		 */
+		private Run(@NotNull final List<@NotNull File> targets,
+					@NotNull final FileExpert fileExpert,
+					@NotNull final List<@NotNull Rule> ruleList,
+					@NotNull final RuleChain rules,
+					@NotNull final Prefilter prefilter,
+					@Nullable final Manifest manifest,
+					@NotNull final Statistics statistics,
+					@Nullable final ReplacementListener listener,
+					@NotNull final CancellationToken token,
+					final int limit)
+		{
+			this.targets = targets;
+			this.fileExpert = fileExpert;
+			this.ruleList = ruleList;
+			this.rules = rules;
+			this.prefilter = prefilter;
+			this.manifest = manifest;
+			this.statistics = statistics;
+			this.listener = listener;
+			this.token = token;
+			this.progress = ThreadLocal.withInitial(() -> new Progress(statistics));
+			this.limit = limit;
+			this.matches = new ConcurrentHashMap<>();
+			this.processed = ConcurrentHashMap.newKeySet();
+		}
+	}
+
+	/**
+	 * Класс счётчиков обработки одного файла.
+	 * <p>
+	 * Объект создаётся один раз для каждого потока и сбрасывается перед обработкой файла,
+	 * поэтому подсчёт не создаёт объектов.
+	 */
+	private static final class Progress
+	{
+		/**
+		 * Счётчики замены.
+		 */
+		@NotNull
+		private final Statistics statistics;
+
+		/**
+		 * Количество прочитанных байтов.
+		 */
+		private long bytesRead;
+
+		/**
+		 * Количество записанных байтов.
+		 */
+		private long bytesWritten;
+
+		/**
+		 * Признак ошибки обработки файла.
+		 */
+		private boolean failed;
+
+		/**
+		 * Конструктор для {@code Progress}.
+		 *
+		 * @param statistics счётчики замены.
+		 */
+		private Progress(@NotNull final Statistics statistics)
+		{
+			this.statistics = statistics;
+		}
+
+		/**
+		 * Сбрасывает счётчики перед обработкой файла.
+		 */
+		private void reset()
+		{
+			this.bytesRead = 0;
+			this.bytesWritten = 0;
+			this.failed = false;
+		}
+
+		/**
+		 * Учитывает чтение файла.
+		 *
+		 * @param time время в наносекундах.
+		 * @param bytes количество прочитанных байтов.
+		 */
+		private void read(final long time, final long bytes)
+		{
+			this.statistics.addRead(time, bytes);
+			this.bytesRead += bytes;
+		}
+
+		/**
+		 * Учитывает запись файла.
+		 *
+		 * @param time время в наносекундах.
+		 * @param bytes количество записанных байтов.
+		 */
+		private void write(final long time, final long bytes)
+		{
+			this.statistics.addWrite(time, bytes);
+			this.bytesWritten += bytes;
+		}
+	}
+
+	/**
+	 * Класс построителя плана замены.
+	 * <p>
+	 * Правила компилируются при добавлении, поэтому ошибки в них обнаруживаются сразу.
+	 * Построитель не является потокобезопасным. Построенный план не зависит
+	 * от последующих изменений построителя.
+	 */
+	public static final class Builder
+	{
+		/**
+		 * Локализация.
+		 */
+		@NotNull
+		private Locale locale;
+
+		/**
+		 * Объект для работы с файлами, параметры которого копируются в план.
+		 */
+		@NotNull
+		private final FileExpert fileExpert;
+
+		/**
+		 * Коллекция правил замены.
+		 */
+		@NotNull
+		private final Map<@NotNull String, @NotNull Rule> replacing;
+
+		/**
+		 * Количество потоков замены.
+		 */
+		private int parallelism;
+
+		/**
+		 * Объединение независимых правил в один проход.
+		 */
+		private boolean fused;
+
+		/**
+		 * Размер файла в байтах, начиная с которого замена выполняется потоково.
+		 */
+		private long streamingThreshold;
+
+		/**
+		 * Размер окна потоковой замены в символах.
+		 */
+		private int streamingWindow;
+
+		/**
+		 * Размер перекрытия окон потоковой замены в символах.
+		 */
+		private int streamingOverlap;
+
+		/**
+		 * Размер файла в байтах, начиная с которого файл разбивается на части по строкам.
+		 */
+		private long splitThreshold;
+
+		/**
+		 * Размер части файла в символах при разбиении по строкам.
+		 */
+		private int splitChunk;
+
+		/**
+		 * Проверка наличия совпадений в файле, отображённом в память.
+		 */
+		private boolean mapped;
+
+		/**
+		 * Обработка файлов одновременно со сканированием директорий.
+		 */
+		private boolean pipelined;
+
+		/**
+		 * Ёмкость очереди найденных файлов.
+		 */
+		private int pipelineCapacity;
+
+		/**
+		 * Файл журнала обработанных файлов.
+		 */
+		@Nullable
+		private File manifest;
+
+		/**
+		 * Получатель событий замены.
+		 */
+		@Nullable
+		private ReplacementListener listener;
+
+		/**
+		 * Бюджет памяти для содержимого обрабатываемых файлов.
+		 */
+		@Nullable
+		private MemoryBudget memoryBudget;
+
+		/**
+		 * Локализованные тексты логирования.
+		 */
+		@NotNull
+		private ResourceBundle localeLogs;
+
+		/**
+		 * Локализованные тексты исключений.
+		 */
+		@NotNull
+		private ResourceBundle localeExceptions;
+
+		/**
+		 * Конструктор для {@code Builder}.
+		 */
+		private Builder()
+		{
+			this.locale = new Locale("ru", "RU");
+			this.fileExpert = new FileExpert().setLocale(this.locale);
+			this.replacing = new LinkedHashMap<>();
+			this.parallelism = 1;
+			this.fused = false;
+			this.streamingThreshold = Long.MAX_VALUE;
+			this.streamingWindow = 1024 * 1024;
+			this.streamingOverlap = 64 * 1024;
+			this.splitThreshold = Long.MAX_VALUE;
+			this.splitChunk = 4 * 1024 * 1024;
+			this.mapped = false;
+			this.pipelined = false;
+			this.pipelineCapacity = 1024;
+			this.manifest = null;
+			this.listener = null;
+			this.memoryBudget = null;
+			this.localeLogs = ResourceBundle.getBundle(
+				"replaceinfiles/localizations/logs",
+				this.locale
+			);
+			this.localeExceptions = ResourceBundle.getBundle(
+				"replaceinfiles/localizations/exceptions",
+				this.locale
+			);
+		}
+
+		/**
+		 * Устанавливает локализацию.
+		 *
+		 * @param locale локализация.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code locale} передан {@code null}.
+		 */
+		@NotNull
+		public Builder setLocale(@NotNull final Locale locale)
+		{
+			Objects.requireNonNull(locale);
+
+			if (!this.locale.equals(locale))
+			{
+				this.locale = locale;
+
+				this.localeLogs = ResourceBundle.getBundle(
+					"replaceinfiles/localizations/logs",
+					this.locale
+				);
+
+				this.localeExceptions = ResourceBundle.getBundle(
+					"replaceinfiles/localizations/exceptions",
+					this.locale
+				);
+			}
+
+			this.fileExpert.setLocale(this.locale);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает распространение замены на скрытые файлы.
+		 *
+		 * @param canHidden {@code true}, если замена в скрытых файлах необходима, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 */
+		@NotNull
+		public Builder canHidden(final boolean canHidden)
+		{
+			this.fileExpert.canHidden(canHidden);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает количество потоков, в которых выполняется замена.
+		 *
+		 * @param parallelism количество потоков.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code parallelism} меньше {@code 1}.
+		 * @see Replaceable#setParallelism(int)
+		 */
+		@NotNull
+		public Builder setParallelism(final int parallelism)
+		{
+			if (parallelism < 1) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40003"),
+					parallelism
+				));
+			}
+
+			this.parallelism = parallelism;
+			this.fileExpert.setParallelism(parallelism);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает объединение независимых правил в один проход по тексту.
+		 *
+		 * @param fused {@code true}, если правила необходимо объединять, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 * @see Replaceable#setFused(boolean)
+		 */
+		@NotNull
+		public Builder setFused(final boolean fused)
+		{
+			this.fused = fused;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает размер файла, начиная с которого замена выполняется потоково.
+		 *
+		 * @param size размер файла в байтах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code size} меньше {@code 0}.
+		 * @see Replaceable#setStreamingThreshold(long)
+		 */
+		@NotNull
+		public Builder setStreamingThreshold(final long size)
+		{
+			if (size < 0) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40004"),
+					size
+				));
+			}
+
+			this.streamingThreshold = size;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает размеры окна потоковой замены.
+		 *
+		 * @param window размер окна в символах.
+		 * @param overlap размер перекрытия окон в символах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code window} меньше {@code 1} или {@code overlap} меньше {@code 0}.
+		 * @see Replaceable#setStreamingWindow(int, int)
+		 */
+		@NotNull
+		public Builder setStreamingWindow(final int window, final int overlap)
+		{
+			if (window < 1 || overlap < 0) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40005"),
+					window,
+					overlap
+				));
+			}
+
+			this.streamingWindow = window;
+			this.streamingOverlap = overlap;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает размер файла, начиная с которого файл разбивается на части по строкам.
+		 *
+		 * @param size размер файла в байтах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code size} меньше {@code 0}.
+		 * @throws IllegalStateException если добавленное правило может найти совпадение за пределами строки.
+		 * @see Replaceable#setSplitThreshold(long)
+		 */
+		@NotNull
+		public Builder setSplitThreshold(final long size)
+		{
+			if (size < 0) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40004"),
+					size
+				));
+			}
+
+			if (size != Long.MAX_VALUE)
+			{
+				for (Rule rule : this.replacing.values())
+				{
+					if (!rule.isLineBounded()) {
+						throw new IllegalStateException(this.getLineBoundedMessage(rule));
+					}
+				}
+			}
+
+			this.splitThreshold = size;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает размер части файла при разбиении по строкам.
+		 *
+		 * @param chunk размер части в символах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code chunk} меньше {@code 1}.
+		 * @see Replaceable#setSplitChunk(int)
+		 */
+		@NotNull
+		public Builder setSplitChunk(final int chunk)
+		{
+			if (chunk < 1) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40013"),
+					chunk
+				));
+			}
+
+			this.splitChunk = chunk;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает проверку наличия совпадений в файле, отображённом в память.
+		 *
+		 * @param mapped {@code true}, если проверку необходимо выполнять, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 * @see Replaceable#setMapped(boolean)
+		 */
+		@NotNull
+		public Builder setMapped(final boolean mapped)
+		{
+			this.mapped = mapped;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает обработку файлов одновременно со сканированием директорий.
+		 *
+		 * @param pipelined {@code true}, если файлы необходимо обрабатывать во время сканирования, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 * @see Replaceable#setPipelined(boolean)
+		 */
+		@NotNull
+		public Builder setPipelined(final boolean pipelined)
+		{
+			this.pipelined = pipelined;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает ёмкость очереди найденных файлов.
+		 *
+		 * @param capacity ёмкость очереди.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code capacity} меньше {@code 1}.
+		 */
+		@NotNull
+		public Builder setPipelineCapacity(final int capacity)
+		{
+			if (capacity < 1) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40007"),
+					capacity
+				));
+			}
+
+			this.pipelineCapacity = capacity;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает бюджет памяти для содержимого обрабатываемых файлов.
+		 * <p>
+		 * Бюджет общий для всех планов, построенных после его установки.
+		 * Бюджет должен вмещать окна потоковой замены и части файла при разбиении по строкам,
+		 * иначе план не строится.
+		 *
+		 * @param capacity объём бюджета в байтах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code capacity} меньше {@code 1}.
+		 * @see Replaceable#setMemoryBudget(long)
+		 */
+		@NotNull
+		public Builder setMemoryBudget(final long capacity)
+		{
+			if (capacity < 1) {
+				throw new IllegalArgumentException(String.format(
+					this.localeExceptions.getString("40015"),
+					capacity
+				));
+			}
+
+			this.memoryBudget = new MemoryBudget(capacity);
+
+			return this;
+		}
+
+		/**
+		 * Возвращает бюджет памяти.
+		 *
+		 * @return бюджет памяти или {@code null}, если бюджет не установлен.
+		 */
+		@Nullable
+		public MemoryBudget getMemoryBudget()
+		{
+			return this.memoryBudget;
+		}
+
+		/**
+		 * Устанавливает журнал обработанных файлов.
+		 *
+		 * @param manifest файл журнала или {@code null}, если журнал не используется.
+		 * @return ссылку на данный объект.
+		 * @see Replaceable#setManifest(File)
+		 */
+		@NotNull
+		public Builder setManifest(@Nullable final File manifest)
+		{
+			this.manifest = manifest;
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает атомарную запись файлов.
+		 *
+		 * @param atomic {@code true}, если запись должна быть атомарной, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 * @see Replaceable#setAtomic(boolean)
+		 */
+		@NotNull
+		public Builder setAtomic(final boolean atomic)
+		{
+			this.fileExpert.setAtomic(atomic);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает режим надёжности записи файлов.
+		 *
+		 * @param durability режим надёжности.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code durability} передан {@code null}.
+		 */
+		@NotNull
+		public Builder setDurability(@NotNull final Durability durability)
+		{
+			Objects.requireNonNull(durability);
+
+			this.fileExpert.setDurability(durability);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает размер группы для режима надёжности {@link Durability#BATCH}.
+		 *
+		 * @param files количество файлов.
+		 * @param millis время в миллисекундах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code files} меньше {@code 1} или {@code millis} меньше {@code 0}.
+		 * @see Replaceable#setDurabilityBatch(int, long)
+		 */
+		@NotNull
+		public Builder setDurabilityBatch(final int files, final long millis)
+		{
+			this.fileExpert.setDurabilityBatch(files, millis);
+
+			return this;
+		}
+
+		/**
+		 * Добавляет шаблон файлов, которые необходимо добавлять при сканировании директорий.
+		 *
+		 * @param glob шаблон, например {@code "*.java"}.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code glob} передан {@code null}.
+		 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+		 * @see Replaceable#addInclude(String)
+		 */
+		@NotNull
+		public Builder addInclude(@NotNull final String glob)
+		{
+			Objects.requireNonNull(glob);
+
+			this.fileExpert.addInclude(glob);
+
+			return this;
+		}
+
+		/**
+		 * Добавляет шаблон файлов и директорий, которые необходимо пропускать при сканировании директорий.
+		 *
+		 * @param glob шаблон, например {@code "node_modules"}.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code glob} передан {@code null}.
+		 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+		 * @see Replaceable#addExclude(String)
+		 */
+		@NotNull
+		public Builder addExclude(@NotNull final String glob)
+		{
+			Objects.requireNonNull(glob);
+
+			this.fileExpert.addExclude(glob);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает ограничения размера файлов при сканировании директорий.
+		 *
+		 * @param min минимальный размер файла в байтах.
+		 * @param max максимальный размер файла в байтах.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code min} меньше {@code 0} или {@code max} меньше {@code min}.
+		 */
+		@NotNull
+		public Builder setFileSize(final long min, final long max)
+		{
+			this.fileExpert.setFileSize(min, max);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает максимальную глубину сканирования директорий.
+		 *
+		 * @param depth глубина.
+		 * @return ссылку на данный объект.
+		 * @throws IllegalArgumentException если {@code depth} меньше {@code 1}.
+		 * @see Replaceable#setMaxDepth(int)
+		 */
+		@NotNull
+		public Builder setMaxDepth(final int depth)
+		{
+			this.fileExpert.setMaxDepth(depth);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает определение двоичных файлов.
+		 *
+		 * @param binaryDetection {@code true}, если двоичные файлы необходимо пропускать, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 * @see Replaceable#setBinaryDetection(boolean)
+		 */
+		@NotNull
+		public Builder setBinaryDetection(final boolean binaryDetection)
+		{
+			this.fileExpert.setBinaryDetection(binaryDetection);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает расширения файлов, которые всегда считаются текстовыми.
+		 *
+		 * @param extensions расширения файлов, например {@code "txt"}.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code extensions} передан {@code null}.
+		 */
+		@NotNull
+		public Builder setTextExtensions(@NotNull final Set<@NotNull String> extensions)
+		{
+			Objects.requireNonNull(extensions);
+
+			this.fileExpert.setTextExtensions(extensions);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает расширения файлов, которые всегда считаются двоичными.
+		 *
+		 * @param extensions расширения файлов, например {@code "jar"}.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code extensions} передан {@code null}.
+		 */
+		@NotNull
+		public Builder setBinaryExtensions(@NotNull final Set<@NotNull String> extensions)
+		{
+			Objects.requireNonNull(extensions);
+
+			this.fileExpert.setBinaryExtensions(extensions);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает обработку архивов ZIP и JAR как контейнеров текстовых файлов.
+		 * <p>
+		 * Архивы с расширениями {@code zip}, {@code jar}, {@code war} и {@code ear}, переданные
+		 * плану или найденные в директориях, не пропускаются как двоичные:
+		 * правила потоково применяются к текстовым файлам внутри архива, а изменённый архив
+		 * записывается заново за один проход без повторного сжатия неизменённых файлов.
+		 * Специальные правила получают путь файла в виде пути архива и имени файла в архиве.
+		 *
+		 * @param archives {@code true}, если архивы необходимо обрабатывать как контейнеры, иначе {@code false}.
+		 * @return ссылку на данный объект.
+		 */
+		@NotNull
+		public Builder setArchives(final boolean archives)
+		{
+			this.fileExpert.setArchives(archives);
+
+			return this;
+		}
+
+		/**
+		 * Устанавливает получателя событий замены.
+		 * <p>
+		 * Получатель общий для всех выполнений плана и может вызываться из нескольких потоков.
+		 *
+		 * @param listener получатель событий или {@code null}, если события не нужны.
+		 * @return ссылку на данный объект.
+		 */
+		@NotNull
+		public Builder setListener(@Nullable final ReplacementListener listener)
+		{
+			this.listener = listener;
+
+			return this;
+		}
+
+		/**
+		 * Добавляет правило для замены с указанием строки замены.
+		 *
+		 * @param regexp шаблон регулярного выражения.
+		 * @param replacement строка замены.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code regexp} передан {@code null}.
+		 * @throws NullPointerException если в качестве {@code replacement} передан {@code null}.
+		 * @throws PatternSyntaxException если синтаксис {@code regexp} некорректен.
+		 * @throws IllegalArgumentException если {@code replacement} содержит некорректную ссылку на группу
+		 * или ссылается на несуществующую именованную группу.
+		 * @throws IndexOutOfBoundsException если {@code replacement} ссылается на несуществующую группу.
+		 * @throws IllegalArgumentException если установлено разбиение файлов по строкам,
+		 * а {@code regexp} может найти совпадение за пределами строки.
+		 */
+		@NotNull
+		public Builder apply(@NotNull final String regexp, @NotNull final String replacement)
+		{
+			Objects.requireNonNull(regexp);
+			Objects.requireNonNull(replacement);
+
+			Rule rule = new Rule(regexp, replacement);
+
+			if (this.splitThreshold != Long.MAX_VALUE && !rule.isLineBounded()) {
+				throw new IllegalArgumentException(this.getLineBoundedMessage(rule));
+			}
+
+			this.replacing.put(regexp, rule);
+
+			if (LOG.isDebugEnabled())
+			{
+				LOG.debug(String.format(
+					this.localeLogs.getString("00010"),
+					regexp,
+					replacement
+				));
+			}
+
+			return this;
+		}
+
+		/**
+		 * Добавляет правило для замены с указанием специального правила.
+		 *
+		 * @param regexp шаблон регулярного выражения.
+		 * @param specialRule специальное правило.
+		 * @return ссылку на данный объект.
+		 * @throws NullPointerException если в качестве {@code regexp} передан {@code null}.
+		 * @throws NullPointerException если в качестве {@code specialRule} передан {@code null}.
+		 * @throws PatternSyntaxException если синтаксис {@code regexp} некорректен.
+		 */
+		@NotNull
+		public Builder apply(@NotNull final String regexp, @NotNull final SpecialRule specialRule)
+		{
+			Objects.requireNonNull(regexp);
+			Objects.requireNonNull(specialRule);
+
+			return this.apply(regexp, specialRule.getSpecialSign());
+		}
+
+		/**
+		 * Возвращает текст исключения для правила, не ограниченного одной строкой.
+		 *
+		 * @param rule правило.
+		 * @return текст исключения.
+		 */
+		@NotNull
+		private String getLineBoundedMessage(@NotNull final Rule rule)
+		{
+			return String.format(
+				this.localeExceptions.getString("40002"),
+				rule.getRegexp()
+			);
+		}
+
+		/**
+		 * Строит план замены.
+		 * <p>
+		 * Правила объединяются в цепочку, а параметры копируются, поэтому
+		 * построитель можно продолжать изменять для построения других планов.
+		 *
+		 * @return план замены.
+		 * @throws IllegalStateException если бюджет памяти меньше памяти, необходимой для потоковой замены
+		 * или замены частями по строкам.
+		 */
+		@NotNull
+		public ReplacementPlan build()
+		{
+			return new ReplacementPlan(this);
+		}
+	}
+}
@@ -0,0 +1,684 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Класс наблюдения за изменениями файлов с заменой в изменённых файлах.
+ * <p>
+ * При запуске директории регистрируются в {@link WatchService} один раз, а найденные
+ * файлы запоминаются. Затем план замены выполняется только для созданных и изменённых
+ * файлов. События, поступающие в течение интервала ожидания, объединяются в одну замену.
+ * При переполнении очереди событий корневая директория сканируется повторно.
+ * Файлы, содержимое которых записано самой заменой, повторно не обрабатываются.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class ReplacementWatcher implements Closeable
+{
+	/**
+	 * План замены.
+	 */
+	@NotNull
+	private final ReplacementPlan plan;
+
+	/**
+	 * Корневые файлы и директории.
+	 */
+	@NotNull
+	private final List<@NotNull Path> roots;
+
+	/**
+	 * Интервал ожидания новых событий перед заменой в наносекундах.
+	 */
+	private final long debounce;
+
+	/**
+	 * Получатель отчётов о заменах.
+	 */
+	@Nullable
+	private final Consumer<@NotNull Report> consumer;
+
+	/**
+	 * Зарегистрированные директории по ключам наблюдения.
+	 */
+	@NotNull
+	private final Map<@NotNull WatchKey, @NotNull Watched> keys;
+
+	/**
+	 * Состояния известных файлов после последней обработки.
+	 */
+	@NotNull
+	private final Map<@NotNull Path, @NotNull Snapshot> snapshots;
+
+	/**
+	 * Служба наблюдения.
+	 */
+	@Nullable
+	private WatchService watchService;
+
+	/**
+	 * Поток наблюдения.
+	 */
+	@Nullable
+	private Thread thread;
+
+	/**
+	 * Признак остановки наблюдения.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Наибольшее количество интервалов ожидания, на которое откладывается замена при непрерывных событиях.
+	 */
+	private static final int MAX_DEBOUNCES = 10;
+
+	/**
+	 * Локализованные тексты логирования.
+	 */
+	@NotNull
+	private final ResourceBundle localeLogs;
+
+	/**
+	 * Локализованные тексты исключений.
+	 */
+	@NotNull
+	private final ResourceBundle localeExceptions;
+
+	/**
+	 * Логгер для данного класса.
+	 */
+	@NotNull
+	private static final Logger LOG = LogManager.getLogger(ReplacementWatcher.class);
+
+	/**
+	 * Конструктор для {@code ReplacementWatcher}.
+	 *
+	 * @param plan план замены.
+	 * @param roots файлы и директории, за которыми необходимо наблюдать.
+	 * @param debounce интервал ожидания новых событий перед заменой.
+	 * @param consumer получатель отчётов о заменах или {@code null}, если отчёты не нужны.
+	 * @throws NullPointerException если в качестве {@code plan} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code roots} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code debounce} передан {@code null}.
+	 * @throws IllegalArgumentException если {@code debounce} отрицателен.
+	 */
+	public ReplacementWatcher(@NotNull final ReplacementPlan plan,
+							  @NotNull final Collection<@NotNull File> roots,
+							  @NotNull final Duration debounce,
+							  @Nullable final Consumer<@NotNull Report> consumer)
+	{
+		Objects.requireNonNull(plan);
+		Objects.requireNonNull(roots);
+		Objects.requireNonNull(debounce);
+
+		this.localeLogs = ResourceBundle.getBundle(
+			"replaceinfiles/localizations/logs",
+			plan.getLocale()
+		);
+		this.localeExceptions = ResourceBundle.getBundle(
+			"replaceinfiles/localizations/exceptions",
+			plan.getLocale()
+		);
+
+		if (debounce.isNegative()) {
+			throw new IllegalArgumentException(String.format(
+				this.localeExceptions.getString("40011"),
+				debounce
+			));
+		}
+
+		this.plan = plan;
+		this.roots = roots.stream().map(root -> root.getAbsoluteFile().toPath().normalize()).toList();
+		this.debounce = debounce.toNanos();
+		this.consumer = consumer;
+		this.keys = new HashMap<>();
+		this.snapshots = new ConcurrentHashMap<>();
+		this.watchService = null;
+		this.thread = null;
+		this.closed = false;
+	}
+
+	/**
+	 * Запускает наблюдение.
+	 * <p>
+	 * Директории регистрируются, после чего план замены выполняется для всех найденных
+	 * файлов, а отчёт передаётся получателю. Далее изменения обрабатываются в отдельном потоке.
+	 *
+	 * @throws IOException если службу наблюдения не удалось создать.
+	 * @throws IllegalStateException если наблюдение уже запущено.
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.watchService != null) {
+			throw new IllegalStateException(this.localeExceptions.getString("40012"));
+		}
+
+		this.watchService = FileSystems.getDefault().newWatchService();
+
+		Map<Path, Snapshot> files = new LinkedHashMap<>();
+
+		for (Path root : this.roots) {
+			this.register(root, root, files);
+		}
+
+		this.apply(files);
+
+		this.thread = new Thread(this::watch, "replaceinfiles-watcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Возвращает известные файлы.
+	 *
+	 * @return неизменяемую коллекцию файлов, за которыми ведётся наблюдение.
+	 */
+	@NotNull
+	public Set<@NotNull File> getFiles()
+	{
+		Set<File> files = new HashSet<>();
+
+		for (Path path : this.snapshots.keySet()) {
+			files.add(path.toFile());
+		}
+
+		return Collections.unmodifiableSet(files);
+	}
+
+	/**
+	 * Останавливает наблюдение.
+	 * <p>
+	 * Замена, которая уже выполняется, завершается до возврата из метода.
+	 *
+	 * @throws IOException если службу наблюдения не удалось закрыть.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		this.closed = true;
+
+		if (this.watchService != null) {
+			this.watchService.close();
+		}
+
+		if (this.thread != null && this.thread != Thread.currentThread())
+		{
+			try
+			{
+				this.thread.join();
+			}
+			catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Обрабатывает события до остановки наблюдения.
+	 * <p>
+	 * После первого события ожидаются следующие, пока в течение интервала ожидания
+	 * не перестанут поступать новые события, но не дольше {@link #MAX_DEBOUNCES} интервалов.
+	 */
+	private void watch()
+	{
+		WatchService service = Objects.requireNonNull(this.watchService);
+
+		try
+		{
+			while (!this.closed)
+			{
+				Map<Path, Path> changed = new LinkedHashMap<>();
+				Set<Path> overflowed = new LinkedHashSet<>();
+
+				this.collect(service.take(), changed, overflowed);
+
+				long deadline = System.nanoTime() + this.debounce * MAX_DEBOUNCES;
+				WatchKey key;
+
+				while (System.nanoTime() < deadline &&
+					(key = service.poll(this.debounce, TimeUnit.NANOSECONDS)) != null)
+				{
+					this.collect(key, changed, overflowed);
+				}
+
+				try
+				{
+					this.process(changed, overflowed);
+				}
+				catch (RuntimeException exception)
+				{
+					LOG.error(this.localeLogs.getString("00027"), exception);
+				}
+			}
+		}
+		catch (ClosedWatchServiceException | InterruptedException exception)
+		{
+			// Наблюдение остановлено.
+		}
+	}
+
+	/**
+	 * Собирает события ключа наблюдения.
+	 *
+	 * @param key ключ наблюдения.
+	 * @param changed изменённые пути и их корневые директории.
+	 * @param overflowed корневые директории, события которых потеряны.
+	 */
+	private void collect(@NotNull final WatchKey key,
+						 @NotNull final Map<@NotNull Path, @NotNull Path> changed,
+						 @NotNull final Set<@NotNull Path> overflowed)
+	{
+		Watched watched = this.keys.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents())
+		{
+			if (watched == null) {
+				continue;
+			}
+
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				LOG.warn(String.format(
+					this.localeLogs.getString("00025"),
+					watched.root
+				));
+
+				overflowed.add(watched.root);
+
+				continue;
+			}
+
+			Path path = watched.directory.resolve((Path) event.context());
+
+			changed.putIfAbsent(path, this.roots.contains(path) ? path : watched.root);
+		}
+
+		if (!key.reset()) {
+			this.keys.remove(key);
+		}
+	}
+
+	/**
+	 * Выполняет замену в изменённых файлах.
+	 *
+	 * @param changed изменённые пути и их корневые директории.
+	 * @param overflowed корневые директории, которые необходимо просканировать повторно.
+	 */
+	private void process(@NotNull final Map<@NotNull Path, @NotNull Path> changed,
+						 @NotNull final Set<@NotNull Path> overflowed)
+	{
+		Map<Path, Snapshot> files = new LinkedHashMap<>();
+
+		for (Path root : overflowed) {
+			this.register(root, root, files);
+		}
+
+		for (Map.Entry<Path, Path> entry : changed.entrySet())
+		{
+			Path path = entry.getKey();
+			Path root = entry.getValue();
+
+			if (overflowed.contains(root)) {
+				continue;
+			}
+
+			if (!Files.exists(path))
+			{
+				if (this.snapshots.remove(path) == null) {
+					this.snapshots.keySet().removeIf(known -> known.startsWith(path));
+				}
+
+				continue;
+			}
+
+			if (Files.isDirectory(path))
+			{
+				this.register(root, path, files);
+
+				continue;
+			}
+
+			if (this.canWatch(root, path))
+			{
+				Snapshot snapshot = Snapshot.of(path);
+
+				if (snapshot != null) {
+					files.put(path, snapshot);
+				}
+			}
+		}
+
+		files.entrySet().removeIf(file -> file.getValue().equals(this.snapshots.get(file.getKey())));
+
+		if (!files.isEmpty()) {
+			this.apply(files);
+		}
+	}
+
+	/**
+	 * Выполняет план замены для файлов и запоминает их состояния.
+	 * <p>
+	 * Состояние изменённого файла считывается после записи, поэтому события
+	 * от собственной записи не приводят к повторной замене.
+	 *
+	 * @param files файлы и их состояния до замены.
+	 */
+	private void apply(@NotNull final Map<@NotNull Path, @NotNull Snapshot> files)
+	{
+		List<File> targets = new ArrayList<>(files.size());
+
+		for (Path path : files.keySet()) {
+			targets.add(path.toFile());
+		}
+
+		Report report = this.plan.replace(targets);
+
+		for (File file : report.getChangedFiles())
+		{
+			Snapshot snapshot = Snapshot.of(file.toPath());
+
+			if (snapshot != null) {
+				files.put(file.toPath(), snapshot);
+			}
+		}
+
+		this.snapshots.putAll(files);
+
+		if (this.consumer != null) {
+			this.consumer.accept(report);
+		}
+	}
+
+	/**
+	 * Регистрирует директорию и её поддиректории и добавляет найденные файлы.
+	 * <p>
+	 * Если корневой путь является файлом, регистрируется содержащая его директория,
+	 * если она не зарегистрирована ранее.
+	 *
+	 * @param root корневой файл или директория.
+	 * @param start директория, с которой начинается регистрация.
+	 * @param files найденные файлы и их состояния.
+	 */
+	private void register(@NotNull final Path root,
+						  @NotNull final Path start,
+						  @NotNull final Map<@NotNull Path, @NotNull Snapshot> files)
+	{
+		WatchService service = Objects.requireNonNull(this.watchService);
+
+		try
+		{
+			if (!Files.isDirectory(root))
+			{
+				Path parent = root.getParent();
+
+				if (parent != null) {
+					this.keys.putIfAbsent(this.watch(service, parent), new Watched(parent, root));
+				}
+
+				Snapshot snapshot = Snapshot.of(root);
+
+				if (snapshot != null) {
+					files.put(root, snapshot);
+				}
+
+				return;
+			}
+
+			Files.walkFileTree(
+				start,
+				EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+				Integer.MAX_VALUE,
+				new SimpleFileVisitor<>()
+				{
+					@NotNull
+					@Override
+					public FileVisitResult preVisitDirectory(@NotNull final Path directory,
+															 @NotNull final BasicFileAttributes attributes)
+						throws IOException
+					{
+						if (!ReplacementWatcher.this.plan.canScan(root.toFile(), directory.toFile())) {
+							return FileVisitResult.SKIP_SUBTREE;
+						}
+
+						ReplacementWatcher.this.keys.put(
+							ReplacementWatcher.this.watch(service, directory),
+							new Watched(directory, root)
+						);
+
+						return FileVisitResult.CONTINUE;
+					}
+
+					@NotNull
+					@Override
+					public FileVisitResult visitFile(@NotNull final Path file,
+													 @NotNull final BasicFileAttributes attributes)
+						throws IOException
+					{
+						if (attributes.isRegularFile() &&
+							ReplacementWatcher.this.plan.canScan(root.toFile(), file.toFile()))
+						{
+							files.put(file, new Snapshot(attributes));
+						}
+
+						return FileVisitResult.CONTINUE;
+					}
+
+					@NotNull
+					@Override
+					public FileVisitResult visitFileFailed(@NotNull final Path file, @NotNull final IOException exception)
+					{
+						return FileVisitResult.CONTINUE;
+					}
+				}
+			);
+		}
+		catch (IOException exception)
+		{
+			LOG.error(String.format(
+				this.localeLogs.getString("00026"),
+				start
+			), exception);
+		}
+	}
+
+	/**
+	 * Регистрирует директорию в службе наблюдения.
+	 *
+	 * @param service служба наблюдения.
+	 * @param directory директория.
+	 * @return ключ наблюдения.
+	 * @throws IOException если директорию не удалось зарегистрировать.
+	 */
+	@NotNull
+	private WatchKey watch(@NotNull final WatchService service, @NotNull final Path directory) throws IOException
+	{
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(String.format(
+				this.localeLogs.getString("00024"),
+				directory
+			));
+		}
+
+		return directory.register(
+			service,
+			StandardWatchEventKinds.ENTRY_CREATE,
+			StandardWatchEventKinds.ENTRY_MODIFY,
+			StandardWatchEventKinds.ENTRY_DELETE
+		);
+	}
+
+	/**
+	 * Проверяет, нужно ли обрабатывать изменённый файл.
+	 *
+	 * @param root корневой файл или директория.
+	 * @param path изменённый файл.
+	 * @return {@code true}, если файл добавляется при сканировании корневой директории
+	 * или является корневым файлом, иначе {@code false}.
+	 */
+	private boolean canWatch(@NotNull final Path root, @NotNull final Path path)
+	{
+		if (!Files.isDirectory(root)) {
+			return path.equals(root);
+		}
+
+		try
+		{
+			return Files.isRegularFile(path) && this.plan.canScan(root.toFile(), path.toFile());
+		}
+		catch (IOException exception)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Класс зарегистрированной директории.
+	 */
+	private static final class Watched
+	{
+		/**
+		 * Директория.
+		 */
+		@NotNull
+		private final Path directory;
+
+		/**
+		 * Корневой файл или директория.
+		 */
+		@NotNull
+		private final Path root;
+
+		/**
+		 * Конструктор для {@code Watched}.
+		 *
+		 * @param directory директория.
+		 * @param root корневой файл или директория.
+		 */
+		private Watched(@NotNull final Path directory, @NotNull final Path root)
+		{
+			this.directory = directory;
+			this.root = root;
+		}
+	}
+
+	/**
+	 * Класс состояния файла.
+	 * <p>
+	 * Состояние определяется временем изменения и размером файла.
+	 */
+	private static final class Snapshot
+	{
+		/**
+		 * Время изменения.
+		 */
+		@NotNull
+		private final FileTime modified;
+
+		/**
+		 * Размер в байтах.
+		 */
+		private final long size;
+
+		/**
+		 * Конструктор для {@code Snapshot}.
+		 *
+		 * @param attributes атрибуты файла.
+		 */
+		private Snapshot(@NotNull final BasicFileAttributes attributes)
+		{
+			this.modified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+		}
+
+		/**
+		 * Считывает состояние файла.
+		 *
+		 * @param path файл.
+		 * @return состояние или {@code null}, если атрибуты файла не удалось прочитать.
+		 */
+		@Nullable
+		private static Snapshot of(@NotNull final Path path)
+		{
+			try
+			{
+				return new Snapshot(Files.readAttributes(path, BasicFileAttributes.class));
+			}
+			catch (IOException exception)
+			{
+				return null;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @param object {@inheritDoc}
+		 * @return {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(@Nullable final Object object)
+		{
+			if (this == object) {
+				return true;
+			}
+
+			if (!(object instanceof Snapshot snapshot)) {
+				return false;
+			}
+
+			return this.size == snapshot.size && this.modified.equals(snapshot.modified);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @return {@inheritDoc}
+		 */
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(this.modified, this.size);
+		}
+	}
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import dev.kalenchukov.replaceinfiles.modules.Rule;
+import dev.kalenchukov.replaceinfiles.modules.Statistics;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Класс отчёта о замене.
+ * <p>
+ * Отчёт неизменяем и содержит изменённые файлы, время этапов замены,
+ * объём прочитанных и записанных данных, статистику правил и файлы,
+ * при обработке которых произошла ошибка.
+ * <p>
+ * Время этапов суммируется по всем потокам замены, поэтому при параллельной
+ * замене оно может превышать общее время замены.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Report
+{
+	/**
+	 * Изменённые файлы.
+	 */
+	@NotNull
+	private final List<@NotNull File> changedFiles;
+
+	/**
+	 * Количество просмотренных файлов.
+	 */
+	private final long scannedFiles;
+
+	/**
+	 * Количество файлов, пропущенных без чтения содержимого.
+	 */
+	private final long skippedFiles;
+
+	/**
+	 * Количество пропущенных двоичных файлов.
+	 */
+	private final long binaryFiles;
+
+	/**
+	 * Файлы, при обработке которых произошла ошибка.
+	 */
+	@NotNull
+	private final Map<@NotNull File, @NotNull Exception> failedFiles;
+
+	/**
+	 * Время сканирования директорий.
+	 */
+	@NotNull
+	private final Duration scanTime;
+
+	/**
+	 * Время чтения файлов.
+	 */
+	@NotNull
+	private final Duration readTime;
+
+	/**
+	 * Время поиска и замены.
+	 */
+	@NotNull
+	private final Duration matchTime;
+
+	/**
+	 * Время записи файлов.
+	 */
+	@NotNull
+	private final Duration writeTime;
+
+	/**
+	 * Количество прочитанных байтов.
+	 */
+	private final long bytesRead;
+
+	/**
+	 * Количество записанных байтов.
+	 */
+	private final long bytesWritten;
+
+	/**
+	 * Статистика правил в порядке выполнения.
+	 */
+	@NotNull
+	private final List<@NotNull RuleReport> rules;
+
+	/**
+	 * Признак отмены замены.
+	 */
+	private final boolean cancelled;
+
+	/**
+	 * Конструктор для {@code Report}.
+	 *
+	 * @param changedFiles изменённые файлы.
+	 * @param statistics счётчики замены.
+	 * @param rules правила в порядке выполнения.
+	 * @param cancelled {@code true}, если замена отменена, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code changedFiles} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code statistics} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code rules} передан {@code null}.
+	 */
+	Report(@NotNull final List<@NotNull File> changedFiles,
+		   @NotNull final Statistics statistics,
+		   @NotNull final List<@NotNull Rule> rules,
+		   final boolean cancelled)
+	{
+		Objects.requireNonNull(changedFiles);
+		Objects.requireNonNull(statistics);
+		Objects.requireNonNull(rules);
+
+		Map<File, Exception> failedFiles = new LinkedHashMap<>();
+
+		for (Map.Entry<File, Exception> failure : statistics.getFailures()) {
+			failedFiles.putIfAbsent(failure.getKey(), failure.getValue());
+		}
+
+		List<RuleReport> ruleReports = new ArrayList<>();
+
+		for (int index = 0; index < rules.size(); index++)
+		{
+			ruleReports.add(new RuleReport(
+				rules.get(index).getRegexp(),
+				statistics.getRuleMatches(index),
+				Duration.ofNanos(statistics.getRuleTime(index))
+			));
+		}
+
+		this.changedFiles = List.copyOf(changedFiles);
+		this.scannedFiles = statistics.getScannedFiles();
+		this.skippedFiles = statistics.getSkippedFiles();
+		this.binaryFiles = statistics.getBinaryFiles();
+		this.failedFiles = Collections.unmodifiableMap(failedFiles);
+		this.scanTime = Duration.ofNanos(statistics.getScanTime());
+		this.readTime = Duration.ofNanos(statistics.getReadTime());
+		this.matchTime = Duration.ofNanos(statistics.getMatchTime());
+		this.writeTime = Duration.ofNanos(statistics.getWriteTime());
+		this.bytesRead = statistics.getBytesRead();
+		this.bytesWritten = statistics.getBytesWritten();
+		this.rules = List.copyOf(ruleReports);
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * Проверяет, была ли замена отменена.
+	 * <p>
+	 * Отчёт отменённой замены содержит только файлы, обработанные до отмены.
+	 *
+	 * @return {@code true}, если замена отменена, иначе {@code false}.
+	 */
+	public boolean isCancelled()
+	{
+		return this.cancelled;
+	}
+
+	/**
+	 * Возвращает изменённые файлы.
+	 *
+	 * @return неизменяемую коллекцию изменённых файлов.
+	 */
+	@NotNull
+	public List<@NotNull File> getChangedFiles()
+	{
+		return this.changedFiles;
+	}
+
+	/**
+	 * Возвращает количество просмотренных файлов.
+	 *
+	 * @return количество файлов, переданных на замену после сканирования.
+	 */
+	public long getScannedFiles()
+	{
+		return this.scannedFiles;
+	}
+
+	/**
+	 * Возвращает количество файлов, пропущенных без чтения содержимого.
+	 * <p>
+	 * Учитываются файлы, не изменявшиеся с предыдущей замены, и файлы,
+	 * не содержащие обязательных литералов правил.
+	 *
+	 * @return количество файлов.
+	 */
+	public long getSkippedFiles()
+	{
+		return this.skippedFiles;
+	}
+
+	/**
+	 * Возвращает количество пропущенных двоичных файлов.
+	 *
+	 * @return количество файлов.
+	 */
+	public long getBinaryFiles()
+	{
+		return this.binaryFiles;
+	}
+
+	/**
+	 * Возвращает файлы, при обработке которых произошла ошибка.
+	 *
+	 * @return неизменяемое отображение файлов в исключения в порядке возникновения ошибок.
+	 */
+	@NotNull
+	public Map<@NotNull File, @NotNull Exception> getFailedFiles()
+	{
+		return this.failedFiles;
+	}
+
+	/**
+	 * Возвращает время сканирования директорий.
+	 *
+	 * @return время.
+	 */
+	@NotNull
+	public Duration getScanTime()
+	{
+		return this.scanTime;
+	}
+
+	/**
+	 * Возвращает время чтения файлов.
+	 *
+	 * @return время.
+	 */
+	@NotNull
+	public Duration getReadTime()
+	{
+		return this.readTime;
+	}
+
+	/**
+	 * Возвращает время поиска и замены.
+	 * <p>
+	 * При потоковой замене больших файлов чтение и запись выполняются вместе
+	 * с заменой и учитываются в этом времени.
+	 *
+	 * @return время.
+	 */
+	@NotNull
+	public Duration getMatchTime()
+	{
+		return this.matchTime;
+	}
+
+	/**
+	 * Возвращает время записи файлов.
+	 *
+	 * @return время.
+	 */
+	@NotNull
+	public Duration getWriteTime()
+	{
+		return this.writeTime;
+	}
+
+	/**
+	 * Возвращает количество прочитанных байтов.
+	 *
+	 * @return количество байтов.
+	 */
+	public long getBytesRead()
+	{
+		return this.bytesRead;
+	}
+
+	/**
+	 * Возвращает количество записанных байтов.
+	 *
+	 * @return количество байтов.
+	 */
+	public long getBytesWritten()
+	{
+		return this.bytesWritten;
+	}
+
+	/**
+	 * Возвращает статистику правил.
+	 *
+	 * @return неизменяемую коллекцию статистики правил в порядке выполнения.
+	 */
+	@NotNull
+	public List<@NotNull RuleReport> getRules()
+	{
+		return this.rules;
+	}
+
+	/**
+	 * Класс статистики правила замены.
+	 */
+	public static final class RuleReport
+	{
+		/**
+		 * Регулярное выражение правила.
+		 */
+		@NotNull
+		private final String regexp;
+
+		/**
+		 * Количество совпадений.
+		 */
+		private final long matches;
+
+		/**
+		 * Процессорное время выполнения.
+		 */
+		@NotNull
+		private final Duration time;
+
+		/**
+		 * Конструктор для {@code RuleReport}.
+		 *
+		 * @param regexp регулярное выражение правила.
+		 * @param matches количество совпадений.
+		 * @param time процессорное время выполнения.
+		 */
+		private RuleReport(@NotNull final String regexp, final long matches, @NotNull final Duration time)
+		{
+			this.regexp = regexp;
+			this.matches = matches;
+			this.time = time;
+		}
+
+		/**
+		 * Возвращает регулярное выражение правила.
+		 *
+		 * @return регулярное выражение.
+		 */
+		@NotNull
+		public String getRegexp()
+		{
+			return this.regexp;
+		}
+
+		/**
+		 * Возвращает количество совпадений правила во всех файлах.
+		 *
+		 * @return количество совпадений.
+		 */
+		public long getMatches()
+		{
+			return this.matches;
+		}
+
+		/**
+		 * Возвращает процессорное время выполнения правила во всех файлах.
+		 * <p>
+		 * Для правил, объединённых в один проход, возвращается время всего прохода.
+		 *
+		 * @return время выполнения.
+		 */
+		@NotNull
+		public Duration getTime()
+		{
+			return this.time;
+		}
+	}
+}
@@ -0,0 +1,567 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Класс цепочки правил замены, выполняемой над байтами UTF-8.
+ * <p>
+ * Цепочка применима к правилам, шаблон которых состоит из литералов и классов
+ * ASCII-символов без квантификаторов, а строка замены литеральная. Такой шаблон
+ * совпадает с последовательностью байтов фиксированной длины: символ ASCII
+ * занимает один байт и не встречается внутри многобайтовых последовательностей
+ * UTF-8, поэтому совпадение по байтам всегда начинается на границе символа.
+ * Текст не декодируется в строку, а байты замены вставляются в результат напрямую.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class ByteChain
+{
+	/**
+	 * Символы, имеющие специальное значение в шаблоне.
+	 */
+	@NotNull
+	private static final String META_SYMBOLS = "\\[](){}.*+?^$|";
+
+	/**
+	 * Правила в порядке выполнения.
+	 */
+	@NotNull
+	private final List<@NotNull ByteRule> rules;
+
+	/**
+	 * Конструктор для {@code ByteChain}.
+	 *
+	 * @param rules правила в порядке выполнения.
+	 */
+	private ByteChain(@NotNull final List<@NotNull ByteRule> rules)
+	{
+		this.rules = rules;
+	}
+
+	/**
+	 * Компилирует цепочку правил.
+	 *
+	 * @param rules правила в порядке выполнения.
+	 * @return цепочку или {@code null}, если хотя бы одно правило невозможно выполнить над байтами.
+	 * @throws NullPointerException если в качестве {@code rules} передан {@code null}.
+	 */
+	@Nullable
+	public static ByteChain compile(@NotNull final List<@NotNull Rule> rules)
+	{
+		Objects.requireNonNull(rules);
+
+		List<ByteRule> byteRules = new ArrayList<>();
+
+		for (Rule rule : rules)
+		{
+			ByteRule byteRule = ByteRule.compile(rule);
+
+			if (byteRule == null) {
+				return null;
+			}
+
+			byteRules.add(byteRule);
+		}
+
+		return new ByteChain(List.copyOf(byteRules));
+	}
+
+	/**
+	 * Выполняет все правила цепочки.
+	 *
+	 * @param value байты текста в UTF-8.
+	 * @return байты текста после замены или {@code value}, если ни одно правило не нашло совпадений.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 */
+	public byte @NotNull [] apply(final byte @NotNull [] value)
+	{
+		return this.apply(value, null);
+	}
+
+	/**
+	 * Выполняет все правила цепочки с учётом статистики правил.
+	 *
+	 * @param value байты текста в UTF-8.
+	 * @param statistics счётчики замены или {@code null}, если статистика не собирается.
+	 * @return байты текста после замены или {@code value}, если ни одно правило не нашло совпадений.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 */
+	public byte @NotNull [] apply(final byte @NotNull [] value, @Nullable final Statistics statistics)
+	{
+		Objects.requireNonNull(value);
+
+		byte[] result = value;
+
+		for (int index = 0; index < this.rules.size(); index++)
+		{
+			if (statistics == null)
+			{
+				result = this.rules.get(index).apply(result, null);
+			}
+			else
+			{
+				long[] matches = new long[1];
+				long start = Statistics.getCpuTime();
+
+				result = this.rules.get(index).apply(result, matches);
+
+				statistics.addRule(index, matches[0], Statistics.getCpuTime() - start);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Класс правила замены над байтами.
+	 */
+	private static final class ByteRule
+	{
+		/**
+		 * Допустимые байты для каждой позиции совпадения.
+		 */
+		private final boolean @NotNull [] @NotNull [] positions;
+
+		/**
+		 * Байты совпадения, если каждой позиции соответствует один байт.
+		 */
+		private final byte @Nullable [] needle;
+
+		/**
+		 * Таблица сдвигов для {@code needle}.
+		 */
+		private final int @Nullable [] shifts;
+
+		/**
+		 * Байты замены.
+		 */
+		private final byte @NotNull [] replacement;
+
+		/**
+		 * Конструктор для {@code ByteRule}.
+		 *
+		 * @param positions допустимые байты для каждой позиции совпадения.
+		 * @param replacement байты замены.
+		 */
+		private ByteRule(final boolean @NotNull [] @NotNull [] positions, final byte @NotNull [] replacement)
+		{
+			this.positions = positions;
+			this.replacement = replacement;
+
+			byte[] needle = new byte[positions.length];
+
+			for (int index = 0; index < positions.length && needle != null; index++)
+			{
+				int single = ByteRule.single(positions[index]);
+
+				if (single < 0) {
+					needle = null;
+				}
+				else {
+					needle[index] = (byte) single;
+				}
+			}
+
+			this.needle = needle;
+			this.shifts = needle == null ? null : Prefilter.shifts(needle);
+		}
+
+		/**
+		 * Компилирует правило.
+		 *
+		 * @param rule правило.
+		 * @return правило над байтами или {@code null}, если правило невозможно выполнить над байтами.
+		 */
+		@Nullable
+		private static ByteRule compile(@NotNull final Rule rule)
+		{
+			if (rule.getSpecialRule() != null || !rule.getTemplate().isLiteral() || rule.getPattern().flags() != 0) {
+				return null;
+			}
+
+			String regexp = rule.getRegexp();
+			List<boolean[]> positions = new ArrayList<>();
+			int index = 0;
+
+			while (index < regexp.length())
+			{
+				char symbol = regexp.charAt(index);
+
+				if (symbol == '\\')
+				{
+					if (index + 1 >= regexp.length()) {
+						return null;
+					}
+
+					boolean[] set = ByteRule.escape(regexp.charAt(index + 1));
+
+					if (set == null) {
+						return null;
+					}
+
+					positions.add(set);
+					index += 2;
+				}
+				else if (symbol == '[')
+				{
+					boolean[] set = new boolean[256];
+
+					index = ByteRule.parseClass(regexp, index, set);
+
+					if (index < 0) {
+						return null;
+					}
+
+					positions.add(set);
+				}
+				else if (META_SYMBOLS.indexOf(symbol) >= 0)
+				{
+					return null;
+				}
+				else
+				{
+					int codePoint = regexp.codePointAt(index);
+
+					if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT && Character.isSurrogate((char) codePoint)) {
+						return null;
+					}
+
+					for (byte encoded : Character.toString(codePoint).getBytes(StandardCharsets.UTF_8)) {
+						positions.add(ByteRule.set(encoded & 0xFF));
+					}
+
+					index += Character.charCount(codePoint);
+				}
+			}
+
+			if (positions.isEmpty()) {
+				return null;
+			}
+
+			return new ByteRule(
+				positions.toArray(new boolean[0][]),
+				String.join("", rule.getTemplate().getLiterals()).getBytes(StandardCharsets.UTF_8)
+			);
+		}
+
+		/**
+		 * Выполняет правило.
+		 *
+		 * @param value байты текста.
+		 * @param matches массив из одного элемента, к которому прибавляется количество совпадений,
+		 * или {@code null}, если совпадения не подсчитываются.
+		 * @return байты текста после замены или {@code value}, если совпадений нет.
+		 */
+		private byte @NotNull [] apply(final byte @NotNull [] value, final long @Nullable [] matches)
+		{
+			int position = this.find(value, 0);
+
+			if (position < 0) {
+				return value;
+			}
+
+			int length = this.positions.length;
+
+			if (this.replacement.length == length)
+			{
+				byte[] result = value.clone();
+
+				while (position >= 0)
+				{
+					System.arraycopy(this.replacement, 0, result, position, length);
+
+					if (matches != null) {
+						matches[0]++;
+					}
+
+					position = this.find(value, position + length);
+				}
+
+				return result;
+			}
+
+			byte[] result = new byte[value.length + Math.max(0, this.replacement.length - length) * 16];
+			int size = 0;
+			int last = 0;
+
+			while (position >= 0)
+			{
+				int required = size + (position - last) + this.replacement.length;
+
+				if (required > result.length) {
+					result = Arrays.copyOf(result, Math.max(required, result.length * 2));
+				}
+
+				System.arraycopy(value, last, result, size, position - last);
+				size += position - last;
+				System.arraycopy(this.replacement, 0, result, size, this.replacement.length);
+				size += this.replacement.length;
+
+				if (matches != null) {
+					matches[0]++;
+				}
+
+				last = position + length;
+				position = this.find(value, last);
+			}
+
+			if (size + (value.length - last) > result.length) {
+				result = Arrays.copyOf(result, size + (value.length - last));
+			}
+
+			System.arraycopy(value, last, result, size, value.length - last);
+			size += value.length - last;
+
+			return size == result.length ? result : Arrays.copyOf(result, size);
+		}
+
+		/**
+		 * Ищет совпадение.
+		 *
+		 * @param value байты текста.
+		 * @param from индекс, с которого начинается поиск.
+		 * @return индекс начала совпадения или {@code -1}, если совпадение не найдено.
+		 */
+		private int find(final byte @NotNull [] value, final int from)
+		{
+			if (this.needle != null) {
+				return Prefilter.indexOf(value, from, value.length, this.needle, Objects.requireNonNull(this.shifts));
+			}
+
+			boolean[] first = this.positions[0];
+			int end = value.length - this.positions.length;
+
+			for (int position = from; position <= end; position++)
+			{
+				if (!first[value[position] & 0xFF]) {
+					continue;
+				}
+
+				int index = 1;
+
+				while (index < this.positions.length && this.positions[index][value[position + index] & 0xFF]) {
+					index++;
+				}
+
+				if (index == this.positions.length) {
+					return position;
+				}
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Разбирает класс символов ASCII.
+		 *
+		 * @param regexp шаблон регулярного выражения.
+		 * @param index индекс символа {@code [}.
+		 * @param set допустимые байты, дополняемые символами класса.
+		 * @return индекс символа после класса или {@code -1}, если класс не поддерживается.
+		 */
+		private static int parseClass(@NotNull final String regexp, final int index, final boolean @NotNull [] set)
+		{
+			int position = index + 1;
+			boolean first = true;
+
+			while (position < regexp.length())
+			{
+				char symbol = regexp.charAt(position);
+
+				if (symbol == ']' && !first) {
+					return position + 1;
+				}
+
+				if (symbol == '[' || symbol == ']' || symbol == '^' && first || regexp.startsWith("&&", position)) {
+					return -1;
+				}
+
+				first = false;
+
+				int low = ByteRule.classSymbol(regexp, position, set);
+
+				if (low == -1) {
+					return -1;
+				}
+
+				position += symbol == '\\' ? 2 : 1;
+
+				if (low == -2) {
+					continue;
+				}
+
+				if (position + 1 < regexp.length() && regexp.charAt(position) == '-' && regexp.charAt(position + 1) != ']')
+				{
+					int high = ByteRule.classSymbol(regexp, position + 1, null);
+
+					if (high < low) {
+						return -1;
+					}
+
+					position += regexp.charAt(position + 1) == '\\' ? 3 : 2;
+
+					Arrays.fill(set, low, high + 1, true);
+				}
+				else
+				{
+					set[low] = true;
+				}
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Разбирает символ класса.
+		 *
+		 * @param regexp шаблон регулярного выражения.
+		 * @param position индекс символа.
+		 * @param set допустимые байты, дополняемые встроенным классом, или {@code null}, если встроенный класс недопустим.
+		 * @return код символа, {@code -2}, если добавлен встроенный класс, или {@code -1}, если символ не поддерживается.
+		 */
+		private static int classSymbol(@NotNull final String regexp, final int position, final boolean @Nullable [] set)
+		{
+			char symbol = regexp.charAt(position);
+
+			if (symbol != '\\') {
+				return symbol < 0x80 && symbol != '[' ? symbol : -1;
+			}
+
+			if (position + 1 >= regexp.length()) {
+				return -1;
+			}
+
+			boolean[] escaped = ByteRule.escape(regexp.charAt(position + 1));
+
+			if (escaped == null) {
+				return -1;
+			}
+
+			int single = ByteRule.single(escaped);
+
+			if (single >= 0) {
+				return single;
+			}
+
+			if (set == null) {
+				return -1;
+			}
+
+			for (int index = 0; index < escaped.length; index++) {
+				set[index] |= escaped[index];
+			}
+
+			return -2;
+		}
+
+		/**
+		 * Возвращает допустимые байты экранированной последовательности.
+		 *
+		 * @param escaped символ после {@code \}.
+		 * @return допустимые байты или {@code null}, если последовательность не поддерживается.
+		 */
+		private static boolean @Nullable [] escape(final char escaped)
+		{
+			return switch (escaped)
+			{
+				case 'd' -> ByteRule.set("0123456789");
+				case 'w' -> ByteRule.set("abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_");
+				case 's' -> ByteRule.set(" \t\n\u000B\f\r");
+				case 't' -> ByteRule.set('\t');
+				case 'n' -> ByteRule.set('\n');
+				case 'r' -> ByteRule.set('\r');
+				case 'f' -> ByteRule.set('\f');
+				case 'e' -> ByteRule.set(0x1B);
+				case 'a' -> ByteRule.set(0x07);
+				default -> escaped < 0x80 && !Character.isLetterOrDigit(escaped) ? ByteRule.set(escaped) : null;
+			};
+		}
+
+		/**
+		 * Возвращает набор из одного байта.
+		 *
+		 * @param value байт.
+		 * @return допустимые байты.
+		 */
+		private static boolean @NotNull [] set(final int value)
+		{
+			boolean[] set = new boolean[256];
+			set[value] = true;
+
+			return set;
+		}
+
+		/**
+		 * Возвращает набор символов ASCII.
+		 *
+		 * @param symbols символы.
+		 * @return допустимые байты.
+		 */
+		private static boolean @NotNull [] set(@NotNull final String symbols)
+		{
+			boolean[] set = new boolean[256];
+
+			for (int index = 0; index < symbols.length(); index++) {
+				set[symbols.charAt(index)] = true;
+			}
+
+			return set;
+		}
+
+		/**
+		 * Возвращает единственный допустимый байт набора.
+		 *
+		 * @param set допустимые байты.
+		 * @return байт или {@code -1}, если допустимых байтов больше одного.
+		 */
+		private static int single(final boolean @NotNull [] set)
+		{
+			int single = -1;
+
+			for (int index = 0; index < set.length; index++)
+			{
+				if (set[index])
+				{
+					if (single >= 0) {
+						return -1;
+					}
+
+					single = index;
+				}
+			}
+
+			return single;
+		}
+	}
+}
@@ -24,15 +24,42 @@
 
 package dev.kalenchukov.replaceinfiles.modules;
 
+import dev.kalenchukov.replaceinfiles.resources.Durability;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
 
 /**
  * Класс работы с файлами.
+ * <p>
+ * Методы чтения, записи и сканирования не изменяют состояние объекта, поэтому
+ * их можно вызывать из нескольких потоков одновременно, если настройки
+ * не изменяются во время работы.
  *
  * @author Алексей Каленчуков
  */
@@ -49,6 +76,141 @@ public class FileExpert implements FileExperts
 	 */
 	private boolean canHidden;
 
+	/**
+	 * Количество потоков сканирования директорий.
+	 */
+	private int parallelism;
+
+	/**
+	 * Атомарная запись файлов через временный файл.
+	 */
+	private boolean atomic;
+
+	/**
+	 * Режим надёжности записи.
+	 */
+	@NotNull
+	private Durability durability;
+
+	/**
+	 * Количество файлов в группе сброса данных на диск.
+	 */
+	private int batchFiles;
+
+	/**
+	 * Время накопления группы сброса данных на диск в миллисекундах.
+	 */
+	private long batchMillis;
+
+	/**
+	 * Шаблоны файлов, которые необходимо добавлять.
+	 */
+	@NotNull
+	private final List<@NotNull Glob> includes;
+
+	/**
+	 * Шаблоны файлов и директорий, которые необходимо пропускать.
+	 */
+	@NotNull
+	private final List<@NotNull Glob> excludes;
+
+	/**
+	 * Минимальный размер файла в байтах.
+	 */
+	private long minSize;
+
+	/**
+	 * Максимальный размер файла в байтах.
+	 */
+	private long maxSize;
+
+	/**
+	 * Максимальная глубина сканирования директорий.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Определение двоичных файлов.
+	 */
+	private boolean binaryDetection;
+
+	/**
+	 * Расширения файлов, которые всегда считаются текстовыми.
+	 */
+	@NotNull
+	private Set<@NotNull String> textExtensions;
+
+	/**
+	 * Расширения файлов, которые всегда считаются двоичными.
+	 */
+	@NotNull
+	private Set<@NotNull String> binaryExtensions;
+
+	/**
+	 * Обработка архивов как контейнеров.
+	 */
+	private boolean archives;
+
+	/**
+	 * Расширения архивов, обрабатываемых как контейнеры.
+	 */
+	@NotNull
+	private static final Set<@NotNull String> ARCHIVE_EXTENSIONS = Set.of("zip", "jar", "war", "ear");
+
+	/**
+	 * Сигнатура записи конца центрального каталога архива ZIP.
+	 */
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+	/**
+	 * Размер записи конца центрального каталога архива ZIP без комментария.
+	 */
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+	/**
+	 * Количество первых байтов файла, по которым определяются двоичные файлы.
+	 */
+	private static final int SNIFF_SIZE = 8 * 1024;
+
+	/**
+	 * Доля подозрительных байтов, при превышении которой файл считается двоичным.
+	 */
+	private static final double BINARY_RATIO = 0.3;
+
+	/**
+	 * Сигнатуры двоичных форматов.
+	 * <p>
+	 * ZIP и JAR, class, PNG, GIF, JPEG, PDF, ELF, SQLite, GZIP.
+	 */
+	private static final byte @NotNull [] @NotNull [] MAGIC_NUMBERS = {
+		{0x50, 0x4B, 0x03, 0x04},
+		{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE},
+		{(byte) 0x89, 0x50, 0x4E, 0x47},
+		{0x47, 0x49, 0x46, 0x38},
+		{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+		{0x25, 0x50, 0x44, 0x46, 0x2D},
+		{0x7F, 0x45, 0x4C, 0x46},
+		"SQLite format 3\0".getBytes(StandardCharsets.US_ASCII),
+		{0x1F, (byte) 0x8B}
+	};
+
+	/**
+	 * Записанные файлы, ожидающие сброса данных на диск.
+	 */
+	@NotNull
+	private final List<@NotNull PendingFile> pendingFiles;
+
+	/**
+	 * Файлы, которые не удалось сохранить при сбросе группы, и ошибки.
+	 */
+	@NotNull
+	private final Map<@NotNull File, @NotNull IOException> failedFiles;
+
+	/**
+	 * Время начала накопления группы в миллисекундах.
+	 */
+	private long batchStart;
+
 	/**
 	 * Локализованные тексты логирования.
 	 */
@@ -74,6 +236,23 @@ public class FileExpert implements FileExperts
 	{
 		this.locale = new Locale("ru", "RU");
 		this.canHidden = false;
+		this.parallelism = 1;
+		this.atomic = false;
+		this.durability = Durability.NONE;
+		this.batchFiles = 1000;
+		this.batchMillis = 1000;
+		this.includes = new ArrayList<>();
+		this.excludes = new ArrayList<>();
+		this.minSize = 0;
+		this.maxSize = Long.MAX_VALUE;
+		this.maxDepth = Integer.MAX_VALUE;
+		this.binaryDetection = false;
+		this.textExtensions = Set.of();
+		this.binaryExtensions = Set.of();
+		this.archives = false;
+		this.pendingFiles = new ArrayList<>();
+		this.failedFiles = new LinkedHashMap<>();
+		this.batchStart = 0;
 		this.localeLogs = ResourceBundle.getBundle(
 			"replaceinfiles/localizations/logs",
 			this.locale
@@ -84,6 +263,41 @@ public class FileExpert implements FileExperts
 		);
 	}
 
+	/**
+	 * Конструктор для {@code FileExpert}, копирующий параметры другого объекта.
+	 * <p>
+	 * Файлы, ожидающие сброса на диск, не копируются.
+	 *
+	 * @param fileExpert объект, параметры которого копируются.
+	 * @throws NullPointerException если в качестве {@code fileExpert} передан {@code null}.
+	 */
+	public FileExpert(@NotNull final FileExpert fileExpert)
+	{
+		Objects.requireNonNull(fileExpert);
+
+		this.locale = fileExpert.locale;
+		this.canHidden = fileExpert.canHidden;
+		this.parallelism = fileExpert.parallelism;
+		this.atomic = fileExpert.atomic;
+		this.durability = fileExpert.durability;
+		this.batchFiles = fileExpert.batchFiles;
+		this.batchMillis = fileExpert.batchMillis;
+		this.includes = new ArrayList<>(fileExpert.includes);
+		this.excludes = new ArrayList<>(fileExpert.excludes);
+		this.minSize = fileExpert.minSize;
+		this.maxSize = fileExpert.maxSize;
+		this.maxDepth = fileExpert.maxDepth;
+		this.binaryDetection = fileExpert.binaryDetection;
+		this.textExtensions = fileExpert.textExtensions;
+		this.binaryExtensions = fileExpert.binaryExtensions;
+		this.archives = fileExpert.archives;
+		this.pendingFiles = new ArrayList<>();
+		this.failedFiles = new LinkedHashMap<>();
+		this.batchStart = 0;
+		this.localeLogs = fileExpert.localeLogs;
+		this.localeExceptions = fileExpert.localeExceptions;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -144,149 +358,1675 @@ public class FileExpert implements FileExperts
 	/**
 	 * {@inheritDoc}
 	 *
-	 * @param file {@inheritDoc}
-	 * @param value {@inheritDoc}
-	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
-	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 * @param parallelism {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
 	 */
 	@Override
-	public void writeFile(@NotNull final File file, @NotNull final String value)
+	@NotNull
+	public FileExperts setParallelism(final int parallelism)
 	{
-		Objects.requireNonNull(file);
-		Objects.requireNonNull(value);
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(String.format(
+				this.localeExceptions.getString("40003"),
+				parallelism
+			));
+		}
 
-		try (FileOutputStream fileOutputStream = new FileOutputStream(file))
-		{
-			fileOutputStream.write(value.getBytes());
+		this.parallelism = parallelism;
 
-			LOG.debug(String.format(
-				this.localeLogs.getString("00006"),
-				file.getPath()
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param atomic {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public FileExperts setAtomic(final boolean atomic)
+	{
+		this.atomic = atomic;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param durability {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code durability} передан {@code null}.
+	 */
+	@Override
+	@NotNull
+	public FileExperts setDurability(@NotNull final Durability durability)
+	{
+		Objects.requireNonNull(durability);
+
+		this.durability = durability;
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param files {@inheritDoc}
+	 * @param millis {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public FileExperts setDurabilityBatch(final int files, final long millis)
+	{
+		if (files < 1 || millis < 0) {
+			throw new IllegalArgumentException(String.format(
+				this.localeExceptions.getString("40006"),
+				files,
+				millis
 			));
 		}
-		catch (IOException exception)
-		{
-			exception.printStackTrace();
-		}
+
+		this.batchFiles = files;
+		this.batchMillis = millis;
+
+		return this;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 *
-	 * @param file {@inheritDoc}
+	 * @param glob {@inheritDoc}
 	 * @return {@inheritDoc}
-	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code glob} передан {@code null}.
+	 * @throws IllegalArgumentException {@inheritDoc}
 	 */
 	@Override
 	@NotNull
-	public String readFile(@NotNull final File file)
+	public FileExperts addInclude(@NotNull final String glob)
 	{
-		Objects.requireNonNull(file);
+		Objects.requireNonNull(glob);
 
-		String value = "";
+		this.includes.add(new Glob(glob));
 
-		try (FileInputStream fileInputStream = new FileInputStream(file))
-		{
-			value = new String(fileInputStream.readAllBytes());
+		return this;
+	}
 
-			LOG.debug(String.format(
-				this.localeLogs.getString("00007"),
-				file.getPath()
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param glob {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code glob} передан {@code null}.
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public FileExperts addExclude(@NotNull final String glob)
+	{
+		Objects.requireNonNull(glob);
+
+		this.excludes.add(new Glob(glob));
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param min {@inheritDoc}
+	 * @param max {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public FileExperts setFileSize(final long min, final long max)
+	{
+		if (min < 0 || max < min) {
+			throw new IllegalArgumentException(String.format(
+				this.localeExceptions.getString("40008"),
+				min,
+				max
 			));
 		}
-		catch (IOException exception)
-		{
-			exception.printStackTrace();
-		}
 
-		return value;
+		this.minSize = min;
+		this.maxSize = max;
+
+		return this;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 *
-	 * @param file {@inheritDoc}
+	 * @param depth {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalArgumentException {@inheritDoc}
 	 */
 	@Override
-	public void cleanFile(@NotNull final File file)
+	@NotNull
+	public FileExperts setMaxDepth(final int depth)
 	{
-		this.writeFile(file, "");
+		if (depth < 1) {
+			throw new IllegalArgumentException(String.format(
+				this.localeExceptions.getString("40009"),
+				depth
+			));
+		}
+
+		this.maxDepth = depth;
+
+		return this;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 *
-	 * @param directory {@inheritDoc}
+	 * @param binaryDetection {@inheritDoc}
 	 * @return {@inheritDoc}
-	 * @throws NullPointerException если в качестве {@code directory} передан {@code null}.
 	 */
 	@Override
 	@NotNull
-	public List<File> scanDirectory(@NotNull final File directory)
+	public FileExperts setBinaryDetection(final boolean binaryDetection)
 	{
-		Objects.requireNonNull(directory);
+		this.binaryDetection = binaryDetection;
 
-		List<File> foundFiles = new ArrayList<>();
+		return this;
+	}
 
-		try
-		{
-			if (directory.isHidden() && !canHidden) {
-				LOG.debug(String.format(
-					this.localeLogs.getString("00009"),
-					directory.getPath()
-				));
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param extensions {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code extensions} передан {@code null}.
+	 */
+	@Override
+	@NotNull
+	public FileExperts setTextExtensions(@NotNull final Set<@NotNull String> extensions)
+	{
+		this.textExtensions = FileExpert.normalizeExtensions(extensions);
 
-				return foundFiles;
-			}
+		return this;
+	}
 
-			if (!directory.canRead()) {
-				LOG.debug(String.format(
-					this.localeLogs.getString("00004"),
-					directory.getPath()
-				));
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param extensions {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code extensions} передан {@code null}.
+	 */
+	@Override
+	@NotNull
+	public FileExperts setBinaryExtensions(@NotNull final Set<@NotNull String> extensions)
+	{
+		this.binaryExtensions = FileExpert.normalizeExtensions(extensions);
 
-				return foundFiles;
-			}
+		return this;
+	}
 
-			File[] files = Objects.requireNonNull(directory.listFiles());
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param archives {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public FileExperts setArchives(final boolean archives)
+	{
+		this.archives = archives;
 
-			for (File file : files)
-			{
-				if (file.isHidden() && !canHidden) {
-					LOG.debug(String.format(
-						this.localeLogs.getString("00008"),
-						file
-					));
+		return this;
+	}
 
-					continue;
-				}
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @param value {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public void writeFile(@NotNull final File file, @NotNull final String value) throws IOException
+	{
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(value);
 
-				if (!file.canRead()) {
-					LOG.debug(String.format(
-						this.localeLogs.getString("00004"),
-						file
-					));
+		this.writeFile(file, value.getBytes());
+	}
 
-					continue;
-				}
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @param bytes {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code bytes} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public void writeFile(@NotNull final File file, final byte @NotNull [] bytes) throws IOException
+	{
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(bytes);
 
-				if (file.isDirectory()) {
-					foundFiles.addAll(this.scanDirectory(file));
-				}
-				else {
-					LOG.debug(String.format(
-						this.localeLogs.getString("00005"),
-						file.getPath()
-					));
+		if (!this.atomic)
+		{
+			try (FileOutputStream fileOutputStream = new FileOutputStream(file))
+			{
+				fileOutputStream.write(bytes);
 
-					foundFiles.add(file);
+				if (this.durability == Durability.FILE) {
+					fileOutputStream.getChannel().force(true);
 				}
 			}
-		}
-		catch (Exception exception) {
-			exception.printStackTrace();
-		}
 
-		return foundFiles;
+			if (this.durability == Durability.BATCH) {
+				this.addPending(new PendingFile(null, file.toPath()));
+			}
+		}
+		else
+		{
+			Path path = file.toPath();
+			Path temp = this.createTemp(path);
+			boolean committed = false;
+
+			try
+			{
+				try (FileOutputStream fileOutputStream = new FileOutputStream(temp.toFile())) {
+					fileOutputStream.write(bytes);
+				}
+
+				this.commit(temp, path);
+
+				committed = true;
+			}
+			finally
+			{
+				if (!committed) {
+					Files.deleteIfExists(temp);
+				}
+			}
+		}
+
+		this.debug("00006", file.getPath());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public String readFile(@NotNull final File file)
+		throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		String value;
+
+		try (FileInputStream fileInputStream = new FileInputStream(file))
+		{
+			value = new String(fileInputStream.readAllBytes());
+		}
+
+		this.debug("00007", file.getPath());
+
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public boolean isBinary(@NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		if (!this.binaryDetection) {
+			return false;
+		}
+
+		boolean binary = this.isBinary(file.toPath());
+
+		if (binary)
+		{
+			this.debug("00016", file.getPath());
+		}
+
+		return binary;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public byte @NotNull [] readBytes(@NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+
+		this.debug("00007", file.getPath());
+
+		return bytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public MappedText mapFile(@NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		MappedText text = new MappedText(file.toPath(), Charset.defaultCharset());
+
+		this.debug("00007", file.getPath());
+
+		return text;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public Reader openFile(@NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		Reader reader = new InputStreamReader(new FileInputStream(file), Charset.defaultCharset());
+
+		this.debug("00007", file.getPath());
+
+		return reader;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @param processor {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code processor} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public boolean rewriteFile(@NotNull final File file, @NotNull final TextProcessor processor) throws IOException
+	{
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(processor);
+
+		Path path = file.toPath();
+		Path temp = this.createTemp(path);
+		boolean changed;
+		boolean committed = false;
+
+		try
+		{
+			try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.defaultCharset()));
+				 Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp.toFile()), Charset.defaultCharset())))
+			{
+				changed = processor.process(reader, writer);
+			}
+
+			this.debug("00007", file.getPath());
+
+			if (changed)
+			{
+				this.commit(temp, path);
+
+				committed = true;
+
+				this.debug("00006", file.getPath());
+			}
+		}
+		finally
+		{
+			if (!committed) {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 */
+	@Override
+	public boolean isArchive(@NotNull final File file)
+	{
+		Objects.requireNonNull(file);
+
+		return this.archives && ARCHIVE_EXTENSIONS.contains(FileExpert.getExtension(file.toPath()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Архив открывается поставщиком файловой системы ZIP, который при закрытии копирует
+	 * неизменённые файлы архива в сжатом виде, а изменённые сжимает заново. Результат обработки
+	 * файла архива записывается во временный файл рядом с архивом и копируется в архив, только
+	 * если текст изменён, поэтому архив без совпадений не перезаписывается. Содержимое
+	 * изменённых файлов до закрытия архива хранится во временных файлах на диске, а не в памяти.
+	 * Поставщик файловой системы ZIP не сохраняет комментарий архива, поэтому комментарий
+	 * дописывается в изменённый архив после его закрытия.
+	 *
+	 * @param file {@inheritDoc}
+	 * @param processors {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code processors} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public boolean rewriteArchive(@NotNull final File file,
+								  @NotNull final Function<@NotNull File, @NotNull TextProcessor> processors)
+		throws IOException
+	{
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(processors);
+
+		Path path = file.toPath();
+		String comment;
+
+		try (ZipFile zipFile = new ZipFile(file)) {
+			comment = zipFile.getComment();
+		}
+
+		Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "." + path.getFileName(), ".tmp");
+		boolean changed = false;
+
+		try (FileSystem archive = FileSystems.newFileSystem(path, Map.of("useTempFile", Boolean.TRUE)))
+		{
+			List<Path> entries;
+
+			try (Stream<Path> stream = Files.walk(archive.getPath("/"))) {
+				entries = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+			}
+
+			for (Path entry : entries)
+			{
+				if (this.isBinary(entry)) {
+					continue;
+				}
+
+				String name = entry.toString().substring(1);
+				boolean entryChanged;
+
+				try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(entry), Charset.defaultCharset()));
+					 Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp), Charset.defaultCharset())))
+				{
+					entryChanged = processors.apply(new File(file, name)).process(reader, writer);
+				}
+
+				if (entryChanged)
+				{
+					try (OutputStream output = Files.newOutputStream(entry)) {
+						Files.copy(temp, output);
+					}
+
+					changed = true;
+
+					this.debug("00028", name, file.getPath());
+				}
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+
+		if (changed && comment != null && !comment.isEmpty()) {
+			FileExpert.restoreComment(path, comment);
+		}
+
+		this.debug("00007", file.getPath());
+
+		if (changed) {
+			this.debug("00006", file.getPath());
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Дописывает комментарий в архив ZIP без комментария.
+	 *
+	 * @param path архив.
+	 * @param comment комментарий.
+	 * @throws IOException если архив не заканчивается записью конца центрального каталога
+	 * без комментария или произошла ошибка ввода-вывода.
+	 */
+	private static void restoreComment(@NotNull final Path path, @NotNull final String comment)
+		throws IOException
+	{
+		byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+
+		if (bytes.length > 0xFFFF) {
+			throw new IOException("ZIP comment is too long");
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			long position = channel.size() - END_OF_CENTRAL_DIRECTORY_SIZE;
+			ByteBuffer record = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+			if (position < 0 || channel.read(record, position) != END_OF_CENTRAL_DIRECTORY_SIZE ||
+				record.getInt(0) != END_OF_CENTRAL_DIRECTORY || record.getShort(20) != 0)
+			{
+				throw new IOException("ZIP end of central directory not found");
+			}
+
+			record.putShort(20, (short) bytes.length);
+			record.rewind();
+
+			channel.write(record, position);
+			channel.write(ByteBuffer.wrap(bytes), position + END_OF_CENTRAL_DIRECTORY_SIZE);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	@NotNull
+	public Map<@NotNull File, @NotNull IOException> flush()
+	{
+		this.flushPending();
+
+		synchronized (this.pendingFiles)
+		{
+			Map<File, IOException> failures = Collections.unmodifiableMap(new LinkedHashMap<>(this.failedFiles));
+
+			this.failedFiles.clear();
+
+			return failures;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param file {@inheritDoc}
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public void cleanFile(@NotNull final File file) throws IOException
+	{
+		this.writeFile(file, "");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param directory {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code directory} передан {@code null}.
+	 */
+	@Override
+	@NotNull
+	public List<File> scanDirectory(@NotNull final File directory)
+	{
+		Objects.requireNonNull(directory);
+
+		if (this.parallelism == 1)
+		{
+			List<File> foundFiles = new ArrayList<>();
+
+			this.scanDirectory(directory, foundFiles::add);
+
+			return foundFiles;
+		}
+
+		Queue<File> foundFiles = new ConcurrentLinkedQueue<>();
+
+		this.scanDirectory(directory, foundFiles::add);
+
+		return new ArrayList<>(foundFiles);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param directory {@inheritDoc}
+	 * @param consumer {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code directory} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code consumer} передан {@code null}.
+	 */
+	@Override
+	public void scanDirectory(@NotNull final File directory, @NotNull final Consumer<@NotNull File> consumer)
+	{
+		Objects.requireNonNull(directory);
+		Objects.requireNonNull(consumer);
+
+		Path root = directory.toPath();
+
+		if (!this.canVisitDirectory(root)) {
+			return;
+		}
+
+		try
+		{
+			if (this.parallelism == 1)
+			{
+				Files.walkFileTree(
+					root,
+					EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+					this.maxDepth,
+					new ScanVisitor(root, new HashSet<>(), consumer)
+				);
+
+				return;
+			}
+
+			Set<Object> visited = ConcurrentHashMap.newKeySet();
+			visited.add(FileExpert.fileKey(root, null));
+
+			ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+			try
+			{
+				pool.invoke(new ScanTask(root, root, 0, visited, consumer));
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+		catch (IOException exception)
+		{
+			LOG.error(String.format(
+				this.localeLogs.getString("00004"),
+				directory.getPath()
+			), exception);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param root {@inheritDoc}
+	 * @param file {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws NullPointerException если в качестве {@code root} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException {@inheritDoc}
+	 */
+	@Override
+	public boolean canScan(@NotNull final File root, @NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(root);
+		Objects.requireNonNull(file);
+
+		Path rootPath = root.toPath();
+		Path path = file.toPath();
+
+		if (rootPath.equals(path)) {
+			return this.canVisitDirectory(path);
+		}
+
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		int depth = rootPath.relativize(path).getNameCount();
+
+		if (attributes.isDirectory()) {
+			return depth < this.maxDepth && this.canVisitDirectory(rootPath, path);
+		}
+
+		return depth <= this.maxDepth && this.canVisitFile(rootPath, path, attributes);
+	}
+
+	/**
+	 * Проверяет, нужно ли просматривать поддиректорию.
+	 *
+	 * @param root корневая директория.
+	 * @param directory директория.
+	 * @return {@code true}, если директория не исключена шаблонами и может быть просмотрена, иначе {@code false}.
+	 */
+	private boolean canVisitDirectory(@NotNull final Path root, @NotNull final Path directory)
+	{
+		if (FileExpert.matchesAny(this.excludes, root.relativize(directory)))
+		{
+			this.debug("00019", directory);
+
+			return false;
+		}
+
+		return this.canVisitDirectory(directory);
+	}
+
+	/**
+	 * Проверяет, нужно ли просматривать директорию.
+	 *
+	 * @param directory директория.
+	 * @return {@code true}, если директория не скрыта или действие на скрытые файлы распространяется
+	 * и директория доступна для чтения, иначе {@code false}.
+	 */
+	private boolean canVisitDirectory(@NotNull final Path directory)
+	{
+		if (!this.canHidden && FileExpert.isHidden(directory))
+		{
+			this.debug("00009", directory);
+
+			return false;
+		}
+
+		if (!Files.isReadable(directory))
+		{
+			this.debug("00004", directory);
+
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Проверяет, нужно ли добавлять файл.
+	 *
+	 * @param root корневая директория.
+	 * @param file файл.
+	 * @param attributes атрибуты файла.
+	 * @return {@code true}, если файл не скрыт или действие на скрытые файлы распространяется,
+	 * файл соответствует шаблонам и ограничениям размера и доступен для чтения, иначе {@code false}.
+	 */
+	private boolean canVisitFile(@NotNull final Path root,
+								 @NotNull final Path file,
+								 @NotNull final BasicFileAttributes attributes)
+	{
+		if (!this.canHidden && FileExpert.isHidden(file))
+		{
+			this.debug("00008", file);
+
+			return false;
+		}
+
+		Path relative = root.relativize(file);
+
+		if (FileExpert.matchesAny(this.excludes, relative) ||
+			!this.includes.isEmpty() && !FileExpert.matchesAny(this.includes, relative) ||
+			attributes.size() < this.minSize || attributes.size() > this.maxSize)
+		{
+			this.debug("00018", file);
+
+			return false;
+		}
+
+		if (!Files.isReadable(file))
+		{
+			this.debug("00004", file);
+
+			return false;
+		}
+
+		this.debug("00005", file);
+
+		return true;
+	}
+
+	/**
+	 * Проверяет, соответствует ли путь хотя бы одному шаблону.
+	 *
+	 * @param globs шаблоны.
+	 * @param relative путь относительно корневой директории.
+	 * @return {@code true}, если путь соответствует шаблону, иначе {@code false}.
+	 */
+	private static boolean matchesAny(@NotNull final List<@NotNull Glob> globs, @NotNull final Path relative)
+	{
+		for (Glob glob : globs)
+		{
+			if (glob.matches(relative)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Проверяет, является ли файл двоичным, по расширению и первым байтам.
+	 *
+	 * @param path путь к файлу.
+	 * @return {@code true}, если файл двоичный, иначе {@code false}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	private boolean isBinary(@NotNull final Path path) throws IOException
+	{
+		String extension = FileExpert.getExtension(path);
+
+		if (this.textExtensions.contains(extension)) {
+			return false;
+		}
+
+		if (this.binaryExtensions.contains(extension)) {
+			return true;
+		}
+
+		byte[] head;
+
+		try (InputStream input = Files.newInputStream(path)) {
+			head = input.readNBytes(SNIFF_SIZE);
+		}
+
+		return FileExpert.isBinary(head, Charset.defaultCharset());
+	}
+
+	/**
+	 * Проверяет, являются ли первые байты файла двоичными данными.
+	 * <p>
+	 * Данные считаются двоичными, если начинаются с сигнатуры известного двоичного
+	 * формата, содержат нулевой символ после декодирования в кодировке {@code charset}
+	 * или если доля управляющих символов и байтов, которые не декодируются
+	 * в этой кодировке, превышает {@link #BINARY_RATIO}.
+	 *
+	 * @param head первые байты файла.
+	 * @param charset кодировка, в которой декодируется текст файла.
+	 * @return {@code true}, если данные двоичные, иначе {@code false}.
+	 */
+	static boolean isBinary(final byte @NotNull [] head, @NotNull final Charset charset)
+	{
+		for (byte[] magic : MAGIC_NUMBERS)
+		{
+			if (head.length >= magic.length && Arrays.equals(head, 0, magic.length, magic, 0, magic.length)) {
+				return true;
+			}
+		}
+
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return FileExpert.isBinaryUtf8(head);
+		}
+
+		CharsetDecoder decoder = charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPORT)
+			.onUnmappableCharacter(CodingErrorAction.REPORT);
+		ByteBuffer input = ByteBuffer.wrap(head);
+		CharBuffer output = CharBuffer.allocate((int) Math.ceil(head.length * (double) decoder.maxCharsPerByte()) + 1);
+		int suspicious = 0;
+
+		while (true)
+		{
+			CoderResult result = decoder.decode(input, output, false);
+
+			if (!result.isError()) {
+				break;
+			}
+
+			suspicious += result.length();
+			input.position(input.position() + result.length());
+		}
+
+		output.flip();
+
+		while (output.hasRemaining())
+		{
+			char current = output.get();
+
+			if (current == 0) {
+				return true;
+			}
+
+			if (FileExpert.isSuspicious(current)) {
+				suspicious++;
+			}
+		}
+
+		return suspicious > head.length * BINARY_RATIO;
+	}
+
+	/**
+	 * Проверяет, являются ли первые байты файла в кодировке UTF-8 двоичными данными.
+	 * <p>
+	 * Байты проверяются без декодирования: нулевой байт означает двоичные данные,
+	 * а управляющие символы и некорректные последовательности UTF-8 считаются подозрительными.
+	 *
+	 * @param head первые байты файла.
+	 * @return {@code true}, если данные двоичные, иначе {@code false}.
+	 */
+	private static boolean isBinaryUtf8(final byte @NotNull [] head)
+	{
+		int suspicious = 0;
+		int index = 0;
+
+		while (index < head.length)
+		{
+			int current = head[index] & 0xFF;
+
+			if (current == 0) {
+				return true;
+			}
+
+			if (current < 0x80)
+			{
+				if (FileExpert.isSuspicious((char) current)) {
+					suspicious++;
+				}
+
+				index++;
+
+				continue;
+			}
+
+			int length = 0;
+
+			if (current >= 0xC2 && current <= 0xDF) {
+				length = 2;
+			}
+			else if (current >= 0xE0 && current <= 0xEF) {
+				length = 3;
+			}
+			else if (current >= 0xF0 && current <= 0xF4) {
+				length = 4;
+			}
+
+			if (length == 0)
+			{
+				suspicious++;
+				index++;
+
+				continue;
+			}
+
+			if (index + length > head.length) {
+				break;
+			}
+
+			int continuation = 1;
+
+			while (continuation < length && (head[index + continuation] & 0xC0) == 0x80) {
+				continuation++;
+			}
+
+			if (continuation < length)
+			{
+				suspicious++;
+				index++;
+			}
+			else
+			{
+				index += length;
+			}
+		}
+
+		return suspicious > head.length * BINARY_RATIO;
+	}
+
+	/**
+	 * Проверяет, является ли символ управляющим символом, нехарактерным для текста.
+	 *
+	 * @param current символ.
+	 * @return {@code true}, если символ подозрительный, иначе {@code false}.
+	 */
+	private static boolean isSuspicious(final char current)
+	{
+		return current < 0x20 && current != '\t' && current != '\n' && current != '\r' &&
+			   current != '\f' && current != 0x1B;
+	}
+
+	/**
+	 * Возвращает расширение файла.
+	 *
+	 * @param path путь к файлу.
+	 * @return расширение файла в нижнем регистре без точки или пустую строку, если расширения нет.
+	 */
+	@NotNull
+	private static String getExtension(@NotNull final Path path)
+	{
+		Path fileName = path.getFileName();
+		String name = fileName == null ? "" : fileName.toString();
+		int dot = name.lastIndexOf('.');
+
+		return dot <= 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Приводит расширения файлов к виду для сравнения.
+	 *
+	 * @param extensions расширения файлов.
+	 * @return расширения в нижнем регистре без точки.
+	 */
+	@NotNull
+	private static Set<@NotNull String> normalizeExtensions(@NotNull final Set<@NotNull String> extensions)
+	{
+		Objects.requireNonNull(extensions);
+
+		Set<String> normalized = new HashSet<>();
+
+		for (String extension : extensions)
+		{
+			String value = extension.toLowerCase(Locale.ROOT);
+
+			normalized.add(value.startsWith(".") ? value.substring(1) : value);
+		}
+
+		return Set.copyOf(normalized);
+	}
+
+	/**
+	 * Проверяет, является ли файл скрытым.
+	 *
+	 * @param path файл.
+	 * @return {@code true}, если файл скрытый, иначе {@code false}.
+	 */
+	private static boolean isHidden(@NotNull final Path path)
+	{
+		try
+		{
+			return Files.isHidden(path);
+		}
+		catch (IOException exception)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Создаёт временный файл рядом с файлом.
+	 *
+	 * @param path файл.
+	 * @return временный файл с правами доступа исходного файла.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@NotNull
+	private Path createTemp(@NotNull final Path path) throws IOException
+	{
+		Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "." + path.getFileName(), ".tmp");
+
+		try
+		{
+			FileExpert.copyPermissions(path, temp);
+		}
+		catch (IOException exception)
+		{
+			Files.deleteIfExists(temp);
+
+			throw exception;
+		}
+
+		return temp;
+	}
+
+	/**
+	 * Заменяет файл записанным временным файлом с учётом режима надёжности.
+	 *
+	 * @param temp временный файл.
+	 * @param target файл.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	private void commit(@NotNull final Path temp, @NotNull final Path target) throws IOException
+	{
+		switch (this.durability)
+		{
+			case NONE -> FileExpert.move(temp, target);
+			case FILE -> {
+				FileExpert.force(temp);
+				FileExpert.move(temp, target);
+				FileExpert.forceDirectory(target.toAbsolutePath().getParent());
+			}
+			case BATCH -> this.addPending(new PendingFile(temp, target));
+		}
+	}
+
+	/**
+	 * Добавляет файл в группу сброса данных на диск.
+	 * <p>
+	 * Если группа заполнена или время её накопления истекло, данные сбрасываются на диск,
+	 * а файлы, которые не удалось сохранить, возвращаются следующим вызовом {@link #flush()}.
+	 *
+	 * @param file файл.
+	 */
+	private void addPending(@NotNull final PendingFile file)
+	{
+		boolean full;
+
+		synchronized (this.pendingFiles)
+		{
+			if (this.pendingFiles.isEmpty()) {
+				this.batchStart = System.currentTimeMillis();
+			}
+
+			this.pendingFiles.add(file);
+
+			full = this.pendingFiles.size() >= this.batchFiles ||
+				   System.currentTimeMillis() - this.batchStart >= this.batchMillis;
+		}
+
+		if (full) {
+			this.flushPending();
+		}
+	}
+
+	/**
+	 * Сбрасывает на диск данные группы записанных файлов.
+	 * <p>
+	 * Ошибка сохранения файла не прерывает сброс остальных файлов, а файл и ошибка
+	 * запоминаются до вызова {@link #flush()}.
+	 */
+	private void flushPending()
+	{
+		List<PendingFile> files;
+
+		synchronized (this.pendingFiles)
+		{
+			files = new ArrayList<>(this.pendingFiles);
+
+			this.pendingFiles.clear();
+			this.batchStart = System.currentTimeMillis();
+		}
+
+		Map<File, IOException> failures = new LinkedHashMap<>();
+		Set<Path> directories = new LinkedHashSet<>();
+
+		for (PendingFile file : files)
+		{
+			try
+			{
+				FileExpert.force(file.temp == null ? file.target : file.temp);
+
+				if (file.temp != null)
+				{
+					FileExpert.move(file.temp, file.target);
+
+					directories.add(file.target.toAbsolutePath().getParent());
+				}
+			}
+			catch (IOException exception)
+			{
+				failures.put(file.target.toFile(), exception);
+
+				if (file.temp != null)
+				{
+					try
+					{
+						Files.deleteIfExists(file.temp);
+					}
+					catch (IOException suppressed)
+					{
+						exception.addSuppressed(suppressed);
+					}
+				}
+			}
+		}
+
+		for (Path directory : directories) {
+			FileExpert.forceDirectory(directory);
+		}
+
+		if (!failures.isEmpty())
+		{
+			synchronized (this.pendingFiles)
+			{
+				this.failedFiles.putAll(failures);
+			}
+		}
+	}
+
+	/**
+	 * Атомарно перемещает файл.
+	 * <p>
+	 * Если файловая система не поддерживает атомарное перемещение, файл перемещается с заменой.
+	 *
+	 * @param source перемещаемый файл.
+	 * @param target файл назначения.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	private static void move(@NotNull final Path source, @NotNull final Path target) throws IOException
+	{
+		try
+		{
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException exception)
+		{
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Сбрасывает данные файла на диск.
+	 *
+	 * @param path файл.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	private static void force(@NotNull final Path path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Сбрасывает на диск запись директории о перемещённых в неё файлах.
+	 *
+	 * @param directory директория.
+	 */
+	private static void forceDirectory(@NotNull final Path directory)
+	{
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch (IOException exception)
+		{
+			// Не все файловые системы позволяют открыть директорию для сброса данных.
+		}
+	}
+
+	/**
+	 * Возвращает ключ, однозначно определяющий файл.
+	 * <p>
+	 * Если файловая система не предоставляет ключ, используется реальный путь файла.
+	 *
+	 * @param path файл.
+	 * @param attributes атрибуты файла или {@code null}, если они ещё не прочитаны.
+	 * @return ключ файла.
+	 * @throws NullPointerException если в качестве {@code path} передан {@code null}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@NotNull
+	public static Object fileKey(@NotNull final Path path, @Nullable final BasicFileAttributes attributes)
+		throws IOException
+	{
+		Objects.requireNonNull(path);
+
+		BasicFileAttributes fileAttributes = attributes;
+
+		if (fileAttributes == null) {
+			fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+		}
+
+		Object key = fileAttributes.fileKey();
+
+		if (key == null) {
+			key = path.toRealPath();
+		}
+
+		return key;
+	}
+
+	/**
+	 * Копирует права доступа файла.
+	 *
+	 * @param source файл, права доступа которого копируются.
+	 * @param target файл, которому устанавливаются права доступа.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	private static void copyPermissions(@NotNull final Path source, @NotNull final Path target)
+		throws IOException
+	{
+		try
+		{
+			Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+		}
+		catch (UnsupportedOperationException exception)
+		{
+			// Файловая система не поддерживает права доступа POSIX.
+		}
+	}
+
+	/**
+	 * Логирует отладочное сообщение.
+	 * <p>
+	 * Сообщение форматируется, только если отладочный уровень логирования включён.
+	 *
+	 * @param message ключ сообщения журнала.
+	 * @param arguments аргументы сообщения.
+	 */
+	private void debug(@NotNull final String message, @NotNull final Object @NotNull ... arguments)
+	{
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(String.format(
+				this.localeLogs.getString(message),
+				arguments
+			));
+		}
+	}
+
+	/**
+	 * Класс записанного файла, ожидающего сброса данных на диск.
+	 */
+	private static final class PendingFile
+	{
+		/**
+		 * Временный файл или {@code null}, если файл записан на место.
+		 */
+		private final Path temp;
+
+		/**
+		 * Файл.
+		 */
+		@NotNull
+		private final Path target;
+
+		/**
+		 * Конструктор для {@code PendingFile}.
+		 *
+		 * @param temp временный файл или {@code null}, если файл записан на место.
+		 * @param target файл.
+		 */
+		private PendingFile(final Path temp, @NotNull final Path target)
+		{
+			this.temp = temp;
+			this.target = target;
+		}
+	}
+
+	/**
+	 * Класс последовательного обхода дерева директорий.
+	 */
+	private final class ScanVisitor extends SimpleFileVisitor<Path>
+	{
+		/**
+		 * Корневая директория.
+		 */
+		@NotNull
+		private final Path root;
+
+		/**
+		 * Ключи просмотренных директорий.
+		 */
+		@NotNull
+		private final Set<@NotNull Object> visited;
+
+		/**
+		 * Получатель найденных файлов.
+		 */
+		@NotNull
+		private final Consumer<@NotNull File> consumer;
+
+		/**
+		 * Конструктор для {@code ScanVisitor}.
+		 *
+		 * @param root корневая директория.
+		 * @param visited ключи просмотренных директорий.
+		 * @param consumer получатель найденных файлов.
+		 */
+		private ScanVisitor(@NotNull final Path root,
+							@NotNull final Set<@NotNull Object> visited,
+							@NotNull final Consumer<@NotNull File> consumer)
+		{
+			this.root = root;
+			this.visited = visited;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * <p>
+		 * Директория, уже просмотренная по другому пути, пропускается,
+		 * поэтому символьные ссылки не приводят к повторному обходу и циклам.
+		 *
+		 * @param directory {@inheritDoc}
+		 * @param attributes {@inheritDoc}
+		 * @return {@inheritDoc}
+		 * @throws IOException {@inheritDoc}
+		 */
+		@NotNull
+		@Override
+		public FileVisitResult preVisitDirectory(@NotNull final Path directory,
+												 @NotNull final BasicFileAttributes attributes)
+			throws IOException
+		{
+			if (!directory.equals(this.root) && !FileExpert.this.canVisitDirectory(this.root, directory)) {
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			if (!this.visited.add(FileExpert.fileKey(directory, attributes)))
+			{
+				FileExpert.this.debug("00022", directory);
+
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			return FileVisitResult.CONTINUE;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @param file {@inheritDoc}
+		 * @param attributes {@inheritDoc}
+		 * @return {@inheritDoc}
+		 */
+		@NotNull
+		@Override
+		public FileVisitResult visitFile(@NotNull final Path file, @NotNull final BasicFileAttributes attributes)
+		{
+			if (!attributes.isDirectory() && FileExpert.this.canVisitFile(this.root, file, attributes)) {
+				this.consumer.accept(file.toFile());
+			}
+
+			return FileVisitResult.CONTINUE;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * @param file {@inheritDoc}
+		 * @param exception {@inheritDoc}
+		 * @return {@inheritDoc}
+		 */
+		@NotNull
+		@Override
+		public FileVisitResult visitFileFailed(@NotNull final Path file, @NotNull final IOException exception)
+		{
+			FileExpert.this.debug("00004", file);
+
+			return FileVisitResult.CONTINUE;
+		}
+	}
+
+	/**
+	 * Класс задачи параллельного обхода директории.
+	 * <p>
+	 * Каждая поддиректория обходится отдельной задачей пула {@link ForkJoinPool}.
+	 */
+	private final class ScanTask extends RecursiveAction
+	{
+		/**
+		 * Версия сериализации.
+		 */
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Корневая директория.
+		 */
+		@NotNull
+		private final Path root;
+
+		/**
+		 * Директория.
+		 */
+		@NotNull
+		private final Path directory;
+
+		/**
+		 * Глубина директории относительно корневой.
+		 */
+		private final int depth;
+
+		/**
+		 * Ключи просмотренных директорий, общие для всех задач обхода.
+		 */
+		@NotNull
+		private final Set<@NotNull Object> visited;
+
+		/**
+		 * Получатель найденных файлов.
+		 */
+		@NotNull
+		private final Consumer<@NotNull File> consumer;
+
+		/**
+		 * Конструктор для {@code ScanTask}.
+		 *
+		 * @param root корневая директория.
+		 * @param directory директория.
+		 * @param depth глубина директории относительно корневой.
+		 * @param visited ключи просмотренных директорий.
+		 * @param consumer получатель найденных файлов.
+		 */
+		private ScanTask(@NotNull final Path root,
+						 @NotNull final Path directory,
+						 final int depth,
+						 @NotNull final Set<@NotNull Object> visited,
+						 @NotNull final Consumer<@NotNull File> consumer)
+		{
+			this.root = root;
+			this.directory = directory;
+			this.depth = depth;
+			this.visited = visited;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * Обходит директорию.
+		 * <p>
+		 * Поддиректория, уже просмотренная по другому пути, пропускается,
+		 * поэтому символьные ссылки не приводят к повторному обходу и циклам.
+		 */
+		@Override
+		protected void compute()
+		{
+			List<ScanTask> tasks = new ArrayList<>();
+
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory))
+			{
+				for (Path entry : entries)
+				{
+					BasicFileAttributes attributes;
+
+					try
+					{
+						attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+					}
+					catch (IOException exception)
+					{
+						FileExpert.this.debug("00004", entry);
+
+						continue;
+					}
+
+					if (attributes.isDirectory())
+					{
+						if (this.depth + 1 >= FileExpert.this.maxDepth ||
+							!FileExpert.this.canVisitDirectory(this.root, entry))
+						{
+							continue;
+						}
+
+						if (this.visited.add(FileExpert.fileKey(entry, attributes))) {
+							tasks.add(new ScanTask(this.root, entry, this.depth + 1, this.visited, this.consumer));
+						}
+						else {
+							FileExpert.this.debug("00022", entry);
+						}
+					}
+					else if (FileExpert.this.canVisitFile(this.root, entry, attributes))
+					{
+						this.consumer.accept(entry.toFile());
+					}
+				}
+			}
+			catch (IOException exception)
+			{
+				FileExpert.this.debug("00004", this.directory);
+			}
+
+			ForkJoinTask.invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Класс шаблона пути.
+	 * <p>
+	 * Шаблон без символа {@code /} сравнивается с именем файла или директории,
+	 * иначе — с путём относительно корневой директории сканирования.
+	 */
+	private static final class Glob
+	{
+		/**
+		 * Скомпилированный шаблон.
+		 */
+		@NotNull
+		private final PathMatcher matcher;
+
+		/**
+		 * Сравнение только с именем.
+		 */
+		private final boolean nameOnly;
+
+		/**
+		 * Конструктор для {@code Glob}.
+		 *
+		 * @param glob шаблон в синтаксисе {@code glob}.
+		 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+		 */
+		private Glob(@NotNull final String glob)
+		{
+			this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+			this.nameOnly = glob.indexOf('/') < 0;
+		}
+
+		/**
+		 * Проверяет, соответствует ли путь шаблону.
+		 *
+		 * @param relative путь относительно корневой директории.
+		 * @return {@code true}, если путь соответствует шаблону, иначе {@code false}.
+		 */
+		private boolean matches(@NotNull final Path relative)
+		{
+			Path name = relative.getFileName();
+
+			if (this.nameOnly) {
+				return name != null && this.matcher.matches(name);
+			}
+
+			return this.matcher.matches(relative);
+		}
 	}
 }
@@ -24,11 +24,18 @@
 
 package dev.kalenchukov.replaceinfiles.modules;
 
+import dev.kalenchukov.replaceinfiles.resources.Durability;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Интерфейс для реализации работы с файлами.
@@ -62,29 +69,277 @@ public interface FileExperts
 	@NotNull
 	FileExperts canHidden(boolean canHidden);
 
+	/**
+	 * Устанавливает количество потоков сканирования директорий.
+	 * <p>
+	 * При значении больше {@code 1} поддиректории обходятся параллельно.
+	 *
+	 * @param parallelism количество потоков.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code parallelism} меньше {@code 1}.
+	 */
+	@NotNull
+	FileExperts setParallelism(int parallelism);
+
+	/**
+	 * Устанавливает атомарную запись файлов.
+	 * <p>
+	 * Содержимое записывается во временный файл в той же директории, который затем
+	 * атомарно заменяет исходный файл. Прерванная запись не оставляет файл усечённым.
+	 *
+	 * @param atomic {@code true}, если запись должна быть атомарной, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	FileExperts setAtomic(boolean atomic);
+
+	/**
+	 * Устанавливает режим надёжности записи файлов.
+	 *
+	 * @param durability режим надёжности.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	FileExperts setDurability(@NotNull Durability durability);
+
+	/**
+	 * Устанавливает размер группы для режима надёжности {@link Durability#BATCH}.
+	 * <p>
+	 * Данные сбрасываются на диск, когда в группе накопилось {@code files} файлов или
+	 * с записи первого файла группы прошло {@code millis} миллисекунд.
+	 * Время проверяется при записи очередного файла.
+	 *
+	 * @param files количество файлов.
+	 * @param millis время в миллисекундах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code files} меньше {@code 1} или {@code millis} меньше {@code 0}.
+	 */
+	@NotNull
+	FileExperts setDurabilityBatch(int files, long millis);
+
+	/**
+	 * Добавляет шаблон файлов, которые необходимо добавлять при сканировании директорий.
+	 * <p>
+	 * Шаблон в синтаксисе {@code glob} без символа {@code /} сравнивается с именем файла,
+	 * иначе — с путём относительно сканируемой директории. Если шаблоны не добавлены,
+	 * добавляются все файлы.
+	 *
+	 * @param glob шаблон, например {@code "*.java"}.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+	 */
+	@NotNull
+	FileExperts addInclude(@NotNull String glob);
+
+	/**
+	 * Добавляет шаблон файлов и директорий, которые необходимо пропускать при сканировании директорий.
+	 * <p>
+	 * Содержимое исключённой директории не просматривается.
+	 *
+	 * @param glob шаблон, например {@code "node_modules"}.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если синтаксис шаблона некорректен.
+	 */
+	@NotNull
+	FileExperts addExclude(@NotNull String glob);
+
+	/**
+	 * Устанавливает ограничения размера файлов при сканировании директорий.
+	 *
+	 * @param min минимальный размер файла в байтах.
+	 * @param max максимальный размер файла в байтах.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code min} меньше {@code 0} или {@code max} меньше {@code min}.
+	 */
+	@NotNull
+	FileExperts setFileSize(long min, long max);
+
+	/**
+	 * Устанавливает максимальную глубину сканирования директорий.
+	 * <p>
+	 * При глубине {@code 1} добавляются только файлы сканируемой директории без поддиректорий.
+	 *
+	 * @param depth глубина.
+	 * @return ссылку на данный объект.
+	 * @throws IllegalArgumentException если {@code depth} меньше {@code 1}.
+	 */
+	@NotNull
+	FileExperts setMaxDepth(int depth);
+
+	/**
+	 * Устанавливает определение двоичных файлов.
+	 * <p>
+	 * Двоичные файлы определяются по первым байтам: сигнатурам известных форматов,
+	 * нулевым символам и доле байтов, которые не декодируются в кодировке по умолчанию.
+	 * По умолчанию определение выключено.
+	 *
+	 * @param binaryDetection {@code true}, если двоичные файлы необходимо определять, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	FileExperts setBinaryDetection(boolean binaryDetection);
+
+	/**
+	 * Устанавливает расширения файлов, которые всегда считаются текстовыми.
+	 *
+	 * @param extensions расширения файлов.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	FileExperts setTextExtensions(@NotNull Set<@NotNull String> extensions);
+
+	/**
+	 * Устанавливает расширения файлов, которые всегда считаются двоичными.
+	 * <p>
+	 * Такие файлы не открываются для проверки содержимого.
+	 *
+	 * @param extensions расширения файлов.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	FileExperts setBinaryExtensions(@NotNull Set<@NotNull String> extensions);
+
+	/**
+	 * Устанавливает обработку архивов ZIP и JAR как контейнеров текстовых файлов.
+	 *
+	 * @param archives {@code true}, если архивы необходимо обрабатывать как контейнеры, иначе {@code false}.
+	 * @return ссылку на данный объект.
+	 */
+	@NotNull
+	FileExperts setArchives(boolean archives);
+
 	/**
 	 * Записывает файл.
 	 *
 	 * @param file файл.
 	 * @param value строка которую необходимо записать в файл.
+	 * @throws IOException если произошла ошибка ввода-вывода.
 	 */
-	void writeFile(@NotNull File file, @NotNull String value);
+	void writeFile(@NotNull File file, @NotNull String value) throws IOException;
+
+	/**
+	 * Записывает байты в файл.
+	 *
+	 * @param file файл.
+	 * @param bytes байты которые необходимо записать в файл.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	void writeFile(@NotNull File file, byte @NotNull [] bytes) throws IOException;
 
 	/**
 	 * Считывает файл.
 	 *
 	 * @param file файл.
 	 * @return содержимое файла в виде строки.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@NotNull
+	String readFile(@NotNull File file) throws IOException;
+
+	/**
+	 * Считывает байты файла без декодирования.
+	 *
+	 * @param file файл.
+	 * @return содержимое файла в виде байтов.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	byte @NotNull [] readBytes(@NotNull File file) throws IOException;
+
+	/**
+	 * Проверяет, является ли файл двоичным.
+	 * <p>
+	 * Читаются только первые байты файла.
+	 *
+	 * @param file файл.
+	 * @return {@code true}, если файл двоичный, иначе {@code false}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	boolean isBinary(@NotNull File file) throws IOException;
+
+	/**
+	 * Отображает файл в память.
+	 * <p>
+	 * Содержимое файла декодируется по мере обращения к символам, поэтому его можно
+	 * передать в {@link java.util.regex.Matcher} без создания строки.
+	 * Отображение освобождается при закрытии возвращённого объекта.
+	 *
+	 * @param file файл.
+	 * @return содержимое файла.
+	 * @throws IOException если произошла ошибка ввода-вывода.
 	 */
 	@NotNull
-	String readFile(@NotNull File file);
+	MappedText mapFile(@NotNull File file) throws IOException;
+
+	/**
+	 * Открывает файл для потокового чтения символов.
+	 * <p>
+	 * Некорректные последовательности байтов заменяются символом замены, как при {@link #readFile(File)}.
+	 *
+	 * @param file файл.
+	 * @return источник символов файла, который необходимо закрыть.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@NotNull
+	Reader openFile(@NotNull File file) throws IOException;
+
+	/**
+	 * Перезаписывает файл потоково.
+	 * <p>
+	 * Результат обработки записывается во временный файл в той же директории,
+	 * который заменяет исходный файл только если текст изменён.
+	 *
+	 * @param file файл.
+	 * @param processor обработчик текста.
+	 * @return {@code true}, если файл изменён, иначе {@code false}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	boolean rewriteFile(@NotNull File file, @NotNull TextProcessor processor) throws IOException;
+
+	/**
+	 * Проверяет, обрабатывается ли файл как архив.
+	 *
+	 * @param file файл.
+	 * @return {@code true}, если обработка архивов включена и файл является архивом ZIP или JAR,
+	 * иначе {@code false}.
+	 */
+	boolean isArchive(@NotNull File file);
+
+	/**
+	 * Перезаписывает текстовые файлы внутри архива потоково.
+	 * <p>
+	 * Двоичные файлы архива пропускаются независимо от {@link #setBinaryDetection(boolean)}.
+	 * Архив записывается заново за один проход во временный файл в той же директории,
+	 * только если изменён хотя бы один файл, а неизменённые файлы архива копируются
+	 * без повторного сжатия. Комментарий архива сохраняется.
+	 *
+	 * @param file архив.
+	 * @param processors обработчик текста для файла архива, путь которого
+	 * составлен из пути архива и имени файла в архиве.
+	 * @return {@code true}, если архив изменён, иначе {@code false}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	boolean rewriteArchive(@NotNull File file, @NotNull Function<@NotNull File, @NotNull TextProcessor> processors)
+		throws IOException;
+
+	/**
+	 * Сбрасывает на диск данные группы записанных файлов.
+	 * <p>
+	 * В режиме надёжности {@link Durability#BATCH} после вызова все записанные ранее
+	 * файлы, кроме возвращённых, сохранены на диске. Возвращаются также файлы, которые
+	 * не удалось сохранить при сбросе заполненной группы после предыдущего вызова.
+	 *
+	 * @return неизменяемое отображение файлов, которые не удалось сохранить, в ошибки.
+	 */
+	@NotNull
+	Map<@NotNull File, @NotNull IOException> flush();
 
 	/**
 	 * Очищает файл.
 	 *
 	 * @param file файл.
+	 * @throws IOException если произошла ошибка ввода-вывода.
 	 */
-	void cleanFile(@NotNull File file);
+	void cleanFile(@NotNull File file) throws IOException;
 
 	/**
 	 * Сканирует директорию на наличие файлов.
@@ -94,4 +349,29 @@ public interface FileExperts
 	 */
 	@NotNull
 	List<@NotNull File> scanDirectory(@NotNull File directory);
+
+	/**
+	 * Сканирует директорию на наличие файлов, передавая каждый найденный файл получателю.
+	 * <p>
+	 * Файлы передаются по мере обнаружения, поэтому обработку можно начинать
+	 * до окончания сканирования. При параллельном сканировании получатель
+	 * вызывается из нескольких потоков.
+	 *
+	 * @param directory директория.
+	 * @param consumer получатель найденных файлов.
+	 */
+	void scanDirectory(@NotNull File directory, @NotNull Consumer<@NotNull File> consumer);
+
+	/**
+	 * Проверяет, просматривается ли файл или директория при сканировании корневой директории.
+	 * <p>
+	 * Учитываются скрытые файлы, шаблоны, ограничения размера и глубина сканирования.
+	 * Директории, содержащие {@code file}, не проверяются.
+	 *
+	 * @param root корневая директория сканирования.
+	 * @param file файл или директория внутри {@code root}.
+	 * @return {@code true}, если файл добавляется или директория просматривается при сканировании, иначе {@code false}.
+	 * @throws IOException если атрибуты {@code file} не удалось прочитать.
+	 */
+	boolean canScan(@NotNull File root, @NotNull File file) throws IOException;
 }
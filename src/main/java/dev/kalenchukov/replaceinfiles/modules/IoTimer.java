@@ -0,0 +1,275 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterReader;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Класс учёта времени чтения и записи при потоковой обработке текста.
+ * <p>
+ * Оборачивает источник и приёмник текста обработчика и суммирует время, проведённое
+ * в их методах, чтобы время поиска и замены не включало время ввода-вывода.
+ * Объект не потокобезопасен.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class IoTimer
+{
+	/**
+	 * Время чтения в наносекундах.
+	 */
+	private long readTime;
+
+	/**
+	 * Время записи в наносекундах.
+	 */
+	private long writeTime;
+
+	/**
+	 * Конструктор для {@code IoTimer}.
+	 */
+	public IoTimer()
+	{
+		this.readTime = 0;
+		this.writeTime = 0;
+	}
+
+	/**
+	 * Возвращает обработчик, время чтения и записи которого учитывается.
+	 * <p>
+	 * После обработки приёмник текста сбрасывается, чтобы время записи
+	 * буферизованного текста также было учтено.
+	 *
+	 * @param processor обработчик текста.
+	 * @return обработчик текста с учётом времени.
+	 */
+	@NotNull
+	public TextProcessor wrap(@NotNull final TextProcessor processor)
+	{
+		return (reader, writer) -> {
+			Writer timedWriter = new TimedWriter(writer);
+			boolean changed = processor.process(new TimedReader(reader), timedWriter);
+
+			timedWriter.flush();
+
+			return changed;
+		};
+	}
+
+	/**
+	 * Возвращает источник текста, время чтения которого учитывается.
+	 *
+	 * @param reader источник текста.
+	 * @return источник текста с учётом времени.
+	 */
+	@NotNull
+	public Reader wrap(@NotNull final Reader reader)
+	{
+		return new TimedReader(reader);
+	}
+
+	/**
+	 * Возвращает время чтения.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public long getReadTime()
+	{
+		return this.readTime;
+	}
+
+	/**
+	 * Возвращает время записи.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public long getWriteTime()
+	{
+		return this.writeTime;
+	}
+
+	/**
+	 * Класс источника текста с учётом времени чтения.
+	 */
+	private final class TimedReader extends FilterReader
+	{
+		/**
+		 * Конструктор для {@code TimedReader}.
+		 *
+		 * @param reader источник текста.
+		 */
+		private TimedReader(@NotNull final Reader reader)
+		{
+			super(reader);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read() throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				return super.read();
+			}
+			finally
+			{
+				IoTimer.this.readTime += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read(final char @NotNull [] buffer, final int offset, final int length) throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				return super.read(buffer, offset, length);
+			}
+			finally
+			{
+				IoTimer.this.readTime += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long skip(final long count) throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				return super.skip(count);
+			}
+			finally
+			{
+				IoTimer.this.readTime += System.nanoTime() - start;
+			}
+		}
+	}
+
+	/**
+	 * Класс приёмника текста с учётом времени записи.
+	 */
+	private final class TimedWriter extends FilterWriter
+	{
+		/**
+		 * Конструктор для {@code TimedWriter}.
+		 *
+		 * @param writer приёмник текста.
+		 */
+		private TimedWriter(@NotNull final Writer writer)
+		{
+			super(writer);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final int value) throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				super.write(value);
+			}
+			finally
+			{
+				IoTimer.this.writeTime += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final char @NotNull [] buffer, final int offset, final int length) throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				super.write(buffer, offset, length);
+			}
+			finally
+			{
+				IoTimer.this.writeTime += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(@NotNull final String value, final int offset, final int length) throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				super.write(value, offset, length);
+			}
+			finally
+			{
+				IoTimer.this.writeTime += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void flush() throws IOException
+		{
+			long start = System.nanoTime();
+
+			try
+			{
+				super.flush();
+			}
+			finally
+			{
+				IoTimer.this.writeTime += System.nanoTime() - start;
+			}
+		}
+	}
+}
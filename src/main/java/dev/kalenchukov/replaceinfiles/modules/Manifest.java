@@ -0,0 +1,448 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс журнала обработанных файлов.
+ * <p>
+ * Для каждого файла хранится размер, время изменения и хеш содержимого после замены,
+ * а для всего журнала — хеш цепочки правил. Если правила изменились, журнал
+ * при загрузке считается пустым. Файл, размер и время изменения которого совпадают
+ * с записанными, не требует повторной обработки. Если время изменения файла близко
+ * ко времени сохранения журнала, изменение могло не отразиться во времени изменения,
+ * поэтому такой файл сравнивается по хешу содержимого.
+ * <p>
+ * Журнал хранится в двоичном виде: пути отсортированы и сохраняются
+ * без общего с предыдущим путём префикса. Методы чтения и изменения записей
+ * можно вызывать из нескольких потоков.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Manifest
+{
+	/**
+	 * Сигнатура файла журнала.
+	 */
+	private static final int MAGIC = 0x5249464D;
+
+	/**
+	 * Версия формата журнала.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Точность времени изменения файлов в миллисекундах, учитываемая при сравнении.
+	 */
+	private static final long TIME_RESOLUTION = 2000;
+
+	/**
+	 * Хеш цепочки правил.
+	 */
+	private final long rulesHash;
+
+	/**
+	 * Время сохранения загруженного журнала в миллисекундах.
+	 */
+	private final long savedTime;
+
+	/**
+	 * Записи журнала.
+	 */
+	@NotNull
+	private final Map<@NotNull String, @NotNull Entry> entries;
+
+	/**
+	 * Пути файлов, записанных в журнал после загрузки.
+	 */
+	@NotNull
+	private final Set<@NotNull String> updated;
+
+	/**
+	 * Блокировки файлов журналов, общие для всех журналов в процессе.
+	 */
+	@NotNull
+	private static final Map<@NotNull String, @NotNull Object> LOCKS = new ConcurrentHashMap<>();
+
+	/**
+	 * Конструктор для {@code Manifest}.
+	 *
+	 * @param rulesHash хеш цепочки правил.
+	 * @param savedTime время сохранения журнала в миллисекундах.
+	 * @param entries записи журнала.
+	 */
+	private Manifest(final long rulesHash, final long savedTime, @NotNull final Map<@NotNull String, @NotNull Entry> entries)
+	{
+		this.rulesHash = rulesHash;
+		this.savedTime = savedTime;
+		this.entries = entries;
+		this.updated = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Загружает журнал.
+	 * <p>
+	 * Если файла журнала нет, он повреждён или создан для других правил, возвращается пустой журнал.
+	 *
+	 * @param file файл журнала.
+	 * @param rulesHash хеш цепочки правил.
+	 * @return журнал.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 */
+	@NotNull
+	public static Manifest load(@NotNull final File file, final long rulesHash)
+	{
+		Objects.requireNonNull(file);
+
+		Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+		if (!file.isFile()) {
+			return new Manifest(rulesHash, 0, entries);
+		}
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16)))
+		{
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readLong() != rulesHash) {
+				return new Manifest(rulesHash, 0, entries);
+			}
+
+			long savedTime = input.readLong();
+			int count = input.readInt();
+			String previous = "";
+
+			for (int index = 0; index < count; index++)
+			{
+				int prefix = input.readUnsignedShort();
+				String path = previous.substring(0, prefix) + input.readUTF();
+
+				entries.put(path, new Entry(input.readLong(), input.readLong(), input.readLong()));
+				previous = path;
+			}
+
+			return new Manifest(rulesHash, savedTime, entries);
+		}
+		catch (IOException | RuntimeException exception)
+		{
+			return new Manifest(rulesHash, 0, new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Сохраняет журнал.
+	 * <p>
+	 * Журнал записывается во временный файл, который затем заменяет файл журнала.
+	 *
+	 * @param file файл журнала.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	public void save(@NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		List<String> paths = new ArrayList<>(this.entries.keySet());
+		Collections.sort(paths);
+
+		Path target = file.toPath().toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+
+		try
+		{
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile()), 1 << 16)))
+			{
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(this.rulesHash);
+				output.writeLong(System.currentTimeMillis());
+				output.writeInt(paths.size());
+
+				String previous = "";
+
+				for (String path : paths)
+				{
+					int prefix = Manifest.commonPrefix(previous, path);
+					Entry entry = this.entries.get(path);
+
+					output.writeShort(prefix);
+					output.writeUTF(path.substring(prefix));
+					output.writeLong(entry.size);
+					output.writeLong(entry.modifiedTime);
+					output.writeLong(entry.hash);
+
+					previous = path;
+				}
+			}
+
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Сохраняет изменения журнала, объединяя их с журналом в файле.
+	 * <p>
+	 * Журнал в файле загружается повторно, в него переносятся только записи файлов,
+	 * записанных в данный журнал после загрузки, и результат сохраняется. Объединение
+	 * выполняется под блокировкой файла журнала, поэтому одновременные замены
+	 * в одном процессе не теряют записи друг друга.
+	 *
+	 * @param file файл журнала.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	public void merge(@NotNull final File file) throws IOException
+	{
+		Objects.requireNonNull(file);
+
+		Object lock = LOCKS.computeIfAbsent(file.getAbsolutePath(), key -> new Object());
+
+		synchronized (lock)
+		{
+			Manifest current = Manifest.load(file, this.rulesHash);
+
+			for (String path : this.updated)
+			{
+				Entry entry = this.entries.get(path);
+
+				if (entry != null) {
+					current.entries.put(path, entry);
+				}
+			}
+
+			current.save(file);
+		}
+	}
+
+	/**
+	 * Проверяет, не изменялся ли файл с момента записи в журнал.
+	 *
+	 * @param file файл.
+	 * @param attributes атрибуты файла.
+	 * @return {@code true}, если размер и время изменения файла совпадают с записанными
+	 * и время изменения не близко ко времени сохранения журнала, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code attributes} передан {@code null}.
+	 */
+	public boolean isUnchanged(@NotNull final File file, @NotNull final BasicFileAttributes attributes)
+	{
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(attributes);
+
+		Entry entry = this.entries.get(Manifest.key(file));
+
+		if (entry == null) {
+			return false;
+		}
+
+		long modifiedTime = attributes.lastModifiedTime().toMillis();
+
+		return entry.size == attributes.size() &&
+			   entry.modifiedTime == modifiedTime &&
+			   modifiedTime < this.savedTime - TIME_RESOLUTION;
+	}
+
+	/**
+	 * Проверяет, совпадает ли содержимое файла с записанным в журнал.
+	 *
+	 * @param file файл.
+	 * @param hash хеш содержимого файла.
+	 * @return {@code true}, если хеш содержимого совпадает с записанным, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 */
+	public boolean isSameContent(@NotNull final File file, final long hash)
+	{
+		Objects.requireNonNull(file);
+
+		Entry entry = this.entries.get(Manifest.key(file));
+
+		return entry != null && entry.hash != 0 && entry.hash == hash;
+	}
+
+	/**
+	 * Записывает файл в журнал.
+	 * <p>
+	 * Если атрибуты файла неизвестны, например файл только что перезаписан,
+	 * при следующей замене файл будет сравниваться только по хешу содержимого.
+	 *
+	 * @param file файл.
+	 * @param attributes атрибуты файла или {@code null}, если они неизвестны.
+	 * @param hash хеш содержимого файла или {@code 0}, если он неизвестен.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 */
+	public void put(@NotNull final File file, @Nullable final BasicFileAttributes attributes, final long hash)
+	{
+		Objects.requireNonNull(file);
+
+		String key = Manifest.key(file);
+
+		if (attributes == null) {
+			this.entries.put(key, new Entry(-1, -1, hash));
+		}
+		else {
+			this.entries.put(
+				key,
+				new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), hash)
+			);
+		}
+
+		this.updated.add(key);
+	}
+
+	/**
+	 * Возвращает количество записей журнала.
+	 *
+	 * @return количество записей.
+	 */
+	public int size()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Вычисляет хеш текста.
+	 *
+	 * @param value текст.
+	 * @return 64-битный хеш FNV-1a текста, не равный {@code 0}.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 */
+	public static long hash(@NotNull final CharSequence value)
+	{
+		Objects.requireNonNull(value);
+
+		long hash = 0xCBF29CE484222325L;
+
+		for (int index = 0; index < value.length(); index++)
+		{
+			char symbol = value.charAt(index);
+
+			hash = (hash ^ (symbol & 0xFF)) * 0x100000001B3L;
+			hash = (hash ^ (symbol >>> 8)) * 0x100000001B3L;
+		}
+
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Вычисляет хеш байтов.
+	 *
+	 * @param value байты.
+	 * @return 64-битный хеш FNV-1a байтов, не равный {@code 0}.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 */
+	public static long hash(final byte @NotNull [] value)
+	{
+		Objects.requireNonNull(value);
+
+		long hash = 0xCBF29CE484222325L;
+
+		for (byte symbol : value) {
+			hash = (hash ^ (symbol & 0xFF)) * 0x100000001B3L;
+		}
+
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Возвращает ключ файла в журнале.
+	 *
+	 * @param file файл.
+	 * @return абсолютный путь файла.
+	 */
+	@NotNull
+	private static String key(@NotNull final File file)
+	{
+		return file.getAbsolutePath();
+	}
+
+	/**
+	 * Возвращает длину общего префикса строк.
+	 *
+	 * @param first первая строка.
+	 * @param second вторая строка.
+	 * @return длину общего префикса, не превышающую {@code 65535}.
+	 */
+	private static int commonPrefix(@NotNull final String first, @NotNull final String second)
+	{
+		int length = Math.min(Math.min(first.length(), second.length()), 0xFFFF);
+		int index = 0;
+
+		while (index < length && first.charAt(index) == second.charAt(index)) {
+			index++;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Класс записи журнала.
+	 */
+	private static final class Entry
+	{
+		/**
+		 * Размер файла в байтах.
+		 */
+		private final long size;
+
+		/**
+		 * Время изменения файла в миллисекундах.
+		 */
+		private final long modifiedTime;
+
+		/**
+		 * Хеш содержимого файла или {@code 0}, если он неизвестен.
+		 */
+		private final long hash;
+
+		/**
+		 * Конструктор для {@code Entry}.
+		 *
+		 * @param size размер файла в байтах.
+		 * @param modifiedTime время изменения файла в миллисекундах.
+		 * @param hash хеш содержимого файла или {@code 0}, если он неизвестен.
+		 */
+		private Entry(final long size, final long modifiedTime, final long hash)
+		{
+			this.size = size;
+			this.modifiedTime = modifiedTime;
+			this.hash = hash;
+		}
+	}
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Класс содержимого файла, отображённого в память.
+ * <p>
+ * Файл отображается в память окнами, поэтому его размер может превышать 2 ГБ.
+ * Символы декодируются блоками по мере обращения к ним, а в памяти хранятся
+ * только последние декодированные блоки. Для вычисления длины файл
+ * один раз просматривается при создании объекта без сохранения символов.
+ * Количество символов не может превышать {@link Integer#MAX_VALUE}.
+ * Блоки декодируются независимо, поэтому поддерживаются кодировки без состояния,
+ * например UTF-8 и однобайтовые кодировки.
+ * <p>
+ * Объект не является потокобезопасным. После закрытия отображение освобождается.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class MappedText implements CharSequence, Closeable
+{
+	/**
+	 * Размер блока декодирования в байтах.
+	 */
+	private static final int BLOCK_SIZE = 1024 * 1024;
+
+	/**
+	 * Размер окна отображения в байтах.
+	 */
+	private static final int WINDOW_SIZE = 256 * 1024 * 1024;
+
+	/**
+	 * Канал файла.
+	 */
+	@NotNull
+	private final FileChannel channel;
+
+	/**
+	 * Размер файла в байтах.
+	 */
+	private final long size;
+
+	/**
+	 * Декодер кодировки.
+	 */
+	@NotNull
+	private final CharsetDecoder decoder;
+
+	/**
+	 * Позиции начала блоков в байтах.
+	 */
+	private final long @NotNull [] blockBytes;
+
+	/**
+	 * Позиции начала блоков в символах.
+	 */
+	private final int @NotNull [] blockChars;
+
+	/**
+	 * Количество блоков.
+	 */
+	private final int blockCount;
+
+	/**
+	 * Текущее окно отображения.
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * Позиция начала текущего окна в байтах.
+	 */
+	private long windowPosition;
+
+	/**
+	 * Индекс последнего декодированного блока.
+	 */
+	private int lastBlock;
+
+	/**
+	 * Символы последнего декодированного блока.
+	 */
+	private char @NotNull [] lastChars;
+
+	/**
+	 * Индекс предпоследнего декодированного блока.
+	 */
+	private int previousBlock;
+
+	/**
+	 * Символы предпоследнего декодированного блока.
+	 */
+	private char @NotNull [] previousChars;
+
+	/**
+	 * Конструктор для {@code MappedText}.
+	 *
+	 * @param path путь к файлу.
+	 * @param charset кодировка файла.
+	 * @throws NullPointerException если в качестве {@code path} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code charset} передан {@code null}.
+	 * @throws IOException если произошла ошибка ввода-вывода или количество символов превышает
+	 * {@link Integer#MAX_VALUE}.
+	 */
+	public MappedText(@NotNull final Path path, @NotNull final Charset charset)
+		throws IOException
+	{
+		Objects.requireNonNull(path);
+		Objects.requireNonNull(charset);
+
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.decoder = charset.newDecoder()
+							  .onMalformedInput(CodingErrorAction.REPLACE)
+							  .onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.window = null;
+		this.windowPosition = 0;
+		this.lastBlock = -1;
+		this.lastChars = new char[0];
+		this.previousBlock = -1;
+		this.previousChars = this.lastChars;
+
+		try
+		{
+			this.size = this.channel.size();
+
+			int capacity = (int) (this.size / BLOCK_SIZE) + 2;
+			long[] blockBytes = new long[capacity];
+			int[] blockChars = new int[capacity];
+			int count = 0;
+			long position = 0;
+			long chars = 0;
+			CharBuffer output = CharBuffer.allocate((int) (BLOCK_SIZE * this.decoder.maxCharsPerByte()) + 16);
+
+			while (position < this.size)
+			{
+				if (count + 1 >= blockBytes.length)
+				{
+					blockBytes = Arrays.copyOf(blockBytes, blockBytes.length * 2);
+					blockChars = Arrays.copyOf(blockChars, blockChars.length * 2);
+				}
+
+				ByteBuffer input = this.map(position, (int) Math.min(BLOCK_SIZE, this.size - position));
+				boolean endOfInput = position + input.remaining() == this.size;
+
+				output.clear();
+				this.decode(input, output, endOfInput);
+
+				if (input.position() == 0) {
+					throw new IOException("Unable to decode " + path);
+				}
+
+				blockBytes[count] = position;
+				blockChars[count] = (int) chars;
+				count++;
+
+				position += input.position();
+				chars += output.position();
+
+				if (chars > Integer.MAX_VALUE) {
+					throw new IOException("Too many characters in " + path);
+				}
+			}
+
+			blockBytes[count] = position;
+			blockChars[count] = (int) chars;
+
+			this.blockBytes = blockBytes;
+			this.blockChars = blockChars;
+			this.blockCount = count;
+		}
+		catch (IOException | RuntimeException exception)
+		{
+			this.close();
+
+			throw exception;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public int length()
+	{
+		return this.blockChars[this.blockCount];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param index {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IndexOutOfBoundsException {@inheritDoc}
+	 */
+	@Override
+	public char charAt(final int index)
+	{
+		Objects.checkIndex(index, this.length());
+
+		if (this.lastBlock != -1 && index >= this.blockChars[this.lastBlock] && index < this.blockChars[this.lastBlock + 1]) {
+			return this.lastChars[index - this.blockChars[this.lastBlock]];
+		}
+
+		int block = this.findBlock(index);
+
+		return this.getBlock(block)[index - this.blockChars[block]];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @param start {@inheritDoc}
+	 * @param end {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IndexOutOfBoundsException {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public CharSequence subSequence(final int start, final int end)
+	{
+		Objects.checkFromToIndex(start, end, this.length());
+
+		char[] chars = new char[end - start];
+
+		for (int index = start; index < end; index++) {
+			chars[index - start] = this.charAt(index);
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return {@inheritDoc}
+	 */
+	@NotNull
+	@Override
+	public String toString()
+	{
+		StringBuilder value = new StringBuilder(this.length());
+
+		for (int block = 0; block < this.blockCount; block++) {
+			value.append(this.getBlock(block));
+		}
+
+		return value.toString();
+	}
+
+	/**
+	 * Освобождает отображение и закрывает файл.
+	 *
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		MappedText.unmap(this.window);
+
+		this.window = null;
+		this.lastBlock = -1;
+		this.lastChars = new char[0];
+		this.previousBlock = -1;
+		this.previousChars = this.lastChars;
+
+		this.channel.close();
+	}
+
+	/**
+	 * Возвращает индекс блока, содержащего символ.
+	 *
+	 * @param index индекс символа.
+	 * @return индекс блока.
+	 */
+	private int findBlock(final int index)
+	{
+		int block = Arrays.binarySearch(this.blockChars, 0, this.blockCount + 1, index);
+
+		if (block < 0) {
+			block = -block - 2;
+		}
+
+		while (block + 1 < this.blockCount && this.blockChars[block + 1] <= index) {
+			block++;
+		}
+
+		return block;
+	}
+
+	/**
+	 * Возвращает символы блока, декодируя его при необходимости.
+	 *
+	 * @param block индекс блока.
+	 * @return символы блока.
+	 */
+	private char @NotNull [] getBlock(final int block)
+	{
+		if (block == this.lastBlock) {
+			return this.lastChars;
+		}
+
+		if (block == this.previousBlock)
+		{
+			this.previousBlock = this.lastBlock;
+			this.lastBlock = block;
+
+			char[] chars = this.previousChars;
+			this.previousChars = this.lastChars;
+			this.lastChars = chars;
+
+			return chars;
+		}
+
+		try
+		{
+			long position = this.blockBytes[block];
+			int length = (int) (this.blockBytes[block + 1] - position);
+			char[] chars = new char[this.blockChars[block + 1] - this.blockChars[block]];
+			ByteBuffer input = this.map(position, length);
+			CharBuffer output = CharBuffer.wrap(chars);
+
+			this.decode(input, output, block + 1 == this.blockCount);
+
+			this.previousBlock = this.lastBlock;
+			this.previousChars = this.lastChars;
+			this.lastBlock = block;
+			this.lastChars = chars;
+
+			return chars;
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * Декодирует байты.
+	 *
+	 * @param input байты.
+	 * @param output символы.
+	 * @param endOfInput {@code true}, если байты являются окончанием файла, иначе {@code false}.
+	 * @throws CharacterCodingException если декодирование невозможно.
+	 */
+	private void decode(@NotNull final ByteBuffer input, @NotNull final CharBuffer output, final boolean endOfInput)
+		throws CharacterCodingException
+	{
+		this.decoder.reset();
+
+		CoderResult result = this.decoder.decode(input, output, endOfInput);
+
+		if (result.isError() || result.isOverflow()) {
+			result.throwException();
+		}
+
+		if (endOfInput)
+		{
+			result = this.decoder.flush(output);
+
+			if (result.isError() || result.isOverflow()) {
+				result.throwException();
+			}
+		}
+	}
+
+	/**
+	 * Возвращает байты файла, отображая новое окно при необходимости.
+	 *
+	 * @param position позиция начала в байтах.
+	 * @param length количество байт.
+	 * @return байты файла.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	@NotNull
+	private ByteBuffer map(final long position, final int length)
+		throws IOException
+	{
+		if (this.window == null || position < this.windowPosition ||
+			position + length > this.windowPosition + this.window.capacity())
+		{
+			MappedText.unmap(this.window);
+
+			this.window = null;
+			this.windowPosition = position;
+			this.window = this.channel.map(
+				FileChannel.MapMode.READ_ONLY,
+				position,
+				Math.min(WINDOW_SIZE, this.size - position)
+			);
+		}
+
+		int offset = (int) (position - this.windowPosition);
+
+		return this.window.slice(offset, length);
+	}
+
+	/**
+	 * Освобождает отображение, не дожидаясь сборки мусора.
+	 * <p>
+	 * Освобождение выполняется через {@code sun.misc.Unsafe} из необязательного модуля
+	 * {@code jdk.unsupported}, поэтому в модульном приложении и образе jlink этот модуль
+	 * необходимо добавить в граф модулей, например {@code --add-modules jdk.unsupported}.
+	 * Если освобождение недоступно, отображение освобождается при сборке мусора.
+	 *
+	 * @param buffer отображение.
+	 */
+	private static void unmap(final MappedByteBuffer buffer)
+	{
+		if (buffer == null) {
+			return;
+		}
+
+		try
+		{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+		}
+		catch (ReflectiveOperationException | RuntimeException exception)
+		{
+			// Отображение будет освобождено при сборке мусора.
+		}
+	}
+}
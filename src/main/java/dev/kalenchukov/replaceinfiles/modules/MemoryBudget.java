@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+/**
+ * Класс бюджета памяти для содержимого обрабатываемых файлов.
+ * <p>
+ * Перед чтением файла поток резервирует оценку необходимой памяти, а после
+ * обработки освобождает её. Если бюджета недостаточно, поток ожидает освобождения
+ * памяти другими потоками, поэтому суммарный объём резервов никогда не превышает бюджет.
+ * Объект потокобезопасен.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class MemoryBudget
+{
+	/**
+	 * Объём бюджета в байтах.
+	 */
+	private final long capacity;
+
+	/**
+	 * Объём зарезервированной памяти в байтах.
+	 */
+	private long used;
+
+	/**
+	 * Наибольший объём зарезервированной памяти в байтах.
+	 */
+	private long peak;
+
+	/**
+	 * Количество потоков, ожидающих освобождения памяти.
+	 */
+	private int waiting;
+
+	/**
+	 * Конструктор для {@code MemoryBudget}.
+	 *
+	 * @param capacity объём бюджета в байтах.
+	 * @throws IllegalArgumentException если {@code capacity} меньше {@code 1}.
+	 */
+	public MemoryBudget(final long capacity)
+	{
+		if (capacity < 1) {
+			throw new IllegalArgumentException();
+		}
+
+		this.capacity = capacity;
+		this.used = 0;
+		this.peak = 0;
+		this.waiting = 0;
+	}
+
+	/**
+	 * Резервирует память, ожидая её освобождения при необходимости.
+	 *
+	 * @param bytes объём памяти в байтах.
+	 * @throws IllegalArgumentException если {@code bytes} меньше {@code 0} или больше объёма бюджета.
+	 * @throws InterruptedException если ожидание прервано.
+	 */
+	public synchronized void acquire(final long bytes)
+		throws InterruptedException
+	{
+		if (bytes < 0 || bytes > this.capacity) {
+			throw new IllegalArgumentException();
+		}
+
+		this.waiting++;
+
+		try
+		{
+			while (this.used + bytes > this.capacity) {
+				this.wait();
+			}
+		}
+		finally
+		{
+			this.waiting--;
+		}
+
+		this.used += bytes;
+		this.peak = Math.max(this.peak, this.used);
+	}
+
+	/**
+	 * Освобождает зарезервированную память.
+	 *
+	 * @param bytes объём памяти в байтах.
+	 * @throws IllegalArgumentException если {@code bytes} меньше {@code 0} или больше зарезервированного объёма.
+	 */
+	public synchronized void release(final long bytes)
+	{
+		if (bytes < 0 || bytes > this.used) {
+			throw new IllegalArgumentException();
+		}
+
+		this.used -= bytes;
+		this.notifyAll();
+	}
+
+	/**
+	 * Возвращает объём бюджета.
+	 *
+	 * @return объём в байтах.
+	 */
+	public long getCapacity()
+	{
+		return this.capacity;
+	}
+
+	/**
+	 * Возвращает объём зарезервированной памяти.
+	 *
+	 * @return объём в байтах.
+	 */
+	public synchronized long getUsed()
+	{
+		return this.used;
+	}
+
+	/**
+	 * Возвращает наибольший объём зарезервированной памяти.
+	 *
+	 * @return объём в байтах.
+	 */
+	public synchronized long getPeak()
+	{
+		return this.peak;
+	}
+
+	/**
+	 * Возвращает количество потоков, ожидающих освобождения памяти.
+	 *
+	 * @return количество потоков.
+	 */
+	public synchronized int getWaiting()
+	{
+		return this.waiting;
+	}
+}
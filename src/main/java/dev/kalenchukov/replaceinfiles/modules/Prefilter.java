@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Класс предварительной проверки файлов по обязательным литералам правил.
+ * <p>
+ * Обязательные литералы правил кодируются в байты и ищутся в байтах файла
+ * алгоритмом Бойера — Мура — Хорспула без декодирования текста. Если в файле
+ * нет ни одного литерала, ни одно правило не найдёт совпадения и файл можно пропустить.
+ * <p>
+ * Проверка применима, только если у каждого правила есть обязательный литерал,
+ * а кодировка сохраняет вхождение подстроки при переходе к байтам:
+ * это UTF-8 и однобайтовые кодировки.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Prefilter
+{
+	/**
+	 * Размер буфера чтения файла.
+	 */
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * Закодированные литералы.
+	 */
+	private final byte @NotNull [] @NotNull [] needles;
+
+	/**
+	 * Таблицы сдвигов литералов.
+	 */
+	private final int @NotNull [] @NotNull [] shifts;
+
+	/**
+	 * Длина самого длинного литерала в байтах.
+	 */
+	private final int maxLength;
+
+	/**
+	 * Применимость проверки.
+	 */
+	private final boolean enabled;
+
+	/**
+	 * Буферы чтения файла.
+	 */
+	@NotNull
+	private final ThreadLocal<byte @NotNull []> buffers;
+
+	/**
+	 * Конструктор для {@code Prefilter}.
+	 *
+	 * @param rules правила.
+	 * @param charset кодировка файлов.
+	 * @throws NullPointerException если в качестве {@code rules} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code charset} передан {@code null}.
+	 */
+	public Prefilter(@NotNull final List<@NotNull Rule> rules, @NotNull final Charset charset)
+	{
+		Objects.requireNonNull(rules);
+		Objects.requireNonNull(charset);
+
+		CharsetEncoder encoder = charset.newEncoder();
+		boolean enabled = charset.equals(StandardCharsets.UTF_8) || encoder.maxBytesPerChar() == 1;
+		byte[][] needles = new byte[rules.size()][];
+		int maxLength = 0;
+
+		for (int index = 0; index < rules.size() && enabled; index++)
+		{
+			String literal = rules.get(index).getLiteral();
+
+			if (literal == null || literal.indexOf('\uFFFD') >= 0 || !encoder.canEncode(literal))
+			{
+				enabled = false;
+			}
+			else
+			{
+				needles[index] = literal.getBytes(charset);
+				maxLength = Math.max(maxLength, needles[index].length);
+			}
+		}
+
+		this.enabled = enabled;
+		this.maxLength = maxLength;
+		this.needles = enabled ? needles : new byte[0][];
+		this.shifts = new int[this.needles.length][];
+
+		for (int index = 0; index < this.needles.length; index++) {
+			this.shifts[index] = Prefilter.shifts(this.needles[index]);
+		}
+
+		int bufferSize = Math.max(BUFFER_SIZE, maxLength * 2);
+
+		this.buffers = ThreadLocal.withInitial(() -> new byte[bufferSize]);
+	}
+
+	/**
+	 * Проверяет, применима ли проверка к правилам.
+	 *
+	 * @return {@code true}, если у каждого правила есть обязательный литерал, иначе {@code false}.
+	 */
+	public boolean isEnabled()
+	{
+		return this.enabled;
+	}
+
+	/**
+	 * Проверяет, может ли файл содержать совпадение.
+	 * <p>
+	 * Файл читается блоками, поэтому объём памяти не зависит от размера файла.
+	 *
+	 * @param path путь к файлу.
+	 * @return {@code true}, если файл содержит хотя бы один литерал или проверка неприменима, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code path} передан {@code null}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	public boolean mayMatch(@NotNull final Path path) throws IOException
+	{
+		Objects.requireNonNull(path);
+
+		if (!this.enabled) {
+			return true;
+		}
+
+		if (this.needles.length == 0) {
+			return false;
+		}
+
+		byte[] buffer = this.buffers.get();
+		int keep = 0;
+
+		try (InputStream input = Files.newInputStream(path))
+		{
+			while (true)
+			{
+				int read = input.readNBytes(buffer, keep, buffer.length - keep);
+				int length = keep + read;
+
+				if (this.contains(buffer, length)) {
+					return true;
+				}
+
+				if (length < buffer.length) {
+					return false;
+				}
+
+				keep = this.maxLength - 1;
+
+				System.arraycopy(buffer, length - keep, buffer, 0, keep);
+			}
+		}
+	}
+
+	/**
+	 * Проверяет, содержат ли байты хотя бы один литерал.
+	 *
+	 * @param data байты.
+	 * @param length количество байтов.
+	 * @return {@code true}, если найден хотя бы один литерал, иначе {@code false}.
+	 */
+	private boolean contains(final byte @NotNull [] data, final int length)
+	{
+		for (int index = 0; index < this.needles.length; index++)
+		{
+			if (Prefilter.indexOf(data, 0, length, this.needles[index], this.shifts[index]) >= 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Ищет литерал в байтах алгоритмом Бойера — Мура — Хорспула.
+	 *
+	 * @param data байты.
+	 * @param from индекс, с которого начинается поиск.
+	 * @param length количество байтов.
+	 * @param needle литерал.
+	 * @param shifts таблица сдвигов литерала.
+	 * @return индекс начала литерала или {@code -1}, если литерал не найден.
+	 */
+	static int indexOf(final byte @NotNull [] data,
+					   final int from,
+					   final int length,
+					   final byte @NotNull [] needle,
+					   final int @NotNull [] shifts)
+	{
+		int last = needle.length - 1;
+		byte lastByte = needle[last];
+		int position = from;
+
+		while (position + last < length)
+		{
+			byte current = data[position + last];
+
+			if (current == lastByte)
+			{
+				int index = last - 1;
+
+				while (index >= 0 && data[position + index] == needle[index]) {
+					index--;
+				}
+
+				if (index < 0) {
+					return position;
+				}
+			}
+
+			position += shifts[current & 0xFF];
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Строит таблицу сдвигов литерала.
+	 *
+	 * @param needle литерал.
+	 * @return таблицу сдвигов по значению байта.
+	 */
+	static int @NotNull [] shifts(final byte @NotNull [] needle)
+	{
+		int[] shifts = new int[256];
+
+		Arrays.fill(shifts, needle.length);
+
+		for (int index = 0; index < needle.length - 1; index++) {
+			shifts[needle[index] & 0xFF] = needle.length - 1 - index;
+		}
+
+		return shifts;
+	}
+}
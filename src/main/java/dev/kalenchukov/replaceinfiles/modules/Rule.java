@@ -0,0 +1,1132 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Класс скомпилированного правила замены.
+ * <p>
+ * Шаблон регулярного выражения и строка замены компилируются один раз при создании правила.
+ * Правило неизменяемо и может использоваться из нескольких потоков одновременно.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Rule
+{
+	/**
+	 * Шаблон регулярного выражения.
+	 */
+	@NotNull
+	private final String regexp;
+
+	/**
+	 * Скомпилированный шаблон регулярного выражения.
+	 */
+	@NotNull
+	private final Pattern pattern;
+
+	/**
+	 * Строка замены.
+	 */
+	@NotNull
+	private final String replacement;
+
+	/**
+	 * Специальное правило.
+	 */
+	@Nullable
+	private final SpecialRule specialRule;
+
+	/**
+	 * Скомпилированная строка замены.
+	 */
+	@NotNull
+	private final Template template;
+
+	/**
+	 * Количество групп в шаблоне.
+	 */
+	private final int groupCount;
+
+	/**
+	 * Обязательный литерал шаблона.
+	 */
+	@Nullable
+	private final String literal;
+
+	/**
+	 * Признак того, что совпадения шаблона не выходят за пределы строки.
+	 */
+	private final boolean lineBounded;
+
+	/**
+	 * Символы, которые могут входить в совпадения шаблона.
+	 */
+	@Nullable
+	private final Alphabet alphabet;
+
+	/**
+	 * Шаблон, не допускающий объединения с другими шаблонами.
+	 * <p>
+	 * Обратные ссылки, режим комментариев и незакрытое экранирование {@code \Q}
+	 * меняют смысл при помещении шаблона в группу объединённого шаблона.
+	 */
+	@NotNull
+	private static final Pattern NOT_FUSABLE = Pattern.compile(
+		"\\\\[1-9]|\\\\k<|\\\\Q|\\(\\?[a-zA-Z]*x"
+	);
+
+	/**
+	 * Конструктор для {@code Rule}.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @param replacement строка замены.
+	 * @throws NullPointerException если в качестве {@code regexp} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code replacement} передан {@code null}.
+	 * @throws PatternSyntaxException если синтаксис {@code regexp} некорректен.
+	 * @throws IllegalArgumentException если строка замены содержит некорректную ссылку на группу
+	 * или ссылается на несуществующую именованную группу.
+	 * @throws IndexOutOfBoundsException если строка замены ссылается на несуществующую группу.
+	 */
+	public Rule(@NotNull final String regexp, @NotNull final String replacement)
+	{
+		Objects.requireNonNull(regexp);
+		Objects.requireNonNull(replacement);
+
+		this.regexp = regexp;
+		this.pattern = Pattern.compile(regexp);
+		this.replacement = replacement;
+		this.specialRule = Rule.findSpecialRule(replacement);
+		this.groupCount = this.pattern.matcher("").groupCount();
+		this.literal = Rule.findLiteral(regexp);
+		this.lineBounded = Rule.findLineBounded(this.pattern);
+		this.alphabet = Alphabet.of(this.pattern);
+
+		if (this.specialRule == null) {
+			this.template = Template.compile(replacement, this.groupCount, Rule.findGroupNames(regexp));
+		}
+		else {
+			this.template = Template.of(this.specialRule);
+		}
+	}
+
+	/**
+	 * Возвращает шаблон регулярного выражения.
+	 *
+	 * @return шаблон регулярного выражения.
+	 */
+	@NotNull
+	public String getRegexp()
+	{
+		return this.regexp;
+	}
+
+	/**
+	 * Возвращает скомпилированный шаблон регулярного выражения.
+	 *
+	 * @return скомпилированный шаблон.
+	 */
+	@NotNull
+	public Pattern getPattern()
+	{
+		return this.pattern;
+	}
+
+	/**
+	 * Возвращает строку замены.
+	 *
+	 * @return строку замены.
+	 */
+	@NotNull
+	public String getReplacement()
+	{
+		return this.replacement;
+	}
+
+	/**
+	 * Возвращает специальное правило.
+	 *
+	 * @return специальное правило или {@code null}, если правило обычное.
+	 */
+	@Nullable
+	public SpecialRule getSpecialRule()
+	{
+		return this.specialRule;
+	}
+
+	/**
+	 * Возвращает скомпилированную строку замены.
+	 *
+	 * @return скомпилированную строку замены.
+	 */
+	@NotNull
+	public Template getTemplate()
+	{
+		return this.template;
+	}
+
+	/**
+	 * Возвращает количество групп в шаблоне.
+	 *
+	 * @return количество групп.
+	 */
+	public int getGroupCount()
+	{
+		return this.groupCount;
+	}
+
+	/**
+	 * Возвращает обязательный литерал шаблона.
+	 * <p>
+	 * Любое совпадение шаблона содержит этот литерал, поэтому текст без литерала
+	 * не требует выполнения регулярного выражения.
+	 *
+	 * @return обязательный литерал или {@code null}, если его невозможно определить.
+	 */
+	@Nullable
+	public String getLiteral()
+	{
+		return this.literal;
+	}
+
+	/**
+	 * Проверяет, можно ли объединять шаблон правила с шаблонами других правил.
+	 *
+	 * @return {@code true}, если шаблон можно поместить в группу объединённого шаблона, иначе {@code false}.
+	 */
+	public boolean isFusable()
+	{
+		return (this.pattern.flags() & Pattern.COMMENTS) == 0 &&
+			   !NOT_FUSABLE.matcher(this.regexp).find();
+	}
+
+	/**
+	 * Проверяет, ограничены ли совпадения шаблона одной строкой.
+	 * <p>
+	 * Такое правило даёт одинаковый результат для всего текста и для частей текста,
+	 * разделённых после символа {@code \n}, поэтому части можно обрабатывать независимо.
+	 *
+	 * @return {@code true}, если совпадения не содержат символ {@code \n} и не зависят
+	 * от начала и конца текста, иначе {@code false}.
+	 */
+	public boolean isLineBounded()
+	{
+		return this.lineBounded;
+	}
+
+	/**
+	 * Проверяет, может ли результат правила зависеть от выполнения другого правила.
+	 * <p>
+	 * Анализ консервативен: правила независимы, только если символы их совпадений
+	 * не пересекаются, а строка замены {@code previous} не пуста, состоит только
+	 * из литералов и не содержит символов, которые могут входить в совпадения
+	 * данного правила. Тогда совпадения правил не пересекаются в исходном тексте,
+	 * а данное правило не находит совпадений ни в тексте замены, ни на его границах.
+	 * Ссылки на группы и специальные знаки считаются произвольным текстом.
+	 * Шаблоны с границами, проверками окружения или пустыми совпадениями
+	 * считаются зависимыми.
+	 *
+	 * @param previous правило, выполняемое раньше данного.
+	 * @return {@code true}, если данное правило зависит от результата {@code previous}, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code previous} передан {@code null}.
+	 */
+	public boolean dependsOn(@NotNull final Rule previous)
+	{
+		Objects.requireNonNull(previous);
+
+		if (this.alphabet == null || previous.alphabet == null || !previous.getTemplate().isLiteral()) {
+			return true;
+		}
+
+		String output = String.join("", previous.getTemplate().getLiterals());
+
+		if (output.isEmpty()) {
+			return true;
+		}
+
+		for (int codePoint : output.codePoints().toArray())
+		{
+			if (this.alphabet.contains(codePoint)) {
+				return true;
+			}
+		}
+
+		return this.alphabet.intersects(previous.alphabet);
+	}
+
+	/**
+	 * Возвращает специальное правило по строке замены.
+	 *
+	 * @param replacement строка замены.
+	 * @return специальное правило или {@code null}, если строка замены не является специальным знаком.
+	 */
+	@Nullable
+	private static SpecialRule findSpecialRule(@NotNull final String replacement)
+	{
+		for (SpecialRule specialRule : SpecialRule.values())
+		{
+			if (specialRule.getSpecialSign().equals(replacement)) {
+				return specialRule;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Определяет, ограничены ли совпадения шаблона одной строкой.
+	 * <p>
+	 * Анализ консервативен. Шаблон отклоняется, если хотя бы одно экранирование или класс
+	 * символов находит символ {@code \n}, если шаблон содержит перевод строки, границы
+	 * текста {@code \A}, {@code \z}, {@code \Z}, {@code \G}, символы {@code ^} и {@code $}
+	 * без флага {@code (?m)} или флаги {@code s} и {@code x}, а также если шаблон находит
+	 * пустое совпадение в конце текста после перевода строки, которое повторилось бы
+	 * в начале следующей части.
+	 *
+	 * @param pattern скомпилированный шаблон.
+	 * @return {@code true}, если совпадения шаблона ограничены одной строкой, иначе {@code false}.
+	 */
+	private static boolean findLineBounded(@NotNull final Pattern pattern)
+	{
+		String regexp = pattern.pattern();
+		boolean multiline = false;
+		int index = 0;
+
+		while (index < regexp.length())
+		{
+			char symbol = regexp.charAt(index);
+
+			if (symbol == '\\')
+			{
+				int end = Rule.findEscapeEnd(regexp, index);
+				char kind = index + 1 < regexp.length() ? regexp.charAt(index + 1) : '\\';
+
+				if ("AzZG".indexOf(kind) >= 0) {
+					return false;
+				}
+
+				if (kind == 'Q')
+				{
+					if (regexp.substring(index, end).indexOf('\n') >= 0) {
+						return false;
+					}
+				}
+				else if (kind != 'k' && (kind < '1' || kind > '9') && Rule.matchesNewline(regexp.substring(index, end)))
+				{
+					return false;
+				}
+
+				index = end;
+			}
+			else if (symbol == '[')
+			{
+				int end = Rule.findClassEnd(regexp, index);
+
+				if (Rule.matchesNewline(regexp.substring(index, end))) {
+					return false;
+				}
+
+				index = end;
+			}
+			else if (symbol == '(' && regexp.startsWith("(?", index))
+			{
+				int end = index + 2;
+
+				while (end < regexp.length() && "idmsuxU-".indexOf(regexp.charAt(end)) >= 0) {
+					end++;
+				}
+
+				if (end > index + 2 && end < regexp.length() && (regexp.charAt(end) == ':' || regexp.charAt(end) == ')'))
+				{
+					String flags = regexp.substring(index + 2, end);
+					int minus = flags.indexOf('-');
+					String enabled = minus < 0 ? flags : flags.substring(0, minus);
+
+					if (enabled.indexOf('s') >= 0 || enabled.indexOf('x') >= 0) {
+						return false;
+					}
+
+					multiline = enabled.indexOf('m') >= 0 && regexp.charAt(end) == ')' || multiline && flags.indexOf('m') < 0;
+				}
+
+				index = end;
+			}
+			else if (symbol == '\n' || (symbol == '^' || symbol == '$') && !multiline)
+			{
+				return false;
+			}
+			else
+			{
+				index++;
+			}
+		}
+
+		Matcher matcher = pattern.matcher("\n");
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		matcher.region(1, 1);
+
+		return !matcher.find();
+	}
+
+	/**
+	 * Возвращает позицию после экранирования.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @param index позиция символа {@code \}.
+	 * @return позицию символа, следующего за экранированием.
+	 */
+	private static int findEscapeEnd(@NotNull final String regexp, final int index)
+	{
+		if (index + 1 >= regexp.length()) {
+			return regexp.length();
+		}
+
+		char kind = regexp.charAt(index + 1);
+		int end;
+
+		switch (kind)
+		{
+			case 'x' -> end = regexp.startsWith("{", index + 2) ? regexp.indexOf('}', index) + 1 : index + 4;
+			case 'u' -> end = index + 6;
+			case 'c' -> end = index + 3;
+			case 'p', 'P', 'N' -> end = regexp.startsWith("{", index + 2) ? regexp.indexOf('}', index) + 1 : index + 3;
+			case 'k' -> end = regexp.indexOf('>', index) + 1;
+			case 'Q' -> {
+				int quote = regexp.indexOf("\\E", index + 2);
+
+				end = quote < 0 ? regexp.length() : quote + 2;
+			}
+			case '0' -> {
+				end = index + 2;
+
+				while (end < regexp.length() && end < index + 5 && regexp.charAt(end) >= '0' && regexp.charAt(end) <= '7') {
+					end++;
+				}
+			}
+			default -> {
+				end = index + 2;
+
+				if (kind >= '1' && kind <= '9')
+				{
+					while (end < regexp.length() && Character.isDigit(regexp.charAt(end))) {
+						end++;
+					}
+				}
+			}
+		}
+
+		return end <= index ? regexp.length() : Math.min(end, regexp.length());
+	}
+
+	/**
+	 * Возвращает позицию после класса символов.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @param index позиция символа {@code [}.
+	 * @return позицию символа, следующего за классом.
+	 */
+	private static int findClassEnd(@NotNull final String regexp, final int index)
+	{
+		int end = index + 1;
+		int depth = 1;
+
+		if (regexp.startsWith("^", end)) {
+			end++;
+		}
+
+		if (regexp.startsWith("]", end)) {
+			end++;
+		}
+
+		while (end < regexp.length())
+		{
+			char symbol = regexp.charAt(end);
+
+			if (symbol == '\\')
+			{
+				end = Rule.findEscapeEnd(regexp, end);
+
+				continue;
+			}
+
+			if (symbol == '[') {
+				depth++;
+			}
+			else if (symbol == ']' && --depth == 0) {
+				return end + 1;
+			}
+
+			end++;
+		}
+
+		return regexp.length();
+	}
+
+	/**
+	 * Проверяет, находит ли часть шаблона символ {@code \n}.
+	 *
+	 * @param atom экранирование или класс символов.
+	 * @return {@code true}, если часть находит символ {@code \n} или не может быть скомпилирована отдельно,
+	 * иначе {@code false}.
+	 */
+	private static boolean matchesNewline(@NotNull final String atom)
+	{
+		try
+		{
+			return Pattern.compile(atom).matcher("\n").matches();
+		}
+		catch (PatternSyntaxException exception)
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * Находит имена именованных групп шаблона.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @return имена групп.
+	 */
+	@NotNull
+	private static Set<@NotNull String> findGroupNames(@NotNull final String regexp)
+	{
+		Set<String> names = new HashSet<>();
+		int index = 0;
+
+		while (index < regexp.length())
+		{
+			char symbol = regexp.charAt(index);
+
+			if (symbol == '\\')
+			{
+				index = Rule.findEscapeEnd(regexp, index);
+			}
+			else if (symbol == '[')
+			{
+				index = Rule.findClassEnd(regexp, index);
+			}
+			else if (regexp.startsWith("(?<", index) && !regexp.startsWith("(?<=", index) &&
+					 !regexp.startsWith("(?<!", index))
+			{
+				int end = regexp.indexOf('>', index);
+
+				names.add(regexp.substring(index + 3, end));
+				index = end + 1;
+			}
+			else
+			{
+				index++;
+			}
+		}
+
+		return names;
+	}
+
+	/**
+	 * Находит самый длинный обязательный литерал шаблона.
+	 * <p>
+	 * Просматривается только верхний уровень шаблона: группы, классы символов
+	 * и экранированные последовательности прерывают литерал, а необязательный
+	 * символ исключается из него. Для шаблонов с альтернативой верхнего уровня,
+	 * флагами и экранированием {@code \Q} литерал не определяется.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @return обязательный литерал или {@code null}, если его невозможно определить.
+	 */
+	@Nullable
+	private static String findLiteral(@NotNull final String regexp)
+	{
+		if (regexp.contains("\\Q")) {
+			return null;
+		}
+
+		String longest = "";
+		StringBuilder current = new StringBuilder();
+		int index = 0;
+
+		while (index < regexp.length())
+		{
+			char symbol = regexp.charAt(index);
+			int atomStart = current.length();
+			boolean literal = false;
+
+			switch (symbol)
+			{
+				case '\\' -> {
+					if (index + 1 >= regexp.length()) {
+						return null;
+					}
+
+					char escaped = regexp.charAt(index + 1);
+
+					if (Character.isLetterOrDigit(escaped)) {
+						index = Rule.skipEscape(regexp, index);
+					}
+					else {
+						current.append(escaped);
+						literal = true;
+						index += 2;
+					}
+				}
+				case '[' -> index = Rule.skipClass(regexp, index);
+				case '(' -> {
+					if (regexp.startsWith("(?", index) && index + 2 < regexp.length() &&
+						(Character.isLetter(regexp.charAt(index + 2)) || regexp.charAt(index + 2) == '-')) {
+						return null;
+					}
+
+					index = Rule.skipGroup(regexp, index);
+
+					if (index < 0) {
+						return null;
+					}
+				}
+				case '|', ')', '?', '*', '+', '{' -> {
+					return null;
+				}
+				case '.', '^', '$' -> index++;
+				default -> {
+					current.append(symbol);
+					literal = true;
+					index++;
+
+					if (Character.isHighSurrogate(symbol) && index < regexp.length() &&
+						Character.isLowSurrogate(regexp.charAt(index)))
+					{
+						current.append(regexp.charAt(index));
+						index++;
+					}
+				}
+			}
+
+			boolean quantified = index < regexp.length() && "?*+{".indexOf(regexp.charAt(index)) >= 0;
+
+			if (quantified)
+			{
+				char quantifier = regexp.charAt(index);
+				boolean optional = quantifier == '?' || quantifier == '*';
+
+				if (quantifier == '{')
+				{
+					int end = regexp.indexOf('}', index);
+
+					if (end < 0) {
+						return null;
+					}
+
+					optional = regexp.charAt(index + 1) == '0' || regexp.charAt(index + 1) == ',';
+					index = end;
+				}
+
+				index++;
+
+				if (index < regexp.length() && (regexp.charAt(index) == '?' || regexp.charAt(index) == '+')) {
+					index++;
+				}
+
+				if (literal && optional) {
+					current.setLength(atomStart);
+				}
+			}
+
+			if (!literal || quantified)
+			{
+				if (current.length() > longest.length()) {
+					longest = current.toString();
+				}
+
+				current.setLength(0);
+			}
+		}
+
+		if (current.length() > longest.length()) {
+			longest = current.toString();
+		}
+
+		return longest.isEmpty() ? null : longest;
+	}
+
+	/**
+	 * Пропускает экранированную последовательность, не являющуюся литералом.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @param index индекс символа {@code \}.
+	 * @return индекс символа после последовательности.
+	 */
+	private static int skipEscape(@NotNull final String regexp, final int index)
+	{
+		char escaped = regexp.charAt(index + 1);
+		int next = index + 2;
+
+		switch (escaped)
+		{
+			case 'p', 'P', 'x', 'N' -> {
+				if (next < regexp.length() && regexp.charAt(next) == '{') {
+					return Math.max(regexp.indexOf('}', next) + 1, next);
+				}
+
+				return Math.min(next + (escaped == 'x' ? 2 : 1), regexp.length());
+			}
+			case 'u' -> {
+				return Math.min(next + 4, regexp.length());
+			}
+			case 'c' -> {
+				return Math.min(next + 1, regexp.length());
+			}
+			case 'k' -> {
+				return Math.max(regexp.indexOf('>', next) + 1, next);
+			}
+			default -> {
+				if (Character.isDigit(escaped))
+				{
+					while (next < regexp.length() && Character.isDigit(regexp.charAt(next))) {
+						next++;
+					}
+				}
+
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Пропускает класс символов.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @param index индекс символа {@code [}.
+	 * @return индекс символа после класса.
+	 */
+	private static int skipClass(@NotNull final String regexp, final int index)
+	{
+		int depth = 0;
+		int position = index;
+
+		while (position < regexp.length())
+		{
+			char symbol = regexp.charAt(position);
+
+			if (symbol == '\\') {
+				position++;
+			}
+			else if (symbol == '[') {
+				depth++;
+			}
+			else if (symbol == ']' && position > index + 1 && regexp.charAt(position - 1) != '[' &&
+					 !(regexp.charAt(position - 1) == '^' && regexp.charAt(position - 2) == '['))
+			{
+				depth--;
+
+				if (depth == 0) {
+					return position + 1;
+				}
+			}
+
+			position++;
+		}
+
+		return regexp.length();
+	}
+
+	/**
+	 * Пропускает группу.
+	 *
+	 * @param regexp шаблон регулярного выражения.
+	 * @param index индекс символа {@code (}.
+	 * @return индекс символа после группы или {@code -1}, если группа не закрыта.
+	 */
+	private static int skipGroup(@NotNull final String regexp, final int index)
+	{
+		int depth = 0;
+		int position = index;
+
+		while (position < regexp.length())
+		{
+			char symbol = regexp.charAt(position);
+
+			if (symbol == '\\') {
+				position++;
+			}
+			else if (symbol == '[') {
+				position = Rule.skipClass(regexp, position) - 1;
+			}
+			else if (symbol == '(') {
+				depth++;
+			}
+			else if (symbol == ')')
+			{
+				depth--;
+
+				if (depth == 0) {
+					return position + 1;
+				}
+			}
+
+			position++;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Класс символов, которые могут входить в совпадения шаблона.
+	 * <p>
+	 * Оценка консервативна: каждый элемент шаблона, находящий один символ, проверяется
+	 * отдельно, а квантификаторы и группы не учитываются, поэтому множество символов
+	 * может быть больше фактического, но не меньше.
+	 */
+	private static final class Alphabet
+	{
+		/**
+		 * Наибольшее количество символов, перечисляемых в классе символов.
+		 */
+		private static final int MAX_CHARS = 256;
+
+		/**
+		 * Флаги, влияющие на символы, которые находит элемент шаблона.
+		 */
+		private static final int ATOM_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE |
+											  Pattern.UNICODE_CHARACTER_CLASS;
+
+		/**
+		 * Элементы шаблона, каждый из которых находит один символ.
+		 */
+		@NotNull
+		private final List<@NotNull Pattern> atoms;
+
+		/**
+		 * Все символы, которые могут входить в совпадения.
+		 */
+		@Nullable
+		private final Set<@NotNull Integer> chars;
+
+		/**
+		 * Конструктор для {@code Alphabet}.
+		 *
+		 * @param atoms элементы шаблона, каждый из которых находит один символ.
+		 * @param chars все символы, которые могут входить в совпадения,
+		 * или {@code null}, если их невозможно перечислить.
+		 */
+		private Alphabet(@NotNull final List<@NotNull Pattern> atoms, @Nullable final Set<@NotNull Integer> chars)
+		{
+			this.atoms = atoms;
+			this.chars = chars;
+		}
+
+		/**
+		 * Проверяет, может ли символ входить в совпадения.
+		 *
+		 * @param codePoint код символа.
+		 * @return {@code true}, если символ может входить в совпадения, иначе {@code false}.
+		 */
+		private boolean contains(final int codePoint)
+		{
+			String value = new String(Character.toChars(codePoint));
+
+			for (Pattern atom : this.atoms)
+			{
+				if (atom.matcher(value).matches()) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Проверяет, могут ли совпадения двух шаблонов содержать общий символ.
+		 *
+		 * @param other символы совпадений другого шаблона.
+		 * @return {@code true}, если общий символ возможен или символы невозможно перечислить, иначе {@code false}.
+		 */
+		private boolean intersects(@NotNull final Alphabet other)
+		{
+			Alphabet finite = this.chars == null ? other : this;
+			Alphabet rest = finite == this ? other : this;
+
+			if (finite.chars == null) {
+				return true;
+			}
+
+			for (int codePoint : finite.chars)
+			{
+				if (rest.contains(codePoint)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Определяет символы, которые могут входить в совпадения шаблона.
+		 *
+		 * @param pattern скомпилированный шаблон.
+		 * @return символы совпадений или {@code null}, если шаблон находит пустые совпадения,
+		 * содержит границы или проверки окружения.
+		 */
+		@Nullable
+		private static Alphabet of(@NotNull final Pattern pattern)
+		{
+			if (pattern.matcher("").matches()) {
+				return null;
+			}
+
+			String regexp = pattern.pattern();
+			int flags = pattern.flags() & ATOM_FLAGS;
+			List<String> atoms = new ArrayList<>();
+			Set<Integer> chars = new HashSet<>();
+			boolean finite = true;
+			int index = 0;
+
+			while (index < regexp.length())
+			{
+				char symbol = regexp.charAt(index);
+
+				if (symbol == '\\')
+				{
+					int end = Rule.findEscapeEnd(regexp, index);
+					char kind = index + 1 < regexp.length() ? regexp.charAt(index + 1) : '\\';
+
+					if ("bBAzZG".indexOf(kind) >= 0) {
+						return null;
+					}
+
+					if (kind == 'Q')
+					{
+						String quoted = regexp.substring(index + 2, end);
+
+						if (quoted.endsWith("\\E")) {
+							quoted = quoted.substring(0, quoted.length() - 2);
+						}
+
+						for (int codePoint : quoted.codePoints().toArray())
+						{
+							atoms.add(Pattern.quote(new String(Character.toChars(codePoint))));
+							chars.add(codePoint);
+						}
+					}
+					else
+					{
+						int value = Alphabet.findEscapeValue(regexp, index, end);
+
+						if (value < 0) {
+							finite = false;
+						}
+						else {
+							chars.add(value);
+						}
+
+						atoms.add(regexp.substring(index, end));
+					}
+
+					index = end;
+				}
+				else if (symbol == '[')
+				{
+					int end = Rule.findClassEnd(regexp, index);
+
+					finite &= Alphabet.addClassChars(regexp.substring(index + 1, end - 1), chars);
+					atoms.add(regexp.substring(index, end));
+					index = end;
+				}
+				else if (symbol == '(' && regexp.startsWith("(?", index))
+				{
+					if (regexp.startsWith("(?=", index) || regexp.startsWith("(?!", index) ||
+						regexp.startsWith("(?<=", index) || regexp.startsWith("(?<!", index))
+					{
+						return null;
+					}
+
+					if (regexp.startsWith("(?<", index))
+					{
+						index = regexp.indexOf('>', index) + 1;
+					}
+					else
+					{
+						int end = index + 2;
+
+						while (end < regexp.length() && "idmsuxU-".indexOf(regexp.charAt(end)) >= 0) {
+							end++;
+						}
+
+						String enabled = regexp.substring(index + 2, end).split("-", -1)[0];
+
+						if (enabled.indexOf('i') >= 0) {
+							flags |= Pattern.CASE_INSENSITIVE;
+						}
+
+						if (enabled.indexOf('u') >= 0) {
+							flags |= Pattern.UNICODE_CASE;
+						}
+
+						if (enabled.indexOf('U') >= 0) {
+							flags |= Pattern.UNICODE_CHARACTER_CLASS;
+						}
+
+						index = end + 1;
+					}
+				}
+				else if (symbol == '{')
+				{
+					index = regexp.indexOf('}', index) + 1;
+				}
+				else if (symbol == '^' || symbol == '$')
+				{
+					return null;
+				}
+				else if ("()|*+?".indexOf(symbol) >= 0)
+				{
+					index++;
+				}
+				else if (symbol == '.')
+				{
+					atoms.add("(?s:.)");
+					finite = false;
+					index++;
+				}
+				else
+				{
+					int codePoint = regexp.codePointAt(index);
+
+					atoms.add(Pattern.quote(new String(Character.toChars(codePoint))));
+					chars.add(codePoint);
+					index += Character.charCount(codePoint);
+				}
+			}
+
+			if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+				finite = false;
+			}
+
+			List<Pattern> compiled = new ArrayList<>();
+
+			try
+			{
+				for (String atom : atoms) {
+					compiled.add(Pattern.compile(atom, flags));
+				}
+			}
+			catch (PatternSyntaxException exception)
+			{
+				return null;
+			}
+
+			return new Alphabet(compiled, finite ? chars : null);
+		}
+
+		/**
+		 * Возвращает символ, который находит экранирование.
+		 *
+		 * @param regexp шаблон регулярного выражения.
+		 * @param index позиция символа {@code \}.
+		 * @param end позиция символа, следующего за экранированием.
+		 * @return код символа или {@code -1}, если экранирование находит несколько разных символов.
+		 */
+		private static int findEscapeValue(@NotNull final String regexp, final int index, final int end)
+		{
+			if (index + 1 >= end) {
+				return -1;
+			}
+
+			char kind = regexp.charAt(index + 1);
+
+			try
+			{
+				return switch (kind)
+				{
+					case 't' -> '\t';
+					case 'n' -> '\n';
+					case 'r' -> '\r';
+					case 'f' -> '\f';
+					case 'a' -> '\u0007';
+					case 'e' -> '\u001B';
+					case 'c' -> end > index + 2 ? regexp.charAt(index + 2) ^ 64 : -1;
+					case 'x' -> Integer.parseInt(regexp.substring(index + 2, end).replace("{", "").replace("}", ""), 16);
+					case 'u' -> Integer.parseInt(regexp.substring(index + 2, end), 16);
+					case '0' -> Integer.parseInt(regexp.substring(index + 2, end), 8);
+					default -> Character.isLetterOrDigit(kind) ? -1 : kind;
+				};
+			}
+			catch (NumberFormatException exception)
+			{
+				return -1;
+			}
+		}
+
+		/**
+		 * Добавляет символы простого класса символов.
+		 *
+		 * @param body содержимое класса символов без квадратных скобок.
+		 * @param chars символы, в которые добавляются символы класса.
+		 * @return {@code true}, если символы класса перечислены, иначе {@code false}.
+		 */
+		private static boolean addClassChars(@NotNull final String body, @NotNull final Set<@NotNull Integer> chars)
+		{
+			if (body.startsWith("^") || body.contains("[") || body.contains("\\") || body.contains("&&")) {
+				return false;
+			}
+
+			int[] codePoints = body.codePoints().toArray();
+			int count = 0;
+
+			for (int index = 0; index < codePoints.length; index++)
+			{
+				int from = codePoints[index];
+				int to = from;
+
+				if (index + 2 < codePoints.length && codePoints[index + 1] == '-')
+				{
+					to = codePoints[index + 2];
+					index += 2;
+				}
+
+				count += to - from + 1;
+
+				if (to < from || count > MAX_CHARS) {
+					return false;
+				}
+
+				for (int codePoint = from; codePoint <= to; codePoint++) {
+					chars.add(codePoint);
+				}
+			}
+
+			return true;
+		}
+	}
+}
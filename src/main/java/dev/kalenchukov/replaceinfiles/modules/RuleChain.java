@@ -0,0 +1,880 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Класс цепочки правил замены.
+ * <p>
+ * Правила выполняются проходами. Каждый проход один раз просматривает текст и один раз
+ * собирает результат. В режиме объединения независимые правила, идущие подряд,
+ * объединяются в один шаблон вида {@code (rule1)|(rule2)|...}, а строка замены
+ * выбирается по сработавшей группе. Правило объединяется с проходом, только если
+ * оно доказуемо не зависит от его правил (см. {@link Rule#dependsOn(Rule)}), иначе
+ * начинается новый проход, так что результат совпадает с результатом без объединения.
+ * <p>
+ * Для больших файлов цепочка может выполняться потоково: каждый проход хранит
+ * только окно текста и перекрытие, поэтому объём памяти не зависит от размера файла.
+ * <p>
+ * Если передан объект {@link Statistics}, цепочка учитывает количество совпадений
+ * и процессорное время выполнения каждого правила. Время правил, объединённых в один проход,
+ * равно времени всего прохода.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class RuleChain
+{
+	/**
+	 * Проходы цепочки.
+	 */
+	@NotNull
+	private final List<@NotNull Pass> passes;
+
+	/**
+	 * Хеш цепочки.
+	 */
+	private final long hash;
+
+	/**
+	 * Цепочка правил над байтами UTF-8.
+	 */
+	@Nullable
+	private final ByteChain byteChain;
+
+	/**
+	 * Конструктор для {@code RuleChain}.
+	 *
+	 * @param rules правила в порядке выполнения.
+	 * @param fused {@code true}, если независимые правила необходимо объединять, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code rules} передан {@code null}.
+	 */
+	public RuleChain(@NotNull final List<@NotNull Rule> rules, final boolean fused)
+	{
+		Objects.requireNonNull(rules);
+
+		List<Pass> passes = new ArrayList<>();
+		List<Rule> current = new ArrayList<>();
+		Pass pass = null;
+		int first = 0;
+
+		for (int index = 0; index < rules.size(); index++)
+		{
+			Rule rule = rules.get(index);
+			Pass fusedPass = null;
+
+			if (fused && !current.isEmpty() && current.get(0).isFusable() && rule.isFusable() &&
+				!RuleChain.dependsOnAny(rule, current))
+			{
+				List<Rule> candidate = new ArrayList<>(current);
+				candidate.add(rule);
+
+				try
+				{
+					fusedPass = new Pass(candidate, first);
+				}
+				catch (PatternSyntaxException exception)
+				{
+					fusedPass = null;
+				}
+			}
+
+			if (fusedPass == null)
+			{
+				if (pass != null) {
+					passes.add(pass);
+				}
+
+				current = new ArrayList<>();
+				current.add(rule);
+				first = index;
+				pass = new Pass(current, first);
+			}
+			else
+			{
+				current.add(rule);
+				pass = fusedPass;
+			}
+		}
+
+		if (pass != null) {
+			passes.add(pass);
+		}
+
+		this.passes = Collections.unmodifiableList(passes);
+		this.hash = RuleChain.hash(this.passes);
+		this.byteChain = this.passes.size() == rules.size() ? ByteChain.compile(rules) : null;
+	}
+
+	/**
+	 * Возвращает хеш цепочки.
+	 * <p>
+	 * Хеш зависит от выражений и замен всех правил и от их распределения по проходам,
+	 * поэтому цепочки с одинаковым хешем одинаково изменяют текст.
+	 *
+	 * @return хеш цепочки.
+	 */
+	public long getHash()
+	{
+		return this.hash;
+	}
+
+	/**
+	 * Возвращает цепочку правил над байтами UTF-8.
+	 * <p>
+	 * Цепочка над байтами изменяет текст так же, как данная цепочка, но доступна,
+	 * только если все правила выполняются над байтами и никакие правила не объединены.
+	 *
+	 * @return цепочку над байтами или {@code null}, если она недоступна.
+	 */
+	@Nullable
+	public ByteChain getByteChain()
+	{
+		return this.byteChain;
+	}
+
+	/**
+	 * Возвращает количество проходов.
+	 *
+	 * @return количество проходов.
+	 */
+	public int getPassCount()
+	{
+		return this.passes.size();
+	}
+
+	/**
+	 * Выполняет все правила цепочки.
+	 *
+	 * @param value текст.
+	 * @param file файл, к содержимому которого применяются правила.
+	 * @return текст после замены.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 */
+	@NotNull
+	public String apply(@NotNull final String value, @NotNull final File file)
+	{
+		return this.apply(value, file, null);
+	}
+
+	/**
+	 * Выполняет все правила цепочки с учётом статистики правил.
+	 *
+	 * @param value текст.
+	 * @param file файл, к содержимому которого применяются правила.
+	 * @param statistics счётчики замены или {@code null}, если статистика не собирается.
+	 * @return текст после замены.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 */
+	@NotNull
+	public String apply(@NotNull final String value,
+						@NotNull final File file,
+						@Nullable final Statistics statistics)
+	{
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(file);
+
+		String result = value;
+
+		for (Pass pass : this.passes) {
+			result = pass.apply(result, file, statistics);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Вычисляет хеш проходов.
+	 *
+	 * @param passes проходы.
+	 * @return хеш проходов.
+	 */
+	private static long hash(@NotNull final List<@NotNull Pass> passes)
+	{
+		StringBuilder description = new StringBuilder();
+
+		for (Pass pass : passes)
+		{
+			for (Rule rule : pass.rules)
+			{
+				description.append(rule.getRegexp()).append('\0')
+						   .append(rule.getReplacement()).append('\0');
+			}
+
+			description.append('\1');
+		}
+
+		return Manifest.hash(description);
+	}
+
+	/**
+	 * Проверяет, найдёт ли цепочка хотя бы одно совпадение.
+	 * <p>
+	 * Если ни один проход не находит совпадений в исходном тексте, текст не изменяется.
+	 *
+	 * @param value текст.
+	 * @return {@code true}, если хотя бы одно правило находит совпадение, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code value} передан {@code null}.
+	 */
+	public boolean find(@NotNull final CharSequence value)
+	{
+		Objects.requireNonNull(value);
+
+		for (Pass pass : this.passes)
+		{
+			Matcher matcher = pass.matchers.get().reset(value);
+
+			try
+			{
+				if (matcher.find()) {
+					return true;
+				}
+			}
+			finally
+			{
+				matcher.reset("");
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Проверяет, найдёт ли цепочка хотя бы одно совпадение в потоке символов.
+	 * <p>
+	 * Текст читается окнами по {@code window} символов, а чтение прекращается
+	 * на первом совпадении, поэтому файл с совпадением в начале не читается целиком.
+	 * Последние {@code overlap} символов окна просматриваются повторно вместе со следующим окном.
+	 * Совпадение, которое может измениться при поступлении следующих символов, проверяется
+	 * в следующем окне, пока непросмотренный текст не вырастет до двух окон.
+	 * Совпадения длиннее {@code overlap} символов могут быть не найдены на границе окон.
+	 *
+	 * @param reader источник текста.
+	 * @param window размер окна в символах.
+	 * @param overlap размер перекрытия окон в символах.
+	 * @return {@code true}, если хотя бы одно правило находит совпадение, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code reader} передан {@code null}.
+	 * @throws IllegalArgumentException если {@code window} меньше {@code 1} или {@code overlap} меньше {@code 0}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	public boolean find(@NotNull final Reader reader, final int window, final int overlap)
+		throws IOException
+	{
+		Objects.requireNonNull(reader);
+
+		if (window < 1 || overlap < 0) {
+			throw new IllegalArgumentException();
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		Matcher[] matchers = new Matcher[this.passes.size()];
+
+		for (int index = 0; index < matchers.length; index++)
+		{
+			matchers[index] = this.passes.get(index).pattern.matcher(buffer)
+															.useTransparentBounds(true)
+															.useAnchoringBounds(false);
+		}
+
+		char[] chunk = new char[window];
+		int position = 0;
+		boolean end = false;
+
+		while (!end)
+		{
+			int count = reader.read(chunk);
+
+			if (count == -1) {
+				end = true;
+			}
+			else {
+				buffer.append(chunk, 0, count);
+			}
+
+			int length = buffer.length();
+			int next = Math.max(position, length - overlap);
+			boolean force = length - position >= 2 * (window + overlap);
+
+			for (Matcher matcher : matchers)
+			{
+				matcher.reset(buffer);
+				matcher.region(position, length);
+
+				if (matcher.find())
+				{
+					if (end || force || !matcher.hitEnd()) {
+						return true;
+					}
+
+					next = Math.min(next, matcher.start());
+				}
+			}
+
+			int keep = Math.max(0, next - overlap);
+
+			buffer.delete(0, keep);
+			position = next - keep;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Выполняет все правила цепочки над потоком символов.
+	 * <p>
+	 * Текст читается окнами по {@code window} символов. Последние {@code overlap}
+	 * символов окна переносятся в следующее окно, чтобы найти совпадения на границе окон,
+	 * а также используются как контекст для ретроспективных проверок. Совпадения
+	 * длиннее {@code overlap} символов могут быть не найдены на границе окон.
+	 *
+	 * @param reader источник текста.
+	 * @param writer приёмник текста после замены.
+	 * @param file файл, к содержимому которого применяются правила.
+	 * @param window размер окна в символах.
+	 * @param overlap размер перекрытия окон в символах.
+	 * @return {@code true}, если найдено хотя бы одно совпадение, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code reader} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code writer} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IllegalArgumentException если {@code window} меньше {@code 1} или {@code overlap} меньше {@code 0}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 */
+	public boolean apply(@NotNull final Reader reader,
+						 @NotNull final Writer writer,
+						 @NotNull final File file,
+						 final int window,
+						 final int overlap)
+		throws IOException
+	{
+		return this.apply(reader, writer, file, window, overlap, null);
+	}
+
+	/**
+	 * Выполняет все правила цепочки над потоком символов с учётом статистики правил.
+	 *
+	 * @param reader источник текста.
+	 * @param writer приёмник текста после замены.
+	 * @param file файл, к содержимому которого применяются правила.
+	 * @param window размер окна в символах.
+	 * @param overlap размер перекрытия окон в символах.
+	 * @param statistics счётчики замены или {@code null}, если статистика не собирается.
+	 * @return {@code true}, если найдено хотя бы одно совпадение, иначе {@code false}.
+	 * @throws NullPointerException если в качестве {@code reader} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code writer} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws IllegalArgumentException если {@code window} меньше {@code 1} или {@code overlap} меньше {@code 0}.
+	 * @throws IOException если произошла ошибка ввода-вывода.
+	 * @see #apply(Reader, Writer, File, int, int)
+	 */
+	public boolean apply(@NotNull final Reader reader,
+						 @NotNull final Writer writer,
+						 @NotNull final File file,
+						 final int window,
+						 final int overlap,
+						 @Nullable final Statistics statistics)
+		throws IOException
+	{
+		Objects.requireNonNull(reader);
+		Objects.requireNonNull(writer);
+		Objects.requireNonNull(file);
+
+		if (window < 1 || overlap < 0) {
+			throw new IllegalArgumentException();
+		}
+
+		Stage first = null;
+		Stage last = null;
+
+		for (Pass pass : this.passes)
+		{
+			Stage stage = new Stage(pass, file, window, overlap, statistics);
+
+			if (first == null) {
+				first = stage;
+			}
+			else {
+				last.next = stage;
+			}
+
+			last = stage;
+		}
+
+		char[] buffer = new char[window];
+		int count;
+
+		while ((count = reader.read(buffer)) != -1)
+		{
+			if (first == null) {
+				writer.write(buffer, 0, count);
+			}
+			else {
+				first.accept(buffer, count, writer);
+			}
+		}
+
+		boolean matched = false;
+
+		for (Stage stage = first; stage != null; stage = stage.next)
+		{
+			stage.finish(writer);
+
+			matched |= stage.matched;
+		}
+
+		return matched;
+	}
+
+	/**
+	 * Проверяет, зависит ли правило от результата правил прохода.
+	 *
+	 * @param rule правило.
+	 * @param previous правила прохода.
+	 * @return {@code true}, если правило зависит хотя бы от одного правила прохода, иначе {@code false}.
+	 */
+	private static boolean dependsOnAny(@NotNull final Rule rule, @NotNull final List<@NotNull Rule> previous)
+	{
+		for (Rule previousRule : previous)
+		{
+			if (rule.dependsOn(previousRule)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Класс прохода цепочки правил.
+	 */
+	private static final class Pass
+	{
+		/**
+		 * Шаблон прохода.
+		 */
+		@NotNull
+		private final Pattern pattern;
+
+		/**
+		 * Правила прохода.
+		 */
+		@NotNull
+		private final Rule @NotNull [] rules;
+
+		/**
+		 * Номера групп, соответствующих правилам в шаблоне прохода.
+		 */
+		private final int @NotNull [] offsets;
+
+		/**
+		 * Индекс первого правила прохода в цепочке.
+		 */
+		private final int first;
+
+		/**
+		 * Сопоставители шаблона для потоков.
+		 */
+		@NotNull
+		private final ThreadLocal<@NotNull Matcher> matchers;
+
+		/**
+		 * Конструктор для {@code Pass}.
+		 *
+		 * @param rules правила прохода.
+		 * @param first индекс первого правила прохода в цепочке.
+		 * @throws PatternSyntaxException если правила невозможно объединить в один шаблон.
+		 */
+		private Pass(@NotNull final List<@NotNull Rule> rules, final int first)
+		{
+			this.rules = rules.toArray(new Rule[0]);
+			this.offsets = new int[this.rules.length];
+			this.first = first;
+
+			if (this.rules.length == 1)
+			{
+				this.pattern = this.rules[0].getPattern();
+			}
+			else
+			{
+				StringBuilder regexp = new StringBuilder();
+				int group = 1;
+
+				for (int index = 0; index < this.rules.length; index++)
+				{
+					if (index > 0) {
+						regexp.append('|');
+					}
+
+					regexp.append('(').append(this.rules[index].getRegexp()).append(')');
+
+					this.offsets[index] = group;
+					group += this.rules[index].getGroupCount() + 1;
+				}
+
+				this.pattern = Pattern.compile(regexp.toString());
+
+				if (this.pattern.matcher("").groupCount() != group - 1) {
+					throw new PatternSyntaxException("Unexpected group count", regexp.toString(), -1);
+				}
+			}
+
+			this.matchers = ThreadLocal.withInitial(() -> this.pattern.matcher(""));
+		}
+
+		/**
+		 * Выполняет правила прохода.
+		 *
+		 * @param value текст.
+		 * @param file файл, к содержимому которого применяются правила.
+		 * @param statistics счётчики замены или {@code null}, если статистика не собирается.
+		 * @return текст после замены или {@code value}, если совпадений нет.
+		 */
+		@NotNull
+		private String apply(@NotNull final String value,
+							 @NotNull final File file,
+							 @Nullable final Statistics statistics)
+		{
+			Matcher matcher = this.matchers.get().reset(value);
+			long[] matches = statistics == null ? null : new long[this.rules.length];
+			long start = statistics == null ? 0 : Statistics.getCpuTime();
+
+			try
+			{
+				if (!matcher.find()) {
+					return value;
+				}
+
+				StringBuilder result = new StringBuilder(value.length() + 16);
+				int position = 0;
+
+				do
+				{
+					int index = this.findRule(matcher);
+
+					if (matches != null) {
+						matches[index]++;
+					}
+
+					result.append(value, position, matcher.start());
+					this.rules[index].getTemplate().expand(matcher, this.offsets[index], file, result);
+					position = matcher.end();
+				}
+				while (matcher.find());
+
+				result.append(value, position, value.length());
+
+				return result.toString();
+			}
+			finally
+			{
+				matcher.reset("");
+
+				if (statistics != null) {
+					this.record(statistics, matches, Statistics.getCpuTime() - start);
+				}
+			}
+		}
+
+		/**
+		 * Учитывает выполнение правил прохода.
+		 *
+		 * @param statistics счётчики замены.
+		 * @param matches количество совпадений каждого правила прохода.
+		 * @param time процессорное время выполнения прохода в наносекундах.
+		 */
+		private void record(@NotNull final Statistics statistics, final long @NotNull [] matches, final long time)
+		{
+			for (int index = 0; index < this.rules.length; index++) {
+				statistics.addRule(this.first + index, matches[index], time);
+			}
+		}
+
+		/**
+		 * Возвращает индекс правила, совпадение которого найдено.
+		 *
+		 * @param matcher сопоставитель, находящийся на совпадении.
+		 * @return индекс правила.
+		 */
+		private int findRule(@NotNull final Matcher matcher)
+		{
+			if (this.rules.length == 1) {
+				return 0;
+			}
+
+			for (int index = 0; index < this.rules.length; index++)
+			{
+				if (matcher.start(this.offsets[index]) != -1) {
+					return index;
+				}
+			}
+
+			throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Класс потокового выполнения прохода.
+	 * <p>
+	 * Буфер этапа состоит из контекста (уже обработанного текста, необходимого
+	 * для ретроспективных проверок) и необработанного текста.
+	 */
+	private static final class Stage
+	{
+		/**
+		 * Проход.
+		 */
+		@NotNull
+		private final Pass pass;
+
+		/**
+		 * Файл, к содержимому которого применяются правила.
+		 */
+		@NotNull
+		private final File file;
+
+		/**
+		 * Размер окна в символах.
+		 */
+		private final int window;
+
+		/**
+		 * Размер перекрытия окон в символах.
+		 */
+		private final int overlap;
+
+		/**
+		 * Сопоставитель шаблона прохода.
+		 */
+		@NotNull
+		private final Matcher matcher;
+
+		/**
+		 * Буфер текста.
+		 */
+		@NotNull
+		private final StringBuilder buffer;
+
+		/**
+		 * Счётчики замены.
+		 */
+		@Nullable
+		private final Statistics statistics;
+
+		/**
+		 * Количество совпадений каждого правила прохода.
+		 */
+		private final long @Nullable [] matches;
+
+		/**
+		 * Процессорное время выполнения прохода в наносекундах.
+		 */
+		private long time;
+
+		/**
+		 * Количество символов контекста в начале буфера.
+		 */
+		private int context;
+
+		/**
+		 * Найдено хотя бы одно совпадение.
+		 */
+		private boolean matched;
+
+		/**
+		 * Следующий этап.
+		 */
+		private Stage next;
+
+		/**
+		 * Конструктор для {@code Stage}.
+		 *
+		 * @param pass проход.
+		 * @param file файл, к содержимому которого применяются правила.
+		 * @param window размер окна в символах.
+		 * @param overlap размер перекрытия окон в символах.
+		 * @param statistics счётчики замены или {@code null}, если статистика не собирается.
+		 */
+		private Stage(@NotNull final Pass pass,
+					  @NotNull final File file,
+					  final int window,
+					  final int overlap,
+					  @Nullable final Statistics statistics)
+		{
+			this.pass = pass;
+			this.file = file;
+			this.window = window;
+			this.overlap = overlap;
+			this.buffer = new StringBuilder();
+			this.statistics = statistics;
+			this.matches = statistics == null ? null : new long[pass.rules.length];
+			this.time = 0;
+			this.matcher = pass.pattern.matcher(this.buffer)
+									   .useTransparentBounds(true)
+									   .useAnchoringBounds(false);
+			this.context = 0;
+			this.matched = false;
+			this.next = null;
+		}
+
+		/**
+		 * Принимает очередную часть текста.
+		 *
+		 * @param value текст.
+		 * @param writer приёмник текста последнего этапа.
+		 * @throws IOException если произошла ошибка ввода-вывода.
+		 */
+		private void accept(@NotNull final CharSequence value, @NotNull final Writer writer)
+			throws IOException
+		{
+			this.buffer.append(value);
+
+			if (this.buffer.length() - this.context >= this.window + this.overlap) {
+				this.process(false, writer);
+			}
+		}
+
+		/**
+		 * Принимает очередную часть текста.
+		 *
+		 * @param value массив символов.
+		 * @param count количество символов.
+		 * @param writer приёмник текста последнего этапа.
+		 * @throws IOException если произошла ошибка ввода-вывода.
+		 */
+		private void accept(final char @NotNull [] value, final int count, @NotNull final Writer writer)
+			throws IOException
+		{
+			this.buffer.append(value, 0, count);
+
+			if (this.buffer.length() - this.context >= this.window + this.overlap) {
+				this.process(false, writer);
+			}
+		}
+
+		/**
+		 * Обрабатывает остаток текста.
+		 *
+		 * @param writer приёмник текста последнего этапа.
+		 * @throws IOException если произошла ошибка ввода-вывода.
+		 */
+		private void finish(@NotNull final Writer writer)
+			throws IOException
+		{
+			this.process(true, writer);
+
+			if (this.statistics != null) {
+				this.pass.record(this.statistics, this.matches, this.time);
+			}
+		}
+
+		/**
+		 * Обрабатывает буфер и передаёт результат следующему этапу.
+		 * <p>
+		 * Совпадение, которое может измениться при поступлении следующих символов,
+		 * откладывается до следующего окна. Если необработанный текст вырос до двух окон,
+		 * совпадение применяется, чтобы объём буфера оставался ограниченным.
+		 *
+		 * @param end {@code true}, если текст закончился, иначе {@code false}.
+		 * @param writer приёмник текста последнего этапа.
+		 * @throws IOException если произошла ошибка ввода-вывода.
+		 */
+		private void process(final boolean end, @NotNull final Writer writer)
+			throws IOException
+		{
+			int length = this.buffer.length();
+			int limit = end ? length : length - this.overlap;
+			boolean force = length - this.context >= 2 * (this.window + this.overlap);
+			int position = this.context;
+			int emitted = -1;
+			long start = this.statistics == null ? 0 : Statistics.getCpuTime();
+
+			StringBuilder result = new StringBuilder(length - this.context + 16);
+
+			this.matcher.reset(this.buffer);
+			this.matcher.region(this.context, length);
+
+			while (this.matcher.find())
+			{
+				if (this.matcher.start() > limit || !end && this.matcher.start() == limit) {
+					break;
+				}
+
+				if (!end && !force && this.matcher.hitEnd())
+				{
+					emitted = Math.max(position, this.matcher.start());
+					break;
+				}
+
+				int index = this.pass.findRule(this.matcher);
+
+				if (this.matches != null) {
+					this.matches[index]++;
+				}
+
+				result.append(this.buffer, position, this.matcher.start());
+				this.pass.rules[index].getTemplate().expand(this.matcher, this.pass.offsets[index], this.file, result);
+				position = this.matcher.end();
+
+				this.matched = true;
+			}
+
+			if (emitted == -1) {
+				emitted = Math.max(position, limit);
+			}
+
+			result.append(this.buffer, position, emitted);
+
+			if (this.statistics != null) {
+				this.time += Statistics.getCpuTime() - start;
+			}
+
+			int keep = Math.max(0, emitted - this.overlap);
+
+			this.buffer.delete(0, keep);
+			this.context = emitted - keep;
+
+			if (this.next == null) {
+				writer.append(result);
+			}
+			else {
+				this.next.accept(result, writer);
+			}
+		}
+	}
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс счётчиков замены.
+ * <p>
+ * Счётчики основаны на {@link LongAdder}, поэтому потоки замены обновляют их
+ * без взаимной блокировки, а сбор статистики не замедляет замену.
+ * Время измеряется в наносекундах.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Statistics
+{
+	/**
+	 * Объект управления потоками для измерения процессорного времени.
+	 */
+	@NotNull
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Признак поддержки измерения процессорного времени текущего потока.
+	 */
+	private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+	/**
+	 * Количество просмотренных файлов.
+	 */
+	@NotNull
+	private final LongAdder scannedFiles;
+
+	/**
+	 * Количество файлов, пропущенных без чтения содержимого.
+	 */
+	@NotNull
+	private final LongAdder skippedFiles;
+
+	/**
+	 * Количество пропущенных двоичных файлов.
+	 */
+	@NotNull
+	private final LongAdder binaryFiles;
+
+	/**
+	 * Время сканирования директорий.
+	 */
+	@NotNull
+	private final LongAdder scanTime;
+
+	/**
+	 * Время чтения файлов.
+	 */
+	@NotNull
+	private final LongAdder readTime;
+
+	/**
+	 * Время поиска и замены.
+	 */
+	@NotNull
+	private final LongAdder matchTime;
+
+	/**
+	 * Время записи файлов.
+	 */
+	@NotNull
+	private final LongAdder writeTime;
+
+	/**
+	 * Количество прочитанных байтов.
+	 */
+	@NotNull
+	private final LongAdder bytesRead;
+
+	/**
+	 * Количество записанных байтов.
+	 */
+	@NotNull
+	private final LongAdder bytesWritten;
+
+	/**
+	 * Количество совпадений каждого правила.
+	 */
+	@NotNull
+	private final LongAdder @NotNull [] ruleMatches;
+
+	/**
+	 * Процессорное время выполнения каждого правила.
+	 */
+	@NotNull
+	private final LongAdder @NotNull [] ruleTime;
+
+	/**
+	 * Файлы, при обработке которых произошла ошибка.
+	 */
+	@NotNull
+	private final Queue<Map.@NotNull Entry<@NotNull File, @NotNull Exception>> failures;
+
+	/**
+	 * Конструктор для {@code Statistics}.
+	 *
+	 * @param ruleCount количество правил.
+	 * @throws IllegalArgumentException если {@code ruleCount} меньше {@code 0}.
+	 */
+	public Statistics(final int ruleCount)
+	{
+		if (ruleCount < 0) {
+			throw new IllegalArgumentException();
+		}
+
+		this.scannedFiles = new LongAdder();
+		this.skippedFiles = new LongAdder();
+		this.binaryFiles = new LongAdder();
+		this.scanTime = new LongAdder();
+		this.readTime = new LongAdder();
+		this.matchTime = new LongAdder();
+		this.writeTime = new LongAdder();
+		this.bytesRead = new LongAdder();
+		this.bytesWritten = new LongAdder();
+		this.ruleMatches = new LongAdder[ruleCount];
+		this.ruleTime = new LongAdder[ruleCount];
+		this.failures = new ConcurrentLinkedQueue<>();
+
+		for (int index = 0; index < ruleCount; index++)
+		{
+			this.ruleMatches[index] = new LongAdder();
+			this.ruleTime[index] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Учитывает просмотренный файл.
+	 */
+	public void addScanned()
+	{
+		this.scannedFiles.increment();
+	}
+
+	/**
+	 * Учитывает файл, пропущенный без чтения содержимого.
+	 */
+	public void addSkipped()
+	{
+		this.skippedFiles.increment();
+	}
+
+	/**
+	 * Учитывает пропущенный двоичный файл.
+	 */
+	public void addBinary()
+	{
+		this.binaryFiles.increment();
+	}
+
+	/**
+	 * Учитывает время сканирования директорий.
+	 *
+	 * @param time время в наносекундах.
+	 */
+	public void addScanTime(final long time)
+	{
+		this.scanTime.add(time);
+	}
+
+	/**
+	 * Учитывает чтение файла.
+	 *
+	 * @param time время в наносекундах.
+	 * @param bytes количество прочитанных байтов.
+	 */
+	public void addRead(final long time, final long bytes)
+	{
+		this.readTime.add(time);
+		this.bytesRead.add(bytes);
+	}
+
+	/**
+	 * Учитывает время поиска и замены.
+	 *
+	 * @param time время в наносекундах.
+	 */
+	public void addMatchTime(final long time)
+	{
+		this.matchTime.add(time);
+	}
+
+	/**
+	 * Учитывает запись файла.
+	 *
+	 * @param time время в наносекундах.
+	 * @param bytes количество записанных байтов.
+	 */
+	public void addWrite(final long time, final long bytes)
+	{
+		this.writeTime.add(time);
+		this.bytesWritten.add(bytes);
+	}
+
+	/**
+	 * Учитывает выполнение правила.
+	 *
+	 * @param rule индекс правила.
+	 * @param matches количество совпадений.
+	 * @param time процессорное время в наносекундах, измеренное {@link #getCpuTime()}.
+	 */
+	public void addRule(final int rule, final long matches, final long time)
+	{
+		if (matches > 0) {
+			this.ruleMatches[rule].add(matches);
+		}
+
+		this.ruleTime[rule].add(time);
+	}
+
+	/**
+	 * Учитывает ошибку обработки файла.
+	 *
+	 * @param file файл.
+	 * @param exception исключение.
+	 * @throws NullPointerException если в качестве {@code file} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code exception} передан {@code null}.
+	 */
+	public void addFailure(@NotNull final File file, @NotNull final Exception exception)
+	{
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(exception);
+
+		this.failures.add(Map.entry(file, exception));
+	}
+
+	/**
+	 * Возвращает количество просмотренных файлов.
+	 *
+	 * @return количество файлов.
+	 */
+	public long getScannedFiles()
+	{
+		return this.scannedFiles.sum();
+	}
+
+	/**
+	 * Возвращает количество файлов, пропущенных без чтения содержимого.
+	 *
+	 * @return количество файлов.
+	 */
+	public long getSkippedFiles()
+	{
+		return this.skippedFiles.sum();
+	}
+
+	/**
+	 * Возвращает количество пропущенных двоичных файлов.
+	 *
+	 * @return количество файлов.
+	 */
+	public long getBinaryFiles()
+	{
+		return this.binaryFiles.sum();
+	}
+
+	/**
+	 * Возвращает время сканирования директорий.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public long getScanTime()
+	{
+		return this.scanTime.sum();
+	}
+
+	/**
+	 * Возвращает время чтения файлов.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public long getReadTime()
+	{
+		return this.readTime.sum();
+	}
+
+	/**
+	 * Возвращает время поиска и замены.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public long getMatchTime()
+	{
+		return this.matchTime.sum();
+	}
+
+	/**
+	 * Возвращает время записи файлов.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public long getWriteTime()
+	{
+		return this.writeTime.sum();
+	}
+
+	/**
+	 * Возвращает количество прочитанных байтов.
+	 *
+	 * @return количество байтов.
+	 */
+	public long getBytesRead()
+	{
+		return this.bytesRead.sum();
+	}
+
+	/**
+	 * Возвращает количество записанных байтов.
+	 *
+	 * @return количество байтов.
+	 */
+	public long getBytesWritten()
+	{
+		return this.bytesWritten.sum();
+	}
+
+	/**
+	 * Возвращает количество совпадений правила.
+	 *
+	 * @param rule индекс правила.
+	 * @return количество совпадений.
+	 */
+	public long getRuleMatches(final int rule)
+	{
+		return this.ruleMatches[rule].sum();
+	}
+
+	/**
+	 * Возвращает процессорное время выполнения правила.
+	 *
+	 * @param rule индекс правила.
+	 * @return время в наносекундах.
+	 */
+	public long getRuleTime(final int rule)
+	{
+		return this.ruleTime[rule].sum();
+	}
+
+	/**
+	 * Возвращает файлы, при обработке которых произошла ошибка.
+	 *
+	 * @return файлы и исключения в порядке возникновения ошибок.
+	 */
+	@NotNull
+	public List<Map.@NotNull Entry<@NotNull File, @NotNull Exception>> getFailures()
+	{
+		return List.copyOf(this.failures);
+	}
+
+	/**
+	 * Возвращает процессорное время текущего потока.
+	 * <p>
+	 * Если виртуальная машина не поддерживает измерение процессорного времени потока,
+	 * возвращается значение {@link System#nanoTime()}.
+	 *
+	 * @return время в наносекундах.
+	 */
+	public static long getCpuTime()
+	{
+		return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+}
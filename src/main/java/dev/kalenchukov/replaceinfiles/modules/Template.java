@@ -0,0 +1,451 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+/**
+ * Класс скомпилированной строки замены.
+ * <p>
+ * Строка замены разбирается один раз по тем же правилам, что и в
+ * {@link Matcher#appendReplacement(StringBuilder, String)}: {@code \} экранирует
+ * следующий символ, {@code $n} и {@code ${name}} ссылаются на группы.
+ * Ссылки на группы указываются относительно шаблона правила, поэтому строку замены
+ * можно применять к совпадению объединённого шаблона со смещением групп.
+ * Неэкранированные специальные знаки {@link SpecialRule} в любом месте строки
+ * замены компилируются в сегменты, значения которых берутся из файла.
+ *
+ * @author Алексей Каленчуков
+ */
+public final class Template
+{
+	/**
+	 * Сегменты строки замены.
+	 */
+	@NotNull
+	private final List<@NotNull Segment> segments;
+
+	/**
+	 * Специальные правила в порядке убывания длины знака.
+	 * <p>
+	 * Более длинный знак проверяется раньше, поэтому знак, начинающийся с другого знака,
+	 * распознаётся целиком.
+	 */
+	@NotNull
+	private static final List<@NotNull SpecialRule> SPECIAL_RULES = Arrays.stream(SpecialRule.values())
+		.sorted(Comparator.comparingInt((SpecialRule rule) -> rule.getSpecialSign().length()).reversed())
+		.toList();
+
+	/**
+	 * Конструктор для {@code Template}.
+	 *
+	 * @param segments сегменты строки замены.
+	 */
+	private Template(@NotNull final List<@NotNull Segment> segments)
+	{
+		this.segments = segments;
+	}
+
+	/**
+	 * Компилирует строку замены.
+	 *
+	 * @param replacement строка замены.
+	 * @param groupCount количество групп в шаблоне правила.
+	 * @param groupNames имена групп в шаблоне правила.
+	 * @return скомпилированную строку замены.
+	 * @throws NullPointerException если в качестве {@code replacement} передан {@code null}.
+	 * @throws NullPointerException если в качестве {@code groupNames} передан {@code null}.
+	 * @throws IllegalArgumentException если строка замены содержит некорректную ссылку на группу,
+	 * ссылку на несуществующую именованную группу или незавершённое экранирование.
+	 * @throws IndexOutOfBoundsException если строка замены ссылается на несуществующую группу.
+	 */
+	@NotNull
+	public static Template compile(@NotNull final String replacement,
+								   final int groupCount,
+								   @NotNull final Set<@NotNull String> groupNames)
+	{
+		Objects.requireNonNull(replacement);
+		Objects.requireNonNull(groupNames);
+
+		List<Segment> segments = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int cursor = 0;
+
+		while (cursor < replacement.length())
+		{
+			char symbol = replacement.charAt(cursor);
+
+			SpecialRule specialRule = symbol == '\\' ? Template.findSpecialRule(replacement, cursor) : null;
+
+			if (specialRule != null)
+			{
+				Template.flushLiteral(segments, literal);
+
+				segments.add(new Segment(Template.getKind(specialRule), null, 0));
+				cursor += specialRule.getSpecialSign().length();
+			}
+			else if (symbol == '\\')
+			{
+				cursor++;
+
+				if (cursor == replacement.length()) {
+					throw new IllegalArgumentException("character to be escaped is missing");
+				}
+
+				literal.append(replacement.charAt(cursor));
+				cursor++;
+			}
+			else if (symbol == '$')
+			{
+				cursor++;
+
+				if (cursor == replacement.length()) {
+					throw new IllegalArgumentException("Illegal group reference: group index is missing");
+				}
+
+				Template.flushLiteral(segments, literal);
+
+				if (replacement.charAt(cursor) == '{')
+				{
+					cursor++;
+
+					int begin = cursor;
+
+					while (cursor < replacement.length() && Template.isNameSymbol(replacement.charAt(cursor))) {
+						cursor++;
+					}
+
+					if (cursor == begin) {
+						throw new IllegalArgumentException("named capturing group has 0 length name");
+					}
+
+					if (cursor == replacement.length() || replacement.charAt(cursor) != '}') {
+						throw new IllegalArgumentException("named capturing group is missing trailing '}'");
+					}
+
+					String name = replacement.substring(begin, cursor);
+
+					if (!groupNames.contains(name)) {
+						throw new IllegalArgumentException("No group with name {" + name + "}");
+					}
+
+					segments.add(new Segment(Kind.NAMED_GROUP, name, 0));
+					cursor++;
+				}
+				else
+				{
+					int group = replacement.charAt(cursor) - '0';
+
+					if (group < 0 || group > 9) {
+						throw new IllegalArgumentException("Illegal group reference");
+					}
+
+					cursor++;
+
+					while (cursor < replacement.length())
+					{
+						int digit = replacement.charAt(cursor) - '0';
+
+						if (digit < 0 || digit > 9 || group * 10 + digit > groupCount) {
+							break;
+						}
+
+						group = group * 10 + digit;
+						cursor++;
+					}
+
+					if (group > groupCount) {
+						throw new IndexOutOfBoundsException("No group " + group);
+					}
+
+					segments.add(new Segment(Kind.GROUP, null, group));
+				}
+			}
+			else
+			{
+				literal.append(symbol);
+				cursor++;
+			}
+		}
+
+		Template.flushLiteral(segments, literal);
+
+		return new Template(Collections.unmodifiableList(segments));
+	}
+
+	/**
+	 * Создаёт строку замены для специального правила.
+	 *
+	 * @param specialRule специальное правило.
+	 * @return строку замены.
+	 * @throws NullPointerException если в качестве {@code specialRule} передан {@code null}.
+	 */
+	@NotNull
+	public static Template of(@NotNull final SpecialRule specialRule)
+	{
+		Objects.requireNonNull(specialRule);
+
+		return new Template(List.of(new Segment(Template.getKind(specialRule), null, 0)));
+	}
+
+	/**
+	 * Возвращает специальное правило, знак которого начинается в строке замены с указанной позиции.
+	 *
+	 * @param replacement строка замены.
+	 * @param index позиция.
+	 * @return специальное правило или {@code null}, если с позиции не начинается специальный знак.
+	 */
+	@Nullable
+	private static SpecialRule findSpecialRule(@NotNull final String replacement, final int index)
+	{
+		for (SpecialRule specialRule : SPECIAL_RULES)
+		{
+			if (replacement.startsWith(specialRule.getSpecialSign(), index)) {
+				return specialRule;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Возвращает вид сегмента для специального правила.
+	 *
+	 * @param specialRule специальное правило.
+	 * @return вид сегмента.
+	 */
+	@NotNull
+	private static Kind getKind(@NotNull final SpecialRule specialRule)
+	{
+		return switch (specialRule) {
+			case FILE_NAME -> Kind.FILE_NAME;
+			case PATH -> Kind.PATH;
+			case FILE_NAME_FULL -> Kind.FILE_NAME_FULL;
+			case FILE_EXTENSION -> Kind.FILE_EXTENSION;
+		};
+	}
+
+	/**
+	 * Возвращает литеральные части строки замены.
+	 *
+	 * @return коллекцию литеральных частей.
+	 */
+	@NotNull
+	public List<@NotNull String> getLiterals()
+	{
+		List<String> literals = new ArrayList<>();
+
+		for (Segment segment : this.segments)
+		{
+			if (segment.kind == Kind.LITERAL) {
+				literals.add(segment.text);
+			}
+		}
+
+		return literals;
+	}
+
+	/**
+	 * Проверяет, состоит ли строка замены только из литеральных частей.
+	 *
+	 * @return {@code true}, если строка замены не зависит от совпадения и файла, иначе {@code false}.
+	 */
+	public boolean isLiteral()
+	{
+		for (Segment segment : this.segments)
+		{
+			if (segment.kind != Kind.LITERAL) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Добавляет строку замены для текущего совпадения.
+	 *
+	 * @param matcher сопоставитель, находящийся на совпадении.
+	 * @param groupOffset смещение групп правила в шаблоне сопоставителя.
+	 * @param file файл, к содержимому которого применяется правило.
+	 * @param target строка, в которую добавляется результат.
+	 */
+	public void expand(@NotNull final Matcher matcher,
+					   final int groupOffset,
+					   @NotNull final File file,
+					   @NotNull final StringBuilder target)
+	{
+		for (Segment segment : this.segments)
+		{
+			switch (segment.kind)
+			{
+				case LITERAL -> target.append(segment.text);
+				case GROUP -> {
+					int group = groupOffset + segment.group;
+
+					if (matcher.start(group) != -1) {
+						target.append(matcher.group(group));
+					}
+				}
+				case NAMED_GROUP -> {
+					String value = matcher.group(segment.text);
+
+					if (value != null) {
+						target.append(value);
+					}
+				}
+				case FILE_NAME -> target.append(file.getName());
+				case PATH -> target.append(file.getPath());
+				case FILE_NAME_FULL -> target.append(file.getAbsolutePath());
+				case FILE_EXTENSION -> {
+					String name = file.getName();
+					int dot = name.lastIndexOf('.');
+
+					if (dot > 0) {
+						target.append(name, dot + 1, name.length());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Добавляет накопленную литеральную часть в сегменты.
+	 *
+	 * @param segments сегменты.
+	 * @param literal литеральная часть.
+	 */
+	private static void flushLiteral(@NotNull final List<@NotNull Segment> segments,
+									 @NotNull final StringBuilder literal)
+	{
+		if (literal.length() > 0)
+		{
+			segments.add(new Segment(Kind.LITERAL, literal.toString(), 0));
+			literal.setLength(0);
+		}
+	}
+
+	/**
+	 * Проверяет, допустим ли символ в имени группы.
+	 *
+	 * @param symbol символ.
+	 * @return {@code true}, если символ допустим, иначе {@code false}.
+	 */
+	private static boolean isNameSymbol(final char symbol)
+	{
+		return (symbol >= 'a' && symbol <= 'z') ||
+			   (symbol >= 'A' && symbol <= 'Z') ||
+			   (symbol >= '0' && symbol <= '9');
+	}
+
+	/**
+	 * Перечисление видов сегментов строки замены.
+	 */
+	private enum Kind
+	{
+		/**
+		 * Литеральный текст.
+		 */
+		LITERAL,
+
+		/**
+		 * Ссылка на группу по номеру.
+		 */
+		GROUP,
+
+		/**
+		 * Ссылка на группу по имени.
+		 */
+		NAMED_GROUP,
+
+		/**
+		 * Имя файла.
+		 */
+		FILE_NAME,
+
+		/**
+		 * Путь файла.
+		 */
+		PATH,
+
+		/**
+		 * Полное имя файла.
+		 */
+		FILE_NAME_FULL,
+
+		/**
+		 * Расширение файла.
+		 */
+		FILE_EXTENSION
+	}
+
+	/**
+	 * Класс сегмента строки замены.
+	 */
+	private static final class Segment
+	{
+		/**
+		 * Вид сегмента.
+		 */
+		@NotNull
+		private final Kind kind;
+
+		/**
+		 * Литеральный текст или имя группы.
+		 */
+		private final String text;
+
+		/**
+		 * Номер группы.
+		 */
+		private final int group;
+
+		/**
+		 * Конструктор для {@code Segment}.
+		 *
+		 * @param kind вид сегмента.
+		 * @param text литеральный текст или имя группы.
+		 * @param group номер группы.
+		 */
+		private Segment(@NotNull final Kind kind, final String text, final int group)
+		{
+			this.kind = kind;
+			this.text = text;
+			this.group = group;
+		}
+	}
+}
@@ -41,7 +41,21 @@ public enum SpecialRule
 	/**
 	 * Путь файла.
 	 */
-	PATH("\\SCPath");
+	PATH("\\SCPath"),
+
+	/**
+	 * Полное имя файла.
+	 * <p>
+	 * Абсолютный путь файла вне зависимости от того, как файл был добавлен.
+	 */
+	FILE_NAME_FULL("\\SCFileNameFull"),
+
+	/**
+	 * Расширение файла.
+	 * <p>
+	 * Расширение без точки или пустая строка, если у файла нет расширения.
+	 */
+	FILE_EXTENSION("\\SCFileExtension");
 
 	/**
 	 * Специальный знак правила.
@@ -5,6 +5,8 @@ module dev.kalenchukov.replaceinfiles
 {
 	requires org.jetbrains.annotations;
 	requires org.apache.logging.log4j;
+	requires java.management;
+	requires static jdk.unsupported;
 
 	exports dev.kalenchukov.replaceinfiles;
 	exports dev.kalenchukov.replaceinfiles.resources;
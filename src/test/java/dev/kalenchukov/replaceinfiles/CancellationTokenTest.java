@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link CancellationToken}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class CancellationTokenTest
+{
+	/**
+	 * Проверка метода {@link CancellationToken#cancel()}.
+	 */
+	@Test
+	public void cancel()
+	{
+		CancellationToken token = new CancellationToken();
+
+		assertThat(token.isCancelled()).isFalse();
+
+		token.cancel();
+
+		assertThat(token.isCancelled()).isTrue();
+	}
+
+	/**
+	 * Проверка конструктора {@link CancellationToken#CancellationToken(Duration)}.
+	 */
+	@Test
+	public void deadline()
+	{
+		assertThat(new CancellationToken(Duration.ZERO).isCancelled()).isTrue();
+		assertThat(new CancellationToken(Duration.ofDays(1)).isCancelled()).isFalse();
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link ReplacementPlan}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class ReplacementPlanTest
+{
+	/**
+	 * Проверка метода {@link ReplacementPlan#replace(java.util.Collection)} для разных директорий.
+	 */
+	@Test
+	public void replace(@TempDir File tempDir) throws IOException
+	{
+		Path first = Files.createDirectory(tempDir.toPath().resolve("first"));
+		Path second = Files.createDirectory(tempDir.toPath().resolve("second"));
+		Files.writeString(first.resolve("file.txt"), "text");
+		Files.writeString(second.resolve("file.txt"), "text");
+		Files.writeString(second.resolve("file.md"), "text");
+
+		ReplacementPlan plan = ReplacementPlan.builder()
+											  .addInclude("*.txt")
+											  .apply("text", "string")
+											  .build();
+
+		assertThat(plan.replace(List.of(first.toFile())).getChangedFiles()).containsExactly(
+			first.resolve("file.txt").toFile()
+		);
+		assertThat(plan.replace(List.of(second.toFile())).getChangedFiles()).containsExactly(
+			second.resolve("file.txt").toFile()
+		);
+		assertThat(Files.readString(second.resolve("file.md"))).isEqualTo("text");
+	}
+
+	/**
+	 * Проверка одновременного выполнения метода {@link ReplacementPlan#replace(java.util.Collection)}.
+	 */
+	@Test
+	public void replaceConcurrent(@TempDir File tempDir) throws Exception
+	{
+		ReplacementPlan plan = ReplacementPlan.builder()
+											  .apply("te", "TE")
+											  .apply("xt", "XT")
+											  .build();
+
+		List<Path> directories = new ArrayList<>();
+
+		for (int index = 0; index < 8; index++)
+		{
+			Path directory = Files.createDirectory(tempDir.toPath().resolve("directory" + index));
+
+			for (int number = 0; number < 10; number++) {
+				Files.writeString(directory.resolve("file" + number), "text");
+			}
+
+			directories.add(directory);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(directories.size());
+		List<Future<Report>> reports = new ArrayList<>();
+
+		try
+		{
+			for (Path directory : directories) {
+				reports.add(executor.submit(() -> plan.replace(List.of(directory.toFile()))));
+			}
+
+			for (Future<Report> report : reports) {
+				assertThat(report.get().getChangedFiles()).hasSize(10);
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		for (Path directory : directories) {
+			assertThat(Files.readString(directory.resolve("file0"))).isEqualTo("TEXT");
+		}
+	}
+
+	/**
+	 * Проверка независимости плана от изменений {@link ReplacementPlan.Builder}.
+	 */
+	@Test
+	public void build(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		Files.writeString(file.toPath(), "text");
+
+		ReplacementPlan.Builder builder = ReplacementPlan.builder().apply("te", "TE");
+		ReplacementPlan plan = builder.build();
+
+		builder.apply("xt", "XT");
+
+		assertThat(plan.getRules()).hasSize(1);
+		assertThat(builder.build().getRules()).hasSize(2);
+
+		plan.replace(List.of(file));
+
+		assertThat(Files.readString(file.toPath())).isEqualTo("TExt");
+	}
+
+	/**
+	 * Проверка метода {@link ReplacementPlan#search(java.util.Collection)}.
+	 */
+	@Test
+	public void search(@TempDir File tempDir) throws IOException
+	{
+		File first = new File(tempDir, "first");
+		File second = new File(tempDir, "second");
+		Files.writeString(first.toPath(), "text");
+		Files.writeString(second.toPath(), "string");
+
+		ReplacementPlan plan = ReplacementPlan.builder().apply("text", "string").build();
+
+		assertThat(plan.search(List.of(first, second))).containsExactly(first);
+		assertThat(plan.search(List.of(second))).isEmpty();
+		assertThat(Files.readString(first.toPath())).isEqualTo("text");
+	}
+}
@@ -24,18 +24,34 @@
 
 package dev.kalenchukov.replaceinfiles;
 
+import dev.kalenchukov.replaceinfiles.resources.Durability;
 import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
 
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Класс проверки методов класса {@link Replacement}.
@@ -109,6 +125,766 @@ public class ReplacementTest
 		assertThat(actualString).isEqualTo(tempFile.getPath());
 	}
 
+	/**
+	 * Проверка метода {@link Replacement#apply(String, SpecialRule)} со специальным
+	 * правилом {@link SpecialRule#FILE_NAME_FULL}.
+	 */
+	@Test
+	public void replaceSpecialRuleFileNameFull() throws IOException
+	{
+		replacement.apply("text", SpecialRule.FILE_NAME_FULL)
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo(tempFile.getAbsolutePath());
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#apply(String, SpecialRule)} со специальным
+	 * правилом {@link SpecialRule#FILE_EXTENSION}.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"file.txt", "archive.tar.gz", "file", ".hidden"})
+	public void replaceSpecialRuleFileExtension(final String name, @TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, name);
+		Files.writeString(file.toPath(), "text");
+
+		new Replacement().canHidden(true)
+						 .addFile(file)
+						 .apply("text", SpecialRule.FILE_EXTENSION)
+						 .replace();
+
+		int dot = name.lastIndexOf('.');
+
+		assertThat(Files.readString(file.toPath())).isEqualTo(dot > 0 ? name.substring(dot + 1) : "");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#apply(String, String)} со специальными знаками
+	 * внутри строки замены.
+	 */
+	@Test
+	public void replaceSpecialRuleEmbedded() throws IOException
+	{
+		replacement.apply("(te)xt", "$1 \\SCFileName \\SCFileNameFull \\\\SCPath \\SCFileExtension.")
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo(
+			"te " + TEMP_FILE_NAME + " " + tempFile.getAbsolutePath() + " \\SCPath ."
+		);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setParallelism(int)}.
+	 */
+	@Test
+	public void replaceParallel(@TempDir File tempDir) throws IOException
+	{
+		for (int i = 0; i < 100; i++) {
+			Files.writeString(new File(tempDir, "file" + i).toPath(), "text " + i);
+		}
+
+		new Replacement().setParallelism(4)
+						 .addFile(tempDir)
+						 .apply("text", "string")
+						 .replace();
+
+		for (int i = 0; i < 100; i++)
+		{
+			String actualString = Files.readString(new File(tempDir, "file" + i).toPath());
+
+			assertThat(actualString).isEqualTo("string " + i);
+		}
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setParallelism(int)} с некорректным значением.
+	 */
+	@Test
+	public void setParallelismNotPositive()
+	{
+		assertThatThrownBy(() -> new Replacement().setParallelism(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("'0'");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#apply(String, String)} с некорректным шаблоном.
+	 */
+	@Test
+	public void applyInvalidRegexp()
+	{
+		assertThatThrownBy(() -> replacement.apply("(text", "string"))
+			.isInstanceOf(PatternSyntaxException.class);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#apply(String, String)} со ссылкой на несуществующую именованную группу.
+	 */
+	@Test
+	public void applyUnknownNamedGroup()
+	{
+		assertThatThrownBy(() -> replacement.apply("(?<a>x)", "${b}"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> replacement.apply("\\(?<a>x)", "${a}"))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#apply(String, String)} с группой в строке замены.
+	 */
+	@Test
+	public void replaceStringWithGroup() throws IOException
+	{
+		replacement.apply("t(ex)t", "[$1]")
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo("[ex]");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setFused(boolean)}.
+	 */
+	@Test
+	public void replaceFused() throws IOException
+	{
+		ReplacementTest.writeFile("text text");
+
+		replacement.setFused(true)
+				   .apply("te", "12")
+				   .apply("xt", "34")
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo("1234 1234");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setStreamingThreshold(long)}.
+	 */
+	@Test
+	public void replaceStreaming() throws IOException
+	{
+		ReplacementTest.writeFile("text ".repeat(1000));
+
+		replacement.setStreamingThreshold(0)
+				   .setStreamingWindow(64, 8)
+				   .apply("text", "string")
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo("string ".repeat(1000));
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setSplitThreshold(long)}.
+	 */
+	@Test
+	public void replaceSplit() throws IOException
+	{
+		ReplacementTest.writeFile("text line\n".repeat(1000) + "text");
+
+		replacement.setSplitThreshold(0)
+				   .setSplitChunk(64)
+				   .setParallelism(4)
+				   .apply("text", "string")
+				   .replace();
+
+		String actualString = Files.readString(tempFile.toPath(), StandardCharsets.UTF_8);
+
+		assertThat(actualString).isEqualTo("string line\n".repeat(1000) + "string");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#apply(String, String)} с правилом,
+	 * выходящим за пределы строки, при разбиении файла.
+	 */
+	@Test
+	public void applySplitNotLineBounded()
+	{
+		replacement.setSplitThreshold(0);
+
+		assertThatThrownBy(() -> replacement.apply("text\\sline", "string"))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setSplitThreshold(long)} с применённым правилом,
+	 * выходящим за пределы строки.
+	 */
+	@Test
+	public void setSplitThresholdNotLineBounded()
+	{
+		replacement.apply("text\\sline", "string");
+
+		assertThatThrownBy(() -> replacement.setSplitThreshold(0))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setMapped(boolean)}.
+	 */
+	@Test
+	public void replaceMapped() throws IOException
+	{
+		replacement.setMapped(true)
+				   .apply("text", "string")
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo("string");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace()} с файлом без совпадений.
+	 */
+	@Test
+	public void replaceNotChanged() throws IOException
+	{
+		FileTime lastModified = FileTime.fromMillis(0);
+		Files.setLastModifiedTime(tempFile.toPath(), lastModified);
+
+		List<File> changedFiles = replacement.apply("string", "text")
+											 .replace().getChangedFiles();
+
+		assertThat(changedFiles).isEmpty();
+		assertThat(Files.getLastModifiedTime(tempFile.toPath())).isEqualTo(lastModified);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace()} с изменённым файлом.
+	 */
+	@Test
+	public void replaceChanged()
+	{
+		List<File> changedFiles = replacement.apply("text", "string")
+											 .replace().getChangedFiles();
+
+		assertThat(changedFiles).containsExactly(tempFile);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setDurability(Durability)} с записью группами.
+	 */
+	@Test
+	public void replaceDurabilityBatch() throws IOException
+	{
+		replacement.setAtomic(true)
+				   .setDurability(Durability.BATCH)
+				   .apply("text", "string")
+				   .replace();
+
+		String actualString = ReplacementTest.readFile();
+
+		assertThat(actualString).isEqualTo("string");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setDurability(Durability)} с ошибкой сброса группы.
+	 */
+	@Test
+	public void replaceDurabilityBatchFailed(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		Files.writeString(file.toPath(), "text");
+
+		Report report = new Replacement().addFile(file)
+										 .setAtomic(true)
+										 .setDurability(Durability.BATCH)
+										 .setListener(new ReplacementListener() {
+											 @Override
+											 public void onFileFinished(@NotNull final File file,
+																		final boolean changed,
+																		final long bytesRead,
+																		final long bytesWritten,
+																		final long time)
+											 {
+												 for (File temp : Objects.requireNonNull(tempDir.listFiles())) {
+													 if (temp.getName().endsWith(".tmp")) {
+														 temp.delete();
+													 }
+												 }
+											 }
+										 })
+										 .apply("text", "string")
+										 .replace();
+
+		assertThat(report.getChangedFiles()).isEmpty();
+		assertThat(report.getFailedFiles()).containsOnlyKeys(file);
+		assertThat(Files.readString(file.toPath())).isEqualTo("text");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setPipelined(boolean)}.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void replacePipelined(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			File directory = new File(tempDir, "dir" + i % 10);
+			directory.mkdir();
+
+			Files.writeString(new File(directory, "file" + i).toPath(), "text " + i);
+		}
+
+		List<File> changedFiles = new Replacement().setParallelism(parallelism)
+												   .setPipelined(true)
+												   .setPipelineCapacity(4)
+												   .addFile(tempDir)
+												   .apply("text", "string")
+												   .replace().getChangedFiles();
+
+		assertThat(changedFiles).hasSize(100);
+
+		for (int i = 0; i < 100; i++)
+		{
+			File directory = new File(tempDir, "dir" + i % 10);
+			String actualString = Files.readString(new File(directory, "file" + i).toPath());
+
+			assertThat(actualString).isEqualTo("string " + i);
+		}
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setManifest(File)}.
+	 */
+	@Test
+	public void replaceManifest(@TempDir File tempDir) throws IOException
+	{
+		File manifest = new File(tempDir, "manifest");
+		FileTime lastModified = FileTime.fromMillis(1_000_000);
+
+		List<File> changedFiles = replacement.setManifest(manifest)
+											 .apply("text", "string")
+											 .replace().getChangedFiles();
+
+		assertThat(changedFiles).containsExactly(tempFile);
+		assertThat(manifest).isFile();
+
+		Files.setLastModifiedTime(tempFile.toPath(), lastModified);
+
+		changedFiles = replacement.replace().getChangedFiles();
+
+		assertThat(changedFiles).isEmpty();
+
+		ReplacementTest.writeFile("text00");
+		Files.setLastModifiedTime(tempFile.toPath(), lastModified);
+
+		changedFiles = replacement.replace().getChangedFiles();
+
+		assertThat(changedFiles).isEmpty();
+		assertThat(ReplacementTest.readFile()).isEqualTo("text00");
+
+		changedFiles = replacement.apply("0", "1")
+								  .replace().getChangedFiles();
+
+		assertThat(changedFiles).containsExactly(tempFile);
+		assertThat(ReplacementTest.readFile()).isEqualTo("string11");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace()} с двоичным файлом.
+	 */
+	@Test
+	public void replaceBinary() throws IOException
+	{
+		byte[] value = {'t', 'e', 'x', 't', 0, 't', 'e', 'x', 't'};
+		Files.write(tempFile.toPath(), value);
+
+		List<File> changedFiles = replacement.setBinaryDetection(true)
+											 .apply("text", "string")
+											 .replace().getChangedFiles();
+
+		assertThat(changedFiles).isEmpty();
+		assertThat(Files.readAllBytes(tempFile.toPath())).isEqualTo(value);
+	}
+
+	/**
+	 * Проверка отчёта метода {@link Replacement#replace()}.
+	 */
+	@Test
+	public void replaceReport()
+	{
+		Report report = replacement.apply("te", "TE")
+								   .apply("xt", "XT")
+								   .apply("string", "text")
+								   .replace();
+
+		assertThat(report.getChangedFiles()).containsExactly(tempFile);
+		assertThat(report.getScannedFiles()).isEqualTo(1);
+		assertThat(report.getBytesRead()).isEqualTo(4);
+		assertThat(report.getBytesWritten()).isEqualTo(4);
+		assertThat(report.getFailedFiles()).isEmpty();
+		assertThat(report.getRules()).extracting(Report.RuleReport::getRegexp)
+									 .containsExactly("te", "xt", "string");
+		assertThat(report.getRules()).extracting(Report.RuleReport::getMatches)
+									 .containsExactly(1L, 1L, 0L);
+	}
+
+	/**
+	 * Проверка отчёта метода {@link Replacement#replace()} с ошибкой чтения файла.
+	 */
+	@Test
+	public void replaceReportFailed(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		Files.writeString(file.toPath(), "text");
+
+		replacement.addFile(file);
+		Files.delete(file.toPath());
+
+		Report report = replacement.apply("text", "string")
+								   .replace();
+
+		assertThat(report.getChangedFiles()).containsExactly(tempFile);
+		assertThat(report.getFailedFiles()).containsOnlyKeys(file);
+		assertThat(report.getFailedFiles().get(file)).isInstanceOf(NoSuchFileException.class);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace()} с пересекающимися целями и жёсткой ссылкой.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void replaceDuplicates(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		Path root = tempDir.toPath();
+		Files.createDirectories(root.resolve("sub"));
+		Files.writeString(root.resolve("sub/file"), "a");
+		Files.createLink(root.resolve("link"), root.resolve("sub/file"));
+
+		Report report = new Replacement().addFile(tempDir)
+										 .addFile(root.resolve("sub").toFile())
+										 .addFile(root.resolve("sub/./file").toFile())
+										 .setParallelism(parallelism)
+										 .apply("a", "aa")
+										 .replace();
+
+		assertThat(report.getChangedFiles()).hasSize(1);
+		assertThat(Files.readString(root.resolve("sub/file"))).isEqualTo("aa");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setArchives(boolean)}.
+	 */
+	@Test
+	public void replaceArchive(@TempDir File tempDir) throws IOException
+	{
+		File archive = new File(tempDir, "archive.jar");
+		byte[] binary = {0x00, 0x01, 0x74, 0x65, 0x78, 0x74};
+
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(archive)))
+		{
+			output.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			output.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+			output.putNextEntry(new ZipEntry("config/app.properties"));
+			output.write("key=text\n".repeat(100).getBytes(StandardCharsets.UTF_8));
+			output.putNextEntry(new ZipEntry("data.bin"));
+			output.write(binary);
+			output.closeEntry();
+			output.setComment("Комментарий архива");
+		}
+
+		ZipEntry manifest;
+
+		try (ZipFile zip = new ZipFile(archive)) {
+			manifest = zip.getEntry("META-INF/MANIFEST.MF");
+		}
+
+		Report report = new Replacement().addFile(archive)
+										 .setArchives(true)
+										 .apply("text", "string")
+										 .replace();
+
+		assertThat(report.getChangedFiles()).containsExactly(archive);
+
+		try (ZipFile zip = new ZipFile(archive))
+		{
+			assertThat(zip.stream().map(ZipEntry::getName)).containsExactly(
+				"META-INF/MANIFEST.MF", "config/app.properties", "data.bin"
+			);
+			assertThat(zip.getInputStream(zip.getEntry("config/app.properties")).readAllBytes())
+				.isEqualTo("key=string\n".repeat(100).getBytes(StandardCharsets.UTF_8));
+			assertThat(zip.getInputStream(zip.getEntry("data.bin")).readAllBytes()).isEqualTo(binary);
+			assertThat(zip.getEntry("META-INF/MANIFEST.MF").getCompressedSize()).isEqualTo(manifest.getCompressedSize());
+			assertThat(zip.getEntry("META-INF/MANIFEST.MF").getCrc()).isEqualTo(manifest.getCrc());
+			assertThat(zip.getComment()).isEqualTo("Комментарий архива");
+		}
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setArchives(boolean)} с архивом без совпадений.
+	 */
+	@Test
+	public void replaceArchiveNotChanged(@TempDir File tempDir) throws IOException
+	{
+		File archive = new File(tempDir, "archive.zip");
+
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(archive)))
+		{
+			output.putNextEntry(new ZipEntry("file.txt"));
+			output.write("line".getBytes(StandardCharsets.UTF_8));
+			output.closeEntry();
+		}
+
+		byte[] expected = Files.readAllBytes(archive.toPath());
+
+		Report report = new Replacement().addFile(archive)
+										 .setArchives(true)
+										 .apply("text", "string")
+										 .replace();
+
+		assertThat(report.getChangedFiles()).isEmpty();
+		assertThat(Files.readAllBytes(archive.toPath())).isEqualTo(expected);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace()} с архивом без обработки архивов.
+	 */
+	@Test
+	public void replaceArchiveDisabled(@TempDir File tempDir) throws IOException
+	{
+		File archive = new File(tempDir, "archive.zip");
+
+		try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(archive)))
+		{
+			output.putNextEntry(new ZipEntry("file.txt"));
+			output.write("text".getBytes(StandardCharsets.UTF_8));
+			output.closeEntry();
+		}
+
+		byte[] expected = Files.readAllBytes(archive.toPath());
+
+		Report report = new Replacement().addFile(archive)
+										 .apply("text", "string")
+										 .replace();
+
+		assertThat(report.getChangedFiles()).isEmpty();
+		assertThat(Files.readAllBytes(archive.toPath())).isEqualTo(expected);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setListener(ReplacementListener)}.
+	 */
+	@Test
+	public void replaceListener(@TempDir File tempDir) throws IOException
+	{
+		Files.writeString(new File(tempDir, "first").toPath(), "text");
+		Files.writeString(new File(tempDir, "second").toPath(), "string");
+
+		List<String> events = new ArrayList<>();
+
+		new Replacement().addFile(tempDir)
+						 .setListener(new ReplacementListener() {
+							 @Override
+							 public void onFileDiscovered(@NotNull final File file)
+							 {
+								 events.add("discovered " + file.getName());
+							 }
+
+							 @Override
+							 public void onFileStarted(@NotNull final File file)
+							 {
+								 events.add("started " + file.getName());
+							 }
+
+							 @Override
+							 public void onFileFinished(@NotNull final File file,
+														final boolean changed,
+														final long bytesRead,
+														final long bytesWritten,
+														final long time)
+							 {
+								 events.add("finished " + file.getName() + " " + changed + " " + bytesWritten);
+							 }
+						 })
+						 .apply("text", "string")
+						 .replace();
+
+		assertThat(events).containsExactlyInAnyOrder(
+			"discovered first", "started first", "finished first true 6",
+			"discovered second", "started second", "finished second false 0"
+		);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace(CancellationToken)}.
+	 */
+	@Test
+	public void replaceCancelled() throws IOException
+	{
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+
+		Report report = replacement.apply("text", "string")
+								   .replace(token);
+
+		assertThat(report.isCancelled()).isTrue();
+		assertThat(report.getChangedFiles()).isEmpty();
+		assertThat(ReplacementTest.readFile()).isEqualTo("text");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#replace(CancellationToken)} с отменой во время замены.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void replaceCancelledPipelined(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		for (int i = 0; i < 100; i++) {
+			Files.writeString(new File(tempDir, "file" + i).toPath(), "text");
+		}
+
+		CancellationToken token = new CancellationToken();
+
+		Report report = new Replacement().setParallelism(parallelism)
+										 .setPipelined(true)
+										 .setPipelineCapacity(1)
+										 .addFile(tempDir)
+										 .setListener(new ReplacementListener() {
+											 @Override
+											 public void onFileStarted(@NotNull final File file)
+											 {
+												 token.cancel();
+											 }
+										 })
+										 .apply("text", "string")
+										 .replace(token);
+
+		assertThat(report.isCancelled()).isTrue();
+		assertThat(report.getChangedFiles()).hasSizeBetween(1, parallelism);
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setPipelined(boolean)} с исключением получателя событий.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void replaceListenerFailedPipelined(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		for (int i = 0; i < 5; i++) {
+			Files.writeString(new File(tempDir, "file" + i).toPath(), "text");
+		}
+
+		AtomicInteger discovered = new AtomicInteger();
+		Replacement replacement = new Replacement().setParallelism(parallelism)
+												   .setPipelined(true)
+												   .addFile(tempDir)
+												   .setListener(new ReplacementListener() {
+													   @Override
+													   public void onFileDiscovered(@NotNull final File file)
+													   {
+														   if (discovered.incrementAndGet() == 3) {
+															   throw new IllegalStateException("listener");
+														   }
+													   }
+												   })
+												   .apply("text", "string");
+
+		assertThatThrownBy(replacement::replace).isInstanceOf(IllegalStateException.class)
+												.hasMessageContaining("listener");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#search()}.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void search(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		File first = new File(tempDir, "first.txt");
+		File second = new File(tempDir, "second.txt");
+		File excluded = new File(tempDir, "excluded.txt");
+		Files.writeString(first.toPath(), "import com.old.Type;");
+		Files.writeString(second.toPath(), "import com.new.Type;");
+		Files.writeString(excluded.toPath(), "import com.old.Type;");
+
+		List<File> foundFiles = new Replacement().setParallelism(parallelism)
+												 .addExclude("excluded.txt")
+												 .addFile(tempDir)
+												 .apply("com\\.old\\.", "com.new.")
+												 .search();
+
+		assertThat(foundFiles).containsExactly(first);
+		assertThat(Files.readString(first.toPath())).isEqualTo("import com.old.Type;");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#search(int)}.
+	 */
+	@Test
+	public void searchLimit() throws IOException
+	{
+		ReplacementTest.writeFile("text string text string");
+
+		Map<File, List<Match>> foundFiles = replacement.apply("text", "1")
+													   .apply("string", "2")
+													   .search(3);
+
+		assertThat(foundFiles).containsOnlyKeys(tempFile);
+		assertThat(foundFiles.get(tempFile)).containsExactly(
+			new Match("text", 0, 4, "text"),
+			new Match("string", 5, 11, "string"),
+			new Match("text", 12, 16, "text")
+		);
+		assertThat(ReplacementTest.readFile()).isEqualTo("text string text string");
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setMemoryBudget(long)}.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void replaceMemoryBudget(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		for (int i = 0; i < 20; i++) {
+			Files.writeString(new File(tempDir, "file" + i).toPath(), "text ".repeat(20 * (i + 1)));
+		}
+
+		Replaceable replacement = new Replacement().setParallelism(parallelism)
+												   .setStreamingWindow(64, 16)
+												   .setMemoryBudget(4096)
+												   .addFile(tempDir)
+												   .apply("text", "string");
+
+		List<File> changedFiles = replacement.replace().getChangedFiles();
+
+		assertThat(changedFiles).hasSize(20);
+		assertThat(replacement.getMemoryBudget().getUsed()).isZero();
+		assertThat(replacement.getMemoryBudget().getPeak()).isBetween(1L, 4096L);
+
+		for (int i = 0; i < 20; i++)
+		{
+			String actualString = Files.readString(new File(tempDir, "file" + i).toPath());
+
+			assertThat(actualString).isEqualTo("string ".repeat(20 * (i + 1)));
+		}
+	}
+
+	/**
+	 * Проверка метода {@link Replacement#setMemoryBudget(long)} с бюджетом меньше окон потоковой замены.
+	 */
+	@Test
+	public void replaceMemoryBudgetBelowStreaming()
+	{
+		replacement.setMemoryBudget(64 * 1024)
+				   .apply("text", "string");
+
+		assertThatThrownBy(() -> replacement.replace())
+			.isInstanceOf(IllegalStateException.class);
+	}
+
 	private static String readFile() throws IOException
 	{
 		String value;
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link ReplacementWatcher}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class ReplacementWatcherTest
+{
+	/**
+	 * Наибольшее время ожидания замены в миллисекундах.
+	 */
+	private static final long TIMEOUT = 10_000;
+
+	/**
+	 * Проверка метода {@link ReplacementWatcher#start()} с созданными и изменёнными файлами.
+	 */
+	@Test
+	public void start(@TempDir File tempDir) throws Exception
+	{
+		Path root = tempDir.toPath();
+		Path file = root.resolve("file.txt");
+		Files.writeString(file, "text");
+
+		ReplacementPlan plan = ReplacementPlan.builder()
+											  .addInclude("*.txt")
+											  .apply("text", "string")
+											  .build();
+
+		try (ReplacementWatcher watcher = new ReplacementWatcher(plan, List.of(tempDir), Duration.ofMillis(20), null))
+		{
+			watcher.start();
+
+			assertThat(Files.readString(file)).isEqualTo("string");
+			assertThat(watcher.getFiles()).containsExactly(file.toFile());
+
+			Files.writeString(file, "text text");
+			Files.createDirectories(root.resolve("sub"));
+			Files.writeString(root.resolve("sub/new.txt"), "text");
+			Files.writeString(root.resolve("sub/new.md"), "text");
+
+			ReplacementWatcherTest.awaitContent(file, "string string");
+			ReplacementWatcherTest.awaitContent(root.resolve("sub/new.txt"), "string");
+
+			assertThat(Files.readString(root.resolve("sub/new.md"))).isEqualTo("text");
+		}
+	}
+
+	/**
+	 * Проверка метода {@link ReplacementWatcher#start()} с пропуском собственной записи.
+	 */
+	@Test
+	public void startOwnWrites(@TempDir File tempDir) throws Exception
+	{
+		Path file = tempDir.toPath().resolve("file");
+		Files.writeString(file, "b");
+
+		ReplacementPlan plan = ReplacementPlan.builder().apply("a", "aa").build();
+		Queue<Report> reports = new ConcurrentLinkedQueue<>();
+
+		try (ReplacementWatcher watcher = new ReplacementWatcher(plan, List.of(tempDir), Duration.ofMillis(20), reports::add))
+		{
+			watcher.start();
+
+			Files.writeString(file, "a");
+
+			ReplacementWatcherTest.awaitContent(file, "aa");
+
+			Thread.sleep(500);
+
+			assertThat(Files.readString(file)).isEqualTo("aa");
+			assertThat(reports).flatExtracting(Report::getChangedFiles).containsExactly(file.toFile());
+		}
+	}
+
+	/**
+	 * Ожидает появления содержимого в файле.
+	 *
+	 * @param file файл.
+	 * @param value ожидаемое содержимое.
+	 */
+	private static void awaitContent(final Path file, final String value) throws IOException, InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+
+		while (System.currentTimeMillis() < deadline)
+		{
+			if (Files.exists(file) && Files.readString(file).equals(value)) {
+				return;
+			}
+
+			Thread.sleep(10);
+		}
+
+		assertThat(Files.readString(file)).isEqualTo(value);
+	}
+}
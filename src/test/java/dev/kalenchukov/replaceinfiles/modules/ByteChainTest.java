@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link ByteChain}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class ByteChainTest
+{
+	/**
+	 * Проверка метода {@link ByteChain#compile(List)} с поддерживаемыми правилами.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"text", "строка", "com\\.acme", "v\\d\\d", "[a-z_][0-9]", "\\s\\w", "[\\d\\-]"})
+	public void compile(final String regexp)
+	{
+		assertThat(ByteChain.compile(List.of(new Rule(regexp, "value")))).isNotNull();
+	}
+
+	/**
+	 * Проверка метода {@link ByteChain#compile(List)} с неподдерживаемыми правилами.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"text+", "a.b", "[^a]", "(text)", "text|string", "[а-я]", "\\p{L}", "(?i)text", "^text"})
+	public void compileNotSupported(final String regexp)
+	{
+		assertThat(ByteChain.compile(List.of(new Rule(regexp, "value")))).isNull();
+	}
+
+	/**
+	 * Проверка метода {@link ByteChain#compile(List)} с нелитеральной строкой замены.
+	 */
+	@Test
+	public void compileTemplate()
+	{
+		assertThat(ByteChain.compile(List.of(new Rule("text", "$0")))).isNull();
+	}
+
+	/**
+	 * Проверка метода {@link ByteChain#apply(byte[])}.
+	 */
+	@Test
+	public void apply()
+	{
+		ByteChain byteChain = ByteChain.compile(List.of(
+			new Rule("строка\\d", "text"),
+			new Rule("t[a-z]xt", "значение"),
+			new Rule("\\$", "\\$\\$")
+		));
+		byte[] value = "строка1 строка строка2 $".getBytes(StandardCharsets.UTF_8);
+
+		assertThat(byteChain).isNotNull();
+
+		String actual = new String(byteChain.apply(value), StandardCharsets.UTF_8);
+
+		assertThat(actual).isEqualTo("значение строка значение $$");
+	}
+
+	/**
+	 * Проверка метода {@link ByteChain#apply(byte[])} без совпадений.
+	 */
+	@Test
+	public void applyNotChanged()
+	{
+		ByteChain byteChain = ByteChain.compile(List.of(new Rule("text", "string")));
+		byte[] value = "строка".getBytes(StandardCharsets.UTF_8);
+
+		assertThat(byteChain).isNotNull();
+		assertThat(byteChain.apply(value)).isSameAs(value);
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import dev.kalenchukov.replaceinfiles.resources.Durability;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link FileExpert}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class FileExpertTest
+{
+	/**
+	 * Проверка метода {@link FileExpert#writeFile(File, String)}.
+	 */
+	@Test
+	public void writeFile(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		FileExpert fileExpert = new FileExpert();
+
+		fileExpert.writeFile(file, "text");
+
+		assertThat(fileExpert.readFile(file)).isEqualTo("text");
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#writeFile(File, String)} с атомарной записью.
+	 */
+	@Test
+	public void writeFileAtomic(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		Files.writeString(file.toPath(), "old text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setAtomic(true).setDurability(Durability.FILE);
+		fileExpert.writeFile(file, "text");
+
+		assertThat(fileExpert.readFile(file)).isEqualTo("text");
+		assertThat(tempDir.list()).containsExactly("file");
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#flush()} с атомарной записью группами.
+	 */
+	@Test
+	public void flushBatch(@TempDir File tempDir) throws IOException
+	{
+		File first = new File(tempDir, "first");
+		File second = new File(tempDir, "second");
+		Files.writeString(first.toPath(), "old text");
+		Files.writeString(second.toPath(), "old text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setAtomic(true).setDurability(Durability.BATCH).setDurabilityBatch(2, 60_000);
+		fileExpert.writeFile(first, "text");
+
+		assertThat(fileExpert.readFile(first)).isEqualTo("old text");
+
+		fileExpert.writeFile(second, "text");
+
+		assertThat(fileExpert.readFile(first)).isEqualTo("text");
+		assertThat(fileExpert.readFile(second)).isEqualTo("text");
+		assertThat(tempDir.list()).containsExactlyInAnyOrder("first", "second");
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#flush()} с файлом, который не удалось сохранить.
+	 */
+	@Test
+	public void flushBatchFailed(@TempDir File tempDir) throws IOException
+	{
+		File first = new File(tempDir, "first");
+		File second = new File(tempDir, "second");
+		Files.writeString(first.toPath(), "old text");
+		Files.writeString(second.toPath(), "old text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setAtomic(true).setDurability(Durability.BATCH).setDurabilityBatch(10, 60_000);
+		fileExpert.writeFile(first, "text");
+
+		for (File temp : Objects.requireNonNull(tempDir.listFiles())) {
+			if (temp.getName().endsWith(".tmp")) {
+				Files.delete(temp.toPath());
+			}
+		}
+
+		fileExpert.writeFile(second, "text");
+
+		Map<File, IOException> failedFiles = fileExpert.flush();
+
+		assertThat(failedFiles).containsOnlyKeys(first);
+		assertThat(fileExpert.readFile(first)).isEqualTo("old text");
+		assertThat(fileExpert.readFile(second)).isEqualTo("text");
+		assertThat(fileExpert.flush()).isEmpty();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#scanDirectory(File)}.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void scanDirectory(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		Path root = tempDir.toPath();
+		Files.createDirectories(root.resolve("a/b/c"));
+		Files.createDirectories(root.resolve(".hidden"));
+		Files.writeString(root.resolve("file"), "text");
+		Files.writeString(root.resolve("a/b/c/file"), "text");
+		Files.writeString(root.resolve("a/.file"), "text");
+		Files.writeString(root.resolve(".hidden/file"), "text");
+		Files.createSymbolicLink(root.resolve("a/b/loop"), root.resolve("a"));
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setParallelism(parallelism);
+
+		List<File> files = fileExpert.scanDirectory(tempDir);
+
+		assertThat(files).containsExactlyInAnyOrder(
+			root.resolve("file").toFile(),
+			root.resolve("a/b/c/file").toFile()
+		);
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#scanDirectory(File)} со скрытыми файлами.
+	 */
+	@Test
+	public void scanDirectoryCanHidden(@TempDir File tempDir) throws IOException
+	{
+		Path root = tempDir.toPath();
+		Files.createDirectories(root.resolve(".hidden"));
+		Files.writeString(root.resolve(".hidden/.file"), "text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.canHidden(true);
+
+		List<File> files = fileExpert.scanDirectory(tempDir);
+
+		assertThat(files).containsExactly(root.resolve(".hidden/.file").toFile());
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#scanDirectory(File)} с шаблонами, размером и глубиной.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void scanDirectoryFilters(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		Path root = tempDir.toPath();
+		Files.createDirectories(root.resolve("src/main"));
+		Files.createDirectories(root.resolve("node_modules/module"));
+		Files.createDirectories(root.resolve("a/b/c"));
+		Files.writeString(root.resolve("file.java"), "text");
+		Files.writeString(root.resolve("file.txt"), "text");
+		Files.writeString(root.resolve("empty.java"), "");
+		Files.writeString(root.resolve("src/main/file.java"), "text");
+		Files.writeString(root.resolve("src/main/file.txt"), "text");
+		Files.writeString(root.resolve("node_modules/module/file.java"), "text");
+		Files.writeString(root.resolve("a/b/c/file.java"), "text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setParallelism(parallelism);
+		fileExpert.addInclude("*.java");
+		fileExpert.addExclude("node_modules");
+		fileExpert.addExclude("a/b/c/*");
+		fileExpert.setFileSize(1, Long.MAX_VALUE);
+
+		assertThat(fileExpert.scanDirectory(tempDir)).containsExactlyInAnyOrder(
+			root.resolve("file.java").toFile(),
+			root.resolve("src/main/file.java").toFile()
+		);
+
+		fileExpert.setMaxDepth(1);
+
+		assertThat(fileExpert.scanDirectory(tempDir)).containsExactly(
+			root.resolve("file.java").toFile()
+		);
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#canScan(File, File)}.
+	 */
+	@Test
+	public void canScan(@TempDir File tempDir) throws IOException
+	{
+		Path root = tempDir.toPath();
+		Files.createDirectories(root.resolve("src/main"));
+		Files.createDirectories(root.resolve("node_modules"));
+		Files.writeString(root.resolve("file.java"), "text");
+		Files.writeString(root.resolve("file.txt"), "text");
+		Files.writeString(root.resolve("src/main/file.java"), "text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.addInclude("*.java");
+		fileExpert.addExclude("node_modules");
+		fileExpert.setMaxDepth(2);
+
+		assertThat(fileExpert.canScan(tempDir, tempDir)).isTrue();
+		assertThat(fileExpert.canScan(tempDir, root.resolve("file.java").toFile())).isTrue();
+		assertThat(fileExpert.canScan(tempDir, root.resolve("file.txt").toFile())).isFalse();
+		assertThat(fileExpert.canScan(tempDir, root.resolve("src").toFile())).isTrue();
+		assertThat(fileExpert.canScan(tempDir, root.resolve("src/main").toFile())).isFalse();
+		assertThat(fileExpert.canScan(tempDir, root.resolve("node_modules").toFile())).isFalse();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#scanDirectory(File)} с циклическими и повторяющимися ссылками.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1, 4})
+	public void scanDirectorySymbolicLinks(final int parallelism, @TempDir File tempDir) throws IOException
+	{
+		Path root = tempDir.toPath();
+		Files.createDirectories(root.resolve("a"));
+		Files.writeString(root.resolve("a/file.txt"), "text");
+		Files.createSymbolicLink(root.resolve("a/loop"), root);
+		Files.createSymbolicLink(root.resolve("b"), root.resolve("a"));
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setParallelism(parallelism);
+
+		assertThat(fileExpert.scanDirectory(tempDir)).hasSize(1);
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#isBinary(byte[], Charset)} с текстом в UTF-8.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"", "text\n", "строка\tзначение\r\n", "\u001B[1mtext\u001B[0m"})
+	public void isBinaryText(final String value)
+	{
+		byte[] head = value.getBytes(StandardCharsets.UTF_8);
+
+		assertThat(FileExpert.isBinary(head, StandardCharsets.UTF_8)).isFalse();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#isBinary(byte[], Charset)} с двоичными данными.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"504B0304", "CAFEBABE0000", "89504E470D0A1A0A", "74657874007465787400", "FEFEFEFE"})
+	public void isBinary(final String value)
+	{
+		byte[] head = HexFormat.of().parseHex(value);
+
+		assertThat(FileExpert.isBinary(head, StandardCharsets.UTF_8)).isTrue();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#isBinary(byte[], Charset)} с текстом в кодировке, отличной от UTF-8.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"windows-1251", "KOI8-R", "UTF-16", "UTF-16LE"})
+	public void isBinaryCharset(final String name)
+	{
+		Charset charset = Charset.forName(name);
+		byte[] head = "Обычный русский текст\r\nвторая строка\n".repeat(10).getBytes(charset);
+
+		assertThat(FileExpert.isBinary(head, charset)).isFalse();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#isBinary(File)} с выключенным по умолчанию определением.
+	 */
+	@Test
+	public void isBinaryDisabled(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		Files.write(file.toPath(), "Обычный текст".getBytes(Charset.forName("windows-1251")));
+
+		FileExpert fileExpert = new FileExpert();
+
+		assertThat(fileExpert.isBinary(file)).isFalse();
+
+		Files.write(file.toPath(), HexFormat.of().parseHex("504B0304"));
+
+		assertThat(fileExpert.isBinary(file)).isFalse();
+		assertThat(fileExpert.setBinaryDetection(true).isBinary(file)).isTrue();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#isBinary(File)} с расширениями файлов.
+	 */
+	@Test
+	public void isBinaryExtensions(@TempDir File tempDir) throws IOException
+	{
+		File text = new File(tempDir, "file.dat");
+		File binary = new File(tempDir, "file.JAR");
+		Files.write(text.toPath(), new byte[] {0, 1, 2});
+		Files.writeString(binary.toPath(), "text");
+
+		FileExpert fileExpert = new FileExpert();
+		fileExpert.setBinaryDetection(true);
+		fileExpert.setTextExtensions(Set.of("dat"));
+		fileExpert.setBinaryExtensions(Set.of(".jar"));
+
+		assertThat(fileExpert.isBinary(text)).isFalse();
+		assertThat(fileExpert.isBinary(binary)).isTrue();
+
+		fileExpert.setBinaryDetection(false);
+
+		assertThat(fileExpert.isBinary(binary)).isFalse();
+	}
+
+	/**
+	 * Проверка метода {@link FileExpert#isArchive(File)}.
+	 */
+	@Test
+	public void isArchive()
+	{
+		FileExpert fileExpert = new FileExpert();
+
+		assertThat(fileExpert.isArchive(new File("library.jar"))).isFalse();
+
+		fileExpert.setArchives(true);
+
+		assertThat(fileExpert.isArchive(new File("library.JAR"))).isTrue();
+		assertThat(fileExpert.isArchive(new File("archive.zip"))).isTrue();
+		assertThat(fileExpert.isArchive(new File("archive.tar"))).isFalse();
+	}
+}
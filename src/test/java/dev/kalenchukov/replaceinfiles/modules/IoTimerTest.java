@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link IoTimer}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class IoTimerTest
+{
+	/**
+	 * Проверка метода {@link IoTimer#wrap(TextProcessor)}.
+	 */
+	@Test
+	public void wrapProcessor() throws IOException
+	{
+		IoTimer timer = new IoTimer();
+		StringWriter writer = new StringWriter();
+		TextProcessor processor = timer.wrap((source, target) -> {
+			char[] buffer = new char[4];
+			int count;
+
+			while ((count = source.read(buffer)) != -1) {
+				target.write(buffer, 0, count);
+			}
+
+			return true;
+		});
+
+		boolean changed = processor.process(new StringReader("Текст файла"), writer);
+
+		assertThat(changed).isTrue();
+		assertThat(writer.toString()).isEqualTo("Текст файла");
+		assertThat(timer.getReadTime()).isNotNegative();
+		assertThat(timer.getWriteTime()).isNotNegative();
+	}
+
+	/**
+	 * Проверка метода {@link IoTimer#wrap(Reader)}.
+	 */
+	@Test
+	public void wrapReader() throws IOException
+	{
+		IoTimer timer = new IoTimer();
+		Reader reader = timer.wrap(new StringReader("Текст"));
+
+		assertThat(reader.read()).isEqualTo('Т');
+		assertThat(timer.getReadTime()).isNotNegative();
+		assertThat(timer.getWriteTime()).isZero();
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link Manifest}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class ManifestTest
+{
+	/**
+	 * Проверка методов {@link Manifest#save(File)} и {@link Manifest#load(File, long)}.
+	 */
+	@Test
+	public void saveLoad(@TempDir File tempDir) throws IOException
+	{
+		File manifestFile = new File(tempDir, "manifest");
+		Manifest manifest = Manifest.load(manifestFile, 42);
+
+		for (int i = 0; i < 10; i++)
+		{
+			File file = new File(tempDir, "file" + i);
+
+			Files.writeString(file.toPath(), "text " + i);
+			Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(1_000_000));
+
+			manifest.put(file, ManifestTest.attributes(file), Manifest.hash("text " + i));
+		}
+
+		manifest.save(manifestFile);
+
+		Manifest actualManifest = Manifest.load(manifestFile, 42);
+		File file = new File(tempDir, "file3");
+
+		assertThat(actualManifest.size()).isEqualTo(10);
+		assertThat(actualManifest.isUnchanged(file, ManifestTest.attributes(file))).isTrue();
+		assertThat(actualManifest.isSameContent(file, Manifest.hash("text 3"))).isTrue();
+		assertThat(actualManifest.isSameContent(file, Manifest.hash("text 4"))).isFalse();
+
+		Files.writeString(file.toPath(), "text 33");
+
+		assertThat(actualManifest.isUnchanged(file, ManifestTest.attributes(file))).isFalse();
+	}
+
+	/**
+	 * Проверка метода {@link Manifest#load(File, long)} с другим хешем правил.
+	 */
+	@Test
+	public void loadOtherRules(@TempDir File tempDir) throws IOException
+	{
+		File manifestFile = new File(tempDir, "manifest");
+		Manifest manifest = Manifest.load(manifestFile, 42);
+
+		manifest.put(manifestFile, null, 1);
+		manifest.save(manifestFile);
+
+		assertThat(Manifest.load(manifestFile, 42).size()).isEqualTo(1);
+		assertThat(Manifest.load(manifestFile, 43).size()).isZero();
+	}
+
+	/**
+	 * Проверка метода {@link Manifest#merge(File)} с журналами одновременных замен.
+	 */
+	@Test
+	public void merge(@TempDir File tempDir) throws IOException
+	{
+		File manifestFile = new File(tempDir, "manifest");
+		File first = new File(tempDir, "first");
+		File second = new File(tempDir, "second");
+
+		Manifest initial = Manifest.load(manifestFile, 42);
+		initial.put(first, null, 1);
+		initial.save(manifestFile);
+
+		Manifest firstManifest = Manifest.load(manifestFile, 42);
+		Manifest secondManifest = Manifest.load(manifestFile, 42);
+
+		firstManifest.put(first, null, 2);
+		secondManifest.put(second, null, 3);
+
+		firstManifest.merge(manifestFile);
+		secondManifest.merge(manifestFile);
+
+		Manifest actualManifest = Manifest.load(manifestFile, 42);
+
+		assertThat(actualManifest.size()).isEqualTo(2);
+		assertThat(actualManifest.isSameContent(first, 2)).isTrue();
+		assertThat(actualManifest.isSameContent(second, 3)).isTrue();
+	}
+
+	/**
+	 * Проверка метода {@link Manifest#load(File, long)} с повреждённым файлом.
+	 */
+	@Test
+	public void loadCorrupted(@TempDir File tempDir) throws IOException
+	{
+		File manifestFile = new File(tempDir, "manifest");
+
+		Files.writeString(manifestFile.toPath(), "text");
+
+		assertThat(Manifest.load(manifestFile, 42).size()).isZero();
+	}
+
+	/**
+	 * Проверка метода {@link Manifest#isUnchanged(File, BasicFileAttributes)} с недавно изменённым файлом.
+	 */
+	@Test
+	public void isUnchangedRecent(@TempDir File tempDir) throws IOException
+	{
+		File manifestFile = new File(tempDir, "manifest");
+		File file = new File(tempDir, "file");
+		Manifest manifest = Manifest.load(manifestFile, 42);
+
+		Files.writeString(file.toPath(), "text");
+
+		manifest.put(file, ManifestTest.attributes(file), Manifest.hash("text"));
+		manifest.save(manifestFile);
+
+		assertThat(Manifest.load(manifestFile, 42).isUnchanged(file, ManifestTest.attributes(file))).isFalse();
+	}
+
+	private static BasicFileAttributes attributes(final File file) throws IOException
+	{
+		return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link MappedText}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class MappedTextTest
+{
+	/**
+	 * Проверка декодирования файла из нескольких блоков.
+	 */
+	@Test
+	public void charAt(@TempDir File tempDir) throws IOException
+	{
+		String value = "строка text 😀\n".repeat(200_000);
+		File file = new File(tempDir, "file");
+
+		Files.writeString(file.toPath(), value, StandardCharsets.UTF_8);
+
+		try (MappedText text = new MappedText(file.toPath(), StandardCharsets.UTF_8))
+		{
+			assertThat(text.length()).isEqualTo(value.length());
+			assertThat(text.charAt(value.length() - 2)).isEqualTo(value.charAt(value.length() - 2));
+			assertThat(text.charAt(1_500_000)).isEqualTo(value.charAt(1_500_000));
+			assertThat(text.subSequence(10, 40).toString()).isEqualTo(value.substring(10, 40));
+			assertThat(text.toString()).isEqualTo(value);
+		}
+	}
+
+	/**
+	 * Проверка поиска совпадения в отображённом файле.
+	 */
+	@Test
+	public void find(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+
+		Files.writeString(file.toPath(), "a".repeat(3_000_000) + "needle", StandardCharsets.UTF_8);
+
+		try (MappedText text = new MappedText(file.toPath(), StandardCharsets.UTF_8))
+		{
+			Matcher matcher = Pattern.compile("needle").matcher(text);
+
+			assertThat(matcher.find()).isTrue();
+			assertThat(matcher.start()).isEqualTo(3_000_000);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Класс проверки методов класса {@link MemoryBudget}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class MemoryBudgetTest
+{
+	/**
+	 * Проверка методов {@link MemoryBudget#acquire(long)} и {@link MemoryBudget#release(long)}.
+	 */
+	@Test
+	public void acquire() throws InterruptedException
+	{
+		MemoryBudget budget = new MemoryBudget(100);
+
+		budget.acquire(60);
+		budget.acquire(40);
+		budget.release(60);
+
+		assertThat(budget.getUsed()).isEqualTo(40);
+		assertThat(budget.getPeak()).isEqualTo(100);
+		assertThatThrownBy(() -> budget.acquire(101)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> budget.release(41)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * Проверка ожидания освобождения памяти в методе {@link MemoryBudget#acquire(long)}.
+	 */
+	@Test
+	public void acquireWaiting() throws InterruptedException
+	{
+		MemoryBudget budget = new MemoryBudget(100);
+		CountDownLatch acquired = new CountDownLatch(1);
+
+		budget.acquire(80);
+
+		Thread thread = new Thread(() -> {
+			try
+			{
+				budget.acquire(50);
+				acquired.countDown();
+			}
+			catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		thread.start();
+
+		assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+		assertThat(budget.getWaiting()).isEqualTo(1);
+
+		budget.release(80);
+
+		assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(budget.getUsed()).isEqualTo(50);
+		assertThat(budget.getPeak()).isEqualTo(80);
+
+		thread.join();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link Prefilter}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class PrefilterTest
+{
+	/**
+	 * Проверка метода {@link Rule#getLiteral()}.
+	 */
+	@ParameterizedTest
+	@CsvSource(value = {
+		"com\\.acme\\.old\\.[A-Z]\\w+; com.acme.old.",
+		"text; text",
+		"ab?cde; cde",
+		"x(abc)?yz; yz",
+		"\\x41bc\\d+; bc",
+		"fo{0,2}bar; bar",
+		"строка; строка",
+		"(?i)text; ",
+		"text|string; ",
+		"\\Qtext\\E; ",
+		"[a-z]+; "
+	}, delimiter = ';')
+	public void getLiteral(final String regexp, final String literal)
+	{
+		assertThat(new Rule(regexp, "").getLiteral()).isEqualTo(literal);
+	}
+
+	/**
+	 * Проверка метода {@link Prefilter#mayMatch(java.nio.file.Path)}.
+	 */
+	@Test
+	public void mayMatch(@TempDir File tempDir) throws IOException
+	{
+		File file = new File(tempDir, "file");
+		Prefilter prefilter = new Prefilter(
+			List.of(new Rule("com\\.acme\\.[A-Z]\\w+", ""), new Rule("строка\\d", "")),
+			StandardCharsets.UTF_8
+		);
+
+		assertThat(prefilter.isEnabled()).isTrue();
+
+		Files.writeString(file.toPath(), "com-acme.text строк", StandardCharsets.UTF_8);
+
+		assertThat(prefilter.mayMatch(file.toPath())).isFalse();
+
+		Files.writeString(file.toPath(), "a".repeat(256 * 1024 - 3) + "строка1", StandardCharsets.UTF_8);
+
+		assertThat(prefilter.mayMatch(file.toPath())).isTrue();
+	}
+
+	/**
+	 * Проверка метода {@link Prefilter#isEnabled()} с правилом без обязательного литерала.
+	 */
+	@Test
+	public void isEnabled()
+	{
+		Prefilter prefilter = new Prefilter(
+			List.of(new Rule("text", ""), new Rule("\\d+", "")),
+			StandardCharsets.UTF_8
+		);
+
+		assertThat(prefilter.isEnabled()).isFalse();
+	}
+}
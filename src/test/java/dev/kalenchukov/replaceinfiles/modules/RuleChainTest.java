@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2022-2023 Алексей Каленчуков
+ * GitHub: https://github.com/kalenchukov
+ * E-mail: mailto:aleksey.kalenchukov@yandex.ru
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.kalenchukov.replaceinfiles.modules;
+
+import dev.kalenchukov.replaceinfiles.resources.SpecialRule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Класс проверки методов класса {@link RuleChain}.
+ *
+ * @author Алексей Каленчуков
+ */
+public class RuleChainTest
+{
+	private static final File FILE = new File("dir/file.txt");
+
+	/**
+	 * Проверка объединения независимых правил в один проход.
+	 */
+	@Test
+	public void applyFusedIndependent()
+	{
+		List<Rule> rules = List.of(
+			new Rule("(?<digit>\\d)+", "<#>"),
+			new Rule("[x-z]", "!"),
+			new Rule("a(b)", "[$1]")
+		);
+
+		RuleChain fused = new RuleChain(rules, true);
+		RuleChain separate = new RuleChain(rules, false);
+
+		assertThat(fused.getPassCount()).isEqualTo(1);
+		assertThat(separate.getPassCount()).isEqualTo(3);
+		assertThat(fused.apply("ab12y$ab", FILE)).isEqualTo("[b]<#>!$[b]");
+		assertThat(fused.apply("ab12y$ab", FILE)).isEqualTo(separate.apply("ab12y$ab", FILE));
+	}
+
+	/**
+	 * Проверка совпадения результатов объединённых и раздельных проходов.
+	 */
+	@ParameterizedTest
+	@CsvSource(value = {
+		"foo; d; cd; Z; cfoo",
+		"bc; Y; ab; X; abc",
+		"a(b); $1x; bx; Q; ab",
+		"x; ''; ab; Q; axb",
+		"x; \\SCFileName; file; F; x",
+		"(?i)b; x; B; c; Bb",
+		"a; b; (?=b)\\w; c; a",
+		"a+; b; \\w; c; aa"
+	}, delimiter = ';')
+	public void applyFusedSequential(final String firstRegexp, final String firstReplacement,
+									 final String secondRegexp, final String secondReplacement,
+									 final String value)
+	{
+		List<Rule> rules = List.of(
+			new Rule(firstRegexp, firstReplacement),
+			new Rule(secondRegexp, secondReplacement)
+		);
+
+		RuleChain fused = new RuleChain(rules, true);
+		RuleChain separate = new RuleChain(rules, false);
+
+		assertThat(fused.getPassCount()).isEqualTo(2);
+		assertThat(fused.apply(value, FILE)).isEqualTo(separate.apply(value, FILE));
+	}
+
+	/**
+	 * Проверка выделения зависимого от порядка правила в отдельный проход.
+	 */
+	@Test
+	public void applyFusedDependent()
+	{
+		List<Rule> rules = List.of(
+			new Rule("old", "new"),
+			new Rule("new", "newest")
+		);
+
+		RuleChain fused = new RuleChain(rules, true);
+
+		assertThat(fused.getPassCount()).isEqualTo(2);
+		assertThat(fused.apply("old", FILE)).isEqualTo("newest");
+	}
+
+	/**
+	 * Проверка выделения правила с обратной ссылкой в отдельный проход.
+	 */
+	@Test
+	public void applyFusedBackReference()
+	{
+		List<Rule> rules = List.of(
+			new Rule("a", "b"),
+			new Rule("(c)\\1", "d")
+		);
+
+		RuleChain fused = new RuleChain(rules, true);
+
+		assertThat(fused.getPassCount()).isEqualTo(2);
+		assertThat(fused.apply("acc", FILE)).isEqualTo("bd");
+	}
+
+	/**
+	 * Проверка метода {@link RuleChain#apply(java.io.Reader, java.io.Writer, File, int, int)}.
+	 */
+	@Test
+	public void applyStreaming() throws IOException
+	{
+		StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 1000; i++) {
+			value.append("line ").append(i).append(" old value;\n");
+		}
+
+		List<Rule> rules = List.of(
+			new Rule("old (value)", "new $1"),
+			new Rule("(?<=line )\\d+", "#"),
+			new Rule("new", "newest")
+		);
+
+		RuleChain chain = new RuleChain(rules, true);
+		StringWriter writer = new StringWriter();
+
+		boolean matched = chain.apply(new StringReader(value.toString()), writer, FILE, 37, 16);
+
+		assertThat(matched).isTrue();
+		assertThat(writer.toString()).isEqualTo(chain.apply(value.toString(), FILE));
+	}
+
+	/**
+	 * Проверка метода {@link RuleChain#apply(java.io.Reader, java.io.Writer, File, int, int)}
+	 * с пустым совпадением в конце текста.
+	 */
+	@ParameterizedTest
+	@CsvSource(value = {
+		"abc; \\z",
+		"abc; $",
+		"a\\nbc; (?m)$",
+		"abc; x*",
+		"; \\z"
+	}, delimiter = ';')
+	public void applyStreamingEnd(final String value, final String regexp) throws IOException
+	{
+		String text = value == null ? "" : value.replace("\\n", "\n");
+		RuleChain chain = new RuleChain(List.of(new Rule(regexp, "-")), false);
+		StringWriter writer = new StringWriter();
+
+		boolean matched = chain.apply(new StringReader(text), writer, FILE, 2, 1);
+
+		assertThat(matched).isTrue();
+		assertThat(writer.toString()).isEqualTo(chain.apply(text, FILE));
+		assertThat(writer.toString()).endsWith("-");
+	}
+
+	/**
+	 * Проверка подсчёта совпадений правил объединённого прохода и потоковой замены.
+	 */
+	@Test
+	public void applyStatistics() throws IOException
+	{
+		List<Rule> rules = List.of(
+			new Rule("a", "b"),
+			new Rule("\\d", "#"),
+			new Rule("b", "c")
+		);
+
+		RuleChain chain = new RuleChain(rules, true);
+		Statistics statistics = new Statistics(rules.size());
+
+		chain.apply("a1a2", FILE, statistics);
+		chain.apply(new StringReader("a1a2"), new StringWriter(), FILE, 2, 1, statistics);
+
+		assertThat(chain.getPassCount()).isEqualTo(2);
+		assertThat(statistics.getRuleMatches(0)).isEqualTo(4);
+		assertThat(statistics.getRuleMatches(1)).isEqualTo(4);
+		assertThat(statistics.getRuleMatches(2)).isEqualTo(4);
+	}
+
+	/**
+	 * Проверка метода {@link RuleChain#find(java.io.Reader, int, int)}.
+	 */
+	@Test
+	public void findStreaming() throws IOException
+	{
+		String value = "x".repeat(1000) + "old value" + "x".repeat(1000);
+		RuleChain chain = new RuleChain(List.of(new Rule("old (value)", "new $1")), false);
+
+		assertThat(chain.find(new StringReader(value), 37, 16)).isTrue();
+		assertThat(chain.find(new StringReader(value.replace("old", "new")), 37, 16)).isFalse();
+		assertThat(chain.find(new StringReader("old valu"), 4, 16)).isFalse();
+	}
+
+	/**
+	 * Проверка метода {@link Rule#isLineBounded()}.
+	 */
+	@ParameterizedTest
+	@CsvSource(value = {
+		"text; true",
+		"[a-z]+\\d*; true",
+		"(?m)^#\\s?; false",
+		"(?m)^// ; true",
+		"(?m)[ \\t]+$; true",
+		"\\p{Alpha}+; true",
+		"(?<name>\\w+)=\\k<name>; true",
+		"a\\sb; false",
+		"a\\nb; false",
+		"[^a]; false",
+		"\\W; false",
+		"\\R; false",
+		"(?s)a.b; false",
+		"^text; false",
+		"text$; false",
+		"\\Atext; false",
+		"x*; false",
+		"(?m)$; false",
+		"\\Qa\\E; true"
+	}, delimiter = ';')
+	public void isLineBounded(final String regexp, final boolean lineBounded)
+	{
+		assertThat(new Rule(regexp, "").isLineBounded()).isEqualTo(lineBounded);
+	}
+}